@@ -47,6 +47,14 @@ public class Launcher extends Application {
 		}
 	}
 
+	/**
+	 * Saves the session before the application exits, so that the next launch resumes from it.
+	 */
+	@Override
+	public void stop() {
+		if (sylladex != null) sylladex.saveSession();
+	}
+
 	public static void main(String[] args) {
 		launch(args);
 	}
@@ -0,0 +1,274 @@
+package app.core;
+
+import app.model.Card;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An archive of many named decks in a single file. Each deck is stored as a complete {@link DeckFormat} file, and a trailing index names
+ * where each one lies, so that a single deck is loaded by seeking straight to it without reading the decks around it.
+ * <br><br>
+ * <b>Layout</b> (big endian, as written by {@link DataOutputStream})
+ * <pre>
+ * header int magic ("SYLA"), short version, short reserved
+ * decks  the bytes of each deck, one after another, as written by {@link DeckFormat#write(List, OutputStream)}
+ * index  int entry count, then entry count entries of (modified UTF-8 name, long offset, long length, int card count)
+ * footer long offset of the index, int CRC32 of the index, int magic ("SYLA")
+ * </pre>
+ * The footer is a fixed size at the very end of the file, so the index is found with two seeks whatever the size of the archive. Writing
+ * a deck copies the bytes of every other deck as they are, without decoding them, into a new archive that replaces the old one whole.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+final class DeckArchive {
+    /** "SYLA" in ascii */
+    static final         int    MAGIC       = 0x53594C41;
+    static final         short  VERSION     = 1;
+    static final         int    HEADER_SIZE = 8;
+    static final         int    FOOTER_SIZE = 16;
+    private static final Logger LOGGER      = LogManager.getLogger(DeckArchive.class);
+
+    private DeckArchive() {
+    }
+
+    //****************************** READ **************************************/
+
+    /**
+     * Reads the index of an archive, without reading any of its decks.
+     *
+     * @param archive
+     *         the archive file
+     * @return the archive's entries, in the order their decks are stored. empty if the archive doesn't exist yet.
+     *
+     * @throws IOException
+     *         if the file isn't an archive or its index is corrupted
+     */
+    @Nonnull
+    static List<Entry> readIndex(File archive) throws IOException {
+        if (!archive.exists()) return Collections.emptyList();
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            return readIndex(channel);
+        }
+    }
+
+    /**
+     * Loads a single deck from an archive, reading only that deck's bytes.
+     *
+     * @param archive
+     *         the archive file
+     * @param name
+     *         the name the deck was stored under
+     * @return the deck, or null if the archive holds no deck of that name
+     *
+     * @throws IOException
+     *         if the file isn't an archive, or the index or the deck is corrupted
+     */
+    @CheckForNull
+    static List<Card> loadDeck(File archive, String name) throws IOException {
+        if (!archive.exists()) return null;
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            Entry entry = find(readIndex(channel), name);
+            if (entry == null) return null;
+            if (entry.length > Integer.MAX_VALUE) throw LOGGER.throwing(new IOException("archived deck is too large to load: " + name));
+            ByteBuffer deck = readFully(channel, entry.offset, (int) entry.length);
+            return DeckFormat.read(new ByteArrayInputStream(deck.array()));
+        }
+    }
+
+    @CheckForNull
+    static Entry find(List<Entry> index, String name) {
+        for (Entry entry : index) if (entry.name.equals(name)) return entry;
+        return null;
+    }
+
+    @Nonnull
+    private static List<Entry> readIndex(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE + FOOTER_SIZE) throw LOGGER.throwing(new EOFException("deck archive is too short to hold an index"));
+        ByteBuffer header = readFully(channel, 0, HEADER_SIZE);
+        if (header.getInt() != MAGIC) throw LOGGER.throwing(new IOException("not a deck archive, bad magic"));
+        short version = header.getShort();
+        if (version != VERSION) throw LOGGER.throwing(new IOException("unsupported deck archive version " + version));
+
+        ByteBuffer footer      = readFully(channel, size - FOOTER_SIZE, FOOTER_SIZE);
+        long       indexOffset = footer.getLong();
+        int        indexCrc    = footer.getInt();
+        if (footer.getInt() != MAGIC || indexOffset < HEADER_SIZE || indexOffset > size - FOOTER_SIZE)
+            throw LOGGER.throwing(new IOException("deck archive footer is corrupted"));
+        long indexLength = size - FOOTER_SIZE - indexOffset;
+        if (indexLength > Integer.MAX_VALUE) throw LOGGER.throwing(new IOException("deck archive index is too large"));
+
+        ByteBuffer index = readFully(channel, indexOffset, (int) indexLength);
+        CRC32      crc   = new CRC32();
+        crc.update(index.array(), 0, index.limit());
+        if ((int) crc.getValue() != indexCrc) throw LOGGER.throwing(new IOException("deck archive index is corrupted"));
+
+        DataInputStream in         = new DataInputStream(new ByteArrayInputStream(index.array()));
+        int             numEntries = in.readInt();
+        if (numEntries < 0) throw LOGGER.throwing(new IOException("deck archive index is corrupted"));
+        List<Entry> entries = new ArrayList<>(Math.min(numEntries, 1 << 10));
+        for (int i = 0; i < numEntries; i++) {
+            Entry entry = new Entry(in.readUTF(), in.readLong(), in.readLong(), in.readInt());
+            if (entry.offset < HEADER_SIZE || entry.length < 0 || entry.offset + entry.length > indexOffset)
+                throw LOGGER.throwing(new IOException("deck archive entry lies outside the archive: " + entry.name));
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    @Nonnull
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw LOGGER.throwing(new EOFException("deck archive ends early"));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    //****************************** WRITE **************************************/
+
+    /**
+     * Stores a deck in an archive under a name, replacing any deck already stored under it. The archive is created if it doesn't exist.
+     *
+     * @param archive
+     *         the archive file
+     * @param name
+     *         the name to store the deck under
+     * @param deck
+     *         the deck to store. null cards are skipped.
+     * @throws IOException
+     *         if the existing archive can't be read or the new one can't be written
+     */
+    static void putDeck(File archive, String name, List<Card> deck) throws IOException {
+        FileController.writeFile(archive, out -> write(archive, name, deck, out));
+    }
+
+    /**
+     * Writes a new archive holding every deck of a previous archive along with a deck stored under a name. A previous deck of the same
+     * name is replaced in place; otherwise the deck is added after the rest.
+     *
+     * @param previous
+     *         the archive whose decks are copied. may not exist, in which case the new archive only holds the deck.
+     * @param name
+     *         the name to store the deck under
+     * @param deck
+     *         the deck to store
+     * @param out
+     *         the stream to write the new archive to. it is flushed, but not closed.
+     * @throws IOException
+     *         if the previous archive can't be read or the stream fails to write
+     */
+    static void write(File previous, String name, List<Card> deck, OutputStream out) throws IOException {
+        if (name.isEmpty()) throw new IllegalArgumentException("an archived deck needs a name");
+        CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(out, 1 << 16));
+        DataOutputStream     dos     = new DataOutputStream(counter);
+        dos.writeInt(MAGIC);
+        dos.writeShort(VERSION);
+        dos.writeShort(0);
+
+        List<Entry> entries = new ArrayList<>();
+        boolean     written = false;
+        if (previous.exists()) {
+            try (FileChannel channel = FileChannel.open(previous.toPath(), StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(counter);
+                for (Entry entry : readIndex(channel)) {
+                    if (entry.name.equals(name)) {
+                        entries.add(writeDeck(name, deck, counter));
+                        written = true;
+                        continue;
+                    }
+                    long offset = counter.count;
+                    for (long copied = 0; copied < entry.length; ) {
+                        copied += channel.transferTo(entry.offset + copied, entry.length - copied, target);
+                    }
+                    entries.add(new Entry(entry.name, offset, entry.length, entry.numCards));
+                }
+            }
+        }
+        if (!written) entries.add(writeDeck(name, deck, counter));
+
+        long                  indexOffset = counter.count;
+        ByteArrayOutputStream index       = new ByteArrayOutputStream(entries.size()*32 + 4);
+        DataOutputStream      indexOut    = new DataOutputStream(index);
+        indexOut.writeInt(entries.size());
+        for (Entry entry : entries) {
+            indexOut.writeUTF(entry.name);
+            indexOut.writeLong(entry.offset);
+            indexOut.writeLong(entry.length);
+            indexOut.writeInt(entry.numCards);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(index.toByteArray());
+        index.writeTo(dos);
+        dos.writeLong(indexOffset);
+        dos.writeInt((int) crc.getValue());
+        dos.writeInt(MAGIC);
+        dos.flush();
+    }
+
+    @Nonnull
+    private static Entry writeDeck(String name, List<Card> deck, CountingOutputStream counter) throws IOException {
+        long offset   = counter.count;
+        int  numCards = 0;
+        for (Card card : deck) if (card != null) numCards++;
+        DeckFormat.write(deck, counter);
+        return new Entry(name, offset, counter.count - offset, numCards);
+    }
+
+    /**
+     * Passes bytes through to a stream, counting them so that each deck's offset in the archive is known as it's written.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * One deck of an archive's index.
+     */
+    static final class Entry {
+        final String name;
+        /** position of the deck's first byte in the archive */
+        final long   offset;
+        final long   length;
+        final int    numCards;
+
+        Entry(String name, long offset, long length, int numCards) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.numCards = numCards;
+        }
+    }
+}
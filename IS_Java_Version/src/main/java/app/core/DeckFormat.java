@@ -0,0 +1,428 @@
+package app.core;
+
+import app.model.Card;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * The compact binary format of a sylladex deck file. Replaces java serialization of each {@link Card}, which wrote a class descriptor, a
+ * boxed in-use flag and a captcha string per card.
+ * <br><br>
+ * <b>Version 2 layout</b> (big endian, as written by {@link DataOutputStream})
+ * <pre>
+ * header int magic ("SYLD"), short version, byte log2 of the block size, byte reserved, int card count, int block count
+ * blocks block count entries of
+ *        block header  int card count, int name count, int payload length, int CRC32 of the three counts and the payload
+ *        payload       a string table of name count entries of (unsigned byte length, UTF-8 bytes of the item name), then card count
+ *                      2-byte records, each an index into the block's string table. the index 0xFFFF marks {@link Card#EMPTY}.
+ * </pre>
+ * Every block holds at most a block size of cards and carries its own string table, so it can be checked and decoded on its own. A block
+ * whose checksum fails only loses its own cards; the rest of the deck still loads.
+ * <br><br>
+ * <b>Version 1 layout</b>, which is still read
+ * <pre>
+ * header       int magic ("SYLD"), short version, byte record width, byte reserved, int card count, int name count
+ * string table name count entries of (unsigned byte length, UTF-8 bytes of the item name)
+ * records      card count fixed-width entries, each an index into the string table. the all-ones index marks {@link Card#EMPTY}.
+ * </pre>
+ * The record width is 2 bytes unless the deck holds more distinct item names than fit, in which case it is 4 bytes.
+ * <br><br>
+ * Version 3 is the optional compressed variant, laid out in {@link DeckStreamFormat}.
+ * <br><br>
+ * Captcha codes are not stored in any version since they are derived from the item name when the card is rebuilt.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+final class DeckFormat {
+    /** "SYLD" in ascii. Never collides with the java serialization stream magic (0xACED) used by legacy deck files. */
+    static final         int    MAGIC             = 0x53594C44;
+    static final         short  VERSION_1         = 1;
+    static final         short  VERSION_2         = 2;
+    /** the compressed, streaming variant, see {@link DeckStreamFormat} */
+    static final         short  VERSION_3         = 3;
+    static final         int    HEADER_SIZE       = 16;
+    static final         int    BLOCK_HEADER_SIZE = 16;
+    private static final Logger LOGGER            = LogManager.getLogger(DeckFormat.class);
+    private static final int    SHORT_RECORD      = 2;
+    private static final int    INT_RECORD        = 4;
+    private static final int    SHORT_EMPTY_MARK  = 0xFFFF;
+    private static final int    INT_EMPTY_MARK    = -1;
+    private static final int    BLOCK_SIZE_LOG2   = 12;
+    /**
+     * the largest block size a version 2 file may be written with, which keeps a block's name indexes below {@link #SHORT_EMPTY_MARK} so
+     * the last name of a full block isn't read as an empty slot
+     */
+    private static final int    MAX_BLOCK_LOG2    = 15;
+
+    private DeckFormat() {
+    }
+
+    //****************************** WRITE **************************************/
+
+    /**
+     * Writes the deck to the stream in the current binary format version. Null cards are skipped.
+     *
+     * @param deck
+     *         the deck to write
+     * @param out
+     *         the stream to write to. it is flushed, but not closed.
+     * @throws IOException
+     *         if the stream fails to write
+     */
+    static void write(List<Card> deck, OutputStream out) throws IOException {
+        int numCards = 0;
+        for (Card card : deck) if (card != null) numCards++;
+        int blockSize = 1 << BLOCK_SIZE_LOG2;
+
+        DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        dos.writeInt(MAGIC);
+        dos.writeShort(VERSION_2);
+        dos.writeByte(BLOCK_SIZE_LOG2);
+        dos.writeByte(0);
+        dos.writeInt(numCards);
+        dos.writeInt((numCards + blockSize - 1)/blockSize);
+
+        BlockWriter    block = new BlockWriter(blockSize);
+        Iterator<Card> cards = deck.iterator();
+        while (cards.hasNext()) {
+            Card card = cards.next();
+            if (card == null) continue;
+            block.add(card);
+            if (block.isFull()) block.writeTo(dos);
+        }
+        if (!block.isEmpty()) block.writeTo(dos);
+        dos.flush();
+    }
+
+    /**
+     * Collects the cards of one version 2 block and writes the block once it is full.
+     */
+    private static final class BlockWriter {
+        private final Card[]                cards;
+        private final Map<String, Integer>  nameIndex  = new LinkedHashMap<>();
+        private final ByteArrayOutputStream payload    = new ByteArrayOutputStream(1 << 14);
+        private final DataOutputStream      payloadOut = new DataOutputStream(payload);
+        private final CRC32                 crc        = new CRC32();
+        private       int                   size       = 0;
+
+        BlockWriter(int blockSize) {
+            this.cards = new Card[blockSize];
+        }
+
+        void add(Card card) {
+            cards[size++] = card;
+            if (card.isInUse()) nameIndex.putIfAbsent(card.getItem(), nameIndex.size());
+        }
+
+        boolean isFull() {
+            return size == cards.length;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            payload.reset();
+            for (String name : nameIndex.keySet()) {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                payloadOut.writeByte(bytes.length);
+                payloadOut.write(bytes);
+            }
+            for (int i = 0; i < size; i++) payloadOut.writeShort(cards[i].isInUse() ? nameIndex.get(cards[i].getItem()) : SHORT_EMPTY_MARK);
+
+            byte[] blockHeader = ByteBuffer.allocate(12).putInt(size).putInt(nameIndex.size()).putInt(payload.size()).array();
+            crc.reset();
+            crc.update(blockHeader, 0, blockHeader.length);
+            crc.update(payload.toByteArray(), 0, payload.size());
+            out.write(blockHeader);
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+
+            Arrays.fill(cards, 0, size, null);
+            nameIndex.clear();
+            size = 0;
+        }
+    }
+
+    //****************************** READ ***************************************/
+
+    /**
+     * Checks whether the leading bytes of a stream belong to this format.
+     *
+     * @param magic
+     *         the first four bytes of a file, as a big endian int
+     * @return true if the file is a binary deck file
+     */
+    static boolean isBinaryDeck(int magic) {
+        return magic == MAGIC;
+    }
+
+    /**
+     * Reads a deck from the stream. Cards holding the same item are rebuilt once and shared, which is safe since a {@link Card} is
+     * immutable. The cards of a corrupted block are dropped and the rest of the deck is still read.
+     *
+     * @param in
+     *         the stream positioned at the magic number
+     * @return the deck read from the stream
+     *
+     * @throws IOException
+     *         if the stream fails to read, ends early, is corrupted in a way that blocks can't be skipped past, or does not hold a supported
+     *         version of the format
+     */
+    @Nonnull
+    static List<Card> read(InputStream in) throws IOException {
+        DataInputStream dis    = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+        Header          header = readHeader(dis);
+        // the header is not trusted to size the list outright, a corrupted count would fail on the records anyway
+        if (header.version == VERSION_3) return DeckStreamFormat.read(dis, header);
+        List<Card> deck = new ArrayList<>(Math.min(header.numCards, 1 << 20));
+        if (header.version == VERSION_1) {
+            Card[] stringTable = readStringTable(dis, header.numNames);
+            for (int i = 0; i < header.numCards; i++) {
+                int index = (header.recordWidth == SHORT_RECORD) ? dis.readUnsignedShort() : dis.readInt();
+                deck.add(decodeRecord(index, header.recordWidth, stringTable));
+            }
+        } else {
+            readBlocks(dis, header, deck);
+        }
+        return deck;
+    }
+
+    private static void readBlocks(DataInputStream in, Header header, List<Card> deck) throws IOException {
+        byte[] payload       = new byte[1 << 14];
+        byte[] blockHeader   = new byte[12];
+        CRC32  crc           = new CRC32();
+        int    droppedBlocks = 0;
+        int    droppedCards  = 0;
+        for (int block = 0; block < header.numBlocks; block++) {
+            in.readFully(blockHeader);
+            ByteBuffer fields      = ByteBuffer.wrap(blockHeader);
+            int        numCards    = fields.getInt();
+            int        numNames    = fields.getInt();
+            int        payloadSize = fields.getInt();
+            int        checksum    = in.readInt();
+            if (!isPlausibleBlock(numCards, numNames, payloadSize, header.blockSize)) {
+                throw LOGGER.throwing(new IOException("deck file block " + block + " is corrupted past recovery"));
+            }
+            if (payloadSize > payload.length) payload = new byte[payloadSize];
+            in.readFully(payload, 0, payloadSize);
+
+            crc.reset();
+            crc.update(blockHeader, 0, blockHeader.length);
+            crc.update(payload, 0, payloadSize);
+            List<Card> cards = null;
+            if ((int) crc.getValue() == checksum) cards = decodeBlock(ByteBuffer.wrap(payload, 0, payloadSize), numCards, numNames);
+            if (cards == null) {
+                droppedBlocks++;
+                droppedCards += numCards;
+            } else {
+                deck.addAll(cards);
+            }
+        }
+        if (droppedBlocks > 0) {
+            LOGGER.warn("Dropped " + droppedCards + " cards from " + droppedBlocks + " corrupted deck file blocks.");
+        }
+    }
+
+    /**
+     * Checks a block header's counts against the limits of the format, before they are used to read the rest of the block. A block that
+     * fails this check can't be skipped, since its payload length can't be trusted either.
+     */
+    static boolean isPlausibleBlock(int numCards, int numNames, int payloadSize, int blockSize) {
+        return numCards >= 0 && numCards <= blockSize && numNames >= 0 && numNames <= numCards &&
+               payloadSize >= numCards*SHORT_RECORD && payloadSize <= numNames*256 + numCards*SHORT_RECORD;
+    }
+
+    /**
+     * Decodes the cards of a version 2 block whose checksum has passed.
+     *
+     * @param payload
+     *         the block's payload, from its position to its limit
+     * @return the block's cards, or null if the block's contents don't fit together despite its checksum
+     */
+    @CheckForNull
+    static List<Card> decodeBlock(ByteBuffer payload, int numCards, int numNames) {
+        Card[] stringTable = new Card[numNames];
+        byte[] name        = new byte[255];
+        try {
+            for (int i = 0; i < numNames; i++) {
+                int length = payload.get() & 0xFF;
+                payload.get(name, 0, length);
+                stringTable[i] = decodeName(name, length);
+            }
+            if (payload.remaining() != numCards*SHORT_RECORD) return null;
+            List<Card> cards = new ArrayList<>(numCards);
+            for (int i = 0; i < numCards; i++) cards.add(decodeRecord(payload.getShort() & 0xFFFF, SHORT_RECORD, stringTable));
+            return cards;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Deck file block passed its checksum but could not be decoded.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads and checks the fixed size header.
+     *
+     * @throws IOException
+     *         if the magic, version or record width are not supported
+     */
+    @Nonnull
+    static Header readHeader(DataInput in) throws IOException {
+        int magic = in.readInt();
+        if (!isBinaryDeck(magic)) throw LOGGER.throwing(new IOException("not a binary deck file, bad magic " + Integer.toHexString(magic)));
+        short version     = in.readShort();
+        int   recordWidth = in.readUnsignedByte();
+        in.readUnsignedByte(); // reserved
+        return checkHeader(new Header(version, recordWidth, in.readInt(), in.readInt()));
+    }
+
+    /**
+     * Reads and checks the fixed size header from the current position of a buffer, such as a mapped file.
+     *
+     * @throws IOException
+     *         if the magic, version or record width are not supported
+     */
+    @Nonnull
+    static Header readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE) throw LOGGER.throwing(new EOFException("deck file is too short to hold a header"));
+        int magic = buffer.getInt();
+        if (!isBinaryDeck(magic)) throw LOGGER.throwing(new IOException("not a binary deck file, bad magic " + Integer.toHexString(magic)));
+        short version     = buffer.getShort();
+        int   recordWidth = buffer.get() & 0xFF;
+        buffer.get(); // reserved
+        return checkHeader(new Header(version, recordWidth, buffer.getInt(), buffer.getInt()));
+    }
+
+    @Nonnull
+    private static Header checkHeader(Header header) throws IOException {
+        if (header.version != VERSION_1 && header.version != VERSION_2 && header.version != VERSION_3)
+            throw LOGGER.throwing(new IOException("unsupported deck file version " + header.version));
+        if (header.recordWidth != SHORT_RECORD && header.recordWidth != INT_RECORD)
+            throw LOGGER.throwing(new IOException("unsupported deck record width " + header.recordWidth));
+        if (header.version == VERSION_2 && header.blockSize < 0)
+            throw LOGGER.throwing(new IOException("unsupported deck block size"));
+        if (header.numCards < 0 || header.numNames < 0 || header.numBlocks < 0)
+            throw LOGGER.throwing(new IOException("corrupted deck file header"));
+        return header;
+    }
+
+    /**
+     * Reads the string table of a version 1 file into one card per distinct item name.
+     */
+    @Nonnull
+    static Card[] readStringTable(DataInput in, int numNames) throws IOException {
+        Card[] stringTable = new Card[numNames];
+        byte[] buffer      = new byte[255];
+        for (int i = 0; i < numNames; i++) {
+            int length = in.readUnsignedByte();
+            in.readFully(buffer, 0, length);
+            stringTable[i] = decodeName(buffer, length);
+        }
+        return stringTable;
+    }
+
+    /**
+     * Rebuilds the card of a string table entry. The entry was written from a card's item, so it is taken as the card held it, even if
+     * upper-casing made it longer than a new card's name may be.
+     */
+    @Nonnull
+    static Card decodeName(byte[] buffer, int length) {
+        return Card.ofStored(new String(buffer, 0, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Maps a record's string table index back to its card.
+     *
+     * @throws IOException
+     *         if the index points outside of the string table
+     */
+    @Nonnull
+    static Card decodeRecord(int index, int recordWidth, Card[] stringTable) throws IOException {
+        if (isEmptyMark(index, recordWidth)) return Card.EMPTY;
+        if (index < 0 || index >= stringTable.length) throw LOGGER.throwing(new IOException("deck record points outside the string table"));
+        return stringTable[index];
+    }
+
+    /**
+     * @return true if the record index marks {@link Card#EMPTY} rather than a string table entry
+     */
+    static boolean isEmptyMark(int index, int recordWidth) {
+        return index == ((recordWidth == SHORT_RECORD) ? SHORT_EMPTY_MARK : INT_EMPTY_MARK);
+    }
+
+    /**
+     * Reads the string table index of a record from a buffer, such as a mapped file.
+     *
+     * @param buffer
+     *         the buffer holding the records
+     * @param position
+     *         the absolute position of the record
+     * @param recordWidth
+     *         the width of a record in bytes
+     * @return the string table index of the record
+     */
+    static int readRecord(ByteBuffer buffer, int position, int recordWidth) {
+        return (recordWidth == SHORT_RECORD) ? buffer.getShort(position) & 0xFFFF : buffer.getInt(position);
+    }
+
+    /**
+     * Checks whether a binary deck file of the version can be memory mapped, which needs its records to be addressable without decoding
+     * the cards before them.
+     */
+    static boolean isMappable(short version) {
+        return version == VERSION_1 || version == VERSION_2;
+    }
+
+    /**
+     * The decoded fixed size header of a binary deck file.
+     */
+    static final class Header {
+        final short version;
+        /** the width of a record in bytes, always 2 for version 2 and 3 */
+        final int   recordWidth;
+        /** the {@link DeckStreamFormat} flags of version 3, 0 otherwise */
+        final int   flags;
+        final int   numCards;
+        /** the size of the string table, 0 for version 2 where each block has its own */
+        final int   numNames;
+        /** the number of blocks, 0 for version 1 */
+        final int   numBlocks;
+        /** the most cards a version 2 block was written with */
+        final int   blockSize;
+
+        Header(short version, int sizeField, int numCards, int countField) {
+            this.version = version;
+            this.numCards = numCards;
+            if (version == VERSION_1) {
+                this.recordWidth = sizeField;
+                this.flags = 0;
+                this.numNames = countField;
+                this.numBlocks = 0;
+                this.blockSize = 0;
+            } else if (version == VERSION_2) {
+                this.recordWidth = SHORT_RECORD;
+                this.flags = 0;
+                this.numNames = 0;
+                this.numBlocks = countField;
+                this.blockSize = (sizeField <= MAX_BLOCK_LOG2) ? 1 << sizeField : -1;
+            } else {
+                this.recordWidth = SHORT_RECORD;
+                this.flags = sizeField;
+                this.numNames = 0;
+                this.numBlocks = 0;
+                this.blockSize = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package app.core;
+
+import app.model.Card;
+import javafx.collections.ListChangeListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the changes made to a deck since the deck was last written to its deck file. The journal listens to the
+ * sylladex's deck and appends one small record per change, so a save only has to flush the records written since the previous save
+ * instead of rewriting every card. Loading a deck file replays its journal on top of it, and once the journal grows past the size of the
+ * deck file the two are compacted by writing a new deck file and starting an empty journal.
+ * <br><br>
+ * The journal lives beside its deck file, with {@link #EXTENSION} appended to the deck file's name. Records are appended to memory by the
+ * thread that changes the deck, and only reach the file when the journal is {@link #flush() flushed}, which is left to the thread that
+ * saves the deck so that the deck's thread never waits on the disk.
+ * <br><br>
+ * <b>Layout</b> (big endian, as written by {@link DataOutputStream})
+ * <pre>
+ * header  int magic ("SYLJ"), short version, long length of the deck file, int CRC32 of the deck file
+ * records int payload length, payload, int CRC32 of the payload
+ * payload int index, int removed count, int added count, then added count entries of (unsigned byte length, UTF-8 item name).
+ *         the length 0xFF marks {@link Card#EMPTY}.
+ * </pre>
+ * Every change to a list, including a permutation, is written as a splice of the cards removed at the index and the cards added in their
+ * place. The header ties the journal to the exact deck file it was started for; a journal whose deck file has since been rewritten by other
+ * means is ignored. Replay stops at the first incomplete or corrupted record, which is what a crash in the middle of an append leaves.
+ *
+ * @author Triston Scallan
+ * @see FileController#writeDeckToFile(List, File)
+ */
+@ParametersAreNonnullByDefault
+final class DeckJournal implements ListChangeListener<Card>, Closeable {
+    static final         String EXTENSION   = ".journal";
+    private static final Logger LOGGER      = LogManager.getLogger(DeckJournal.class);
+    /** "SYLJ" in ascii */
+    private static final int    MAGIC       = 0x53594C4A;
+    private static final short  VERSION_1   = 1;
+    private static final int    HEADER_SIZE = 18;
+    private static final int    EMPTY_MARK  = 0xFF;
+    /** journals smaller than this are never compacted, no matter how small their deck file is. */
+    private static final long   COMPACT_MIN = 1 << 16;
+
+    private final    File                  deckFile;
+    private final    ByteArrayOutputStream payload         = new ByteArrayOutputStream(64);
+    private final    DataOutputStream      payloadOut      = new DataOutputStream(payload);
+    private final    CRC32                 crc             = new CRC32();
+    /** records appended since the last flush, guarded by this journal */
+    private final    ByteArrayOutputStream pending         = new ByteArrayOutputStream(1 << 10);
+    private          int                   pendingRecords  = 0;
+    private          int                   replayedRecords = 0;
+    /** total length of the journal, flushed or not */
+    private volatile long                  length          = HEADER_SIZE;
+    private volatile long                  deckLength      = -1;
+    private volatile long                  deckModified    = -1;
+    @Nullable
+    private volatile IOException           failure         = null;
+    /** the open journal file, only touched by the thread that saves the deck. null until the journal is started. */
+    @Nullable
+    private          FileOutputStream      fileOut         = null;
+    private volatile boolean               closed          = false;
+
+    /**
+     * Creates a journal for a deck file that has yet to be written. Changes to the deck are held in memory until the deck file is written
+     * and the journal is {@link #start() started}.
+     *
+     * @param deckFile
+     *         the deck file the journal's changes will apply to
+     */
+    DeckJournal(File deckFile) {
+        this.deckFile = deckFile.getAbsoluteFile();
+    }
+
+    /**
+     * @return the journal file of a deck file
+     */
+    @Nonnull
+    static File journalFileOf(File deckFile) {
+        return new File(deckFile.getPath() + EXTENSION);
+    }
+
+    /**
+     * Starts the journal file for the deck file, which must have just been written, replacing any journal the file had. Records appended
+     * since the journal was created are written after the header.
+     *
+     * @throws IOException
+     *         if the deck file can't be read or the journal can't be written
+     */
+    void start() throws IOException {
+        if (fileOut != null || closed) throw LOGGER.throwing(new IllegalStateException("deck journal has already been started"));
+        try {
+            long                  checksum  = checksumOf(deckFile);
+            ByteArrayOutputStream header    = new ByteArrayOutputStream(HEADER_SIZE);
+            DataOutputStream      headerOut = new DataOutputStream(header);
+            headerOut.writeInt(MAGIC);
+            headerOut.writeShort(VERSION_1);
+            headerOut.writeLong(deckFile.length());
+            headerOut.writeInt((int) checksum);
+
+            deckLength = deckFile.length();
+            deckModified = deckFile.lastModified();
+            fileOut = new FileOutputStream(journalFileOf(deckFile), false);
+            fileOut.write(header.toByteArray());
+            flush();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Applies the journal of a deck file to the deck loaded from that file, then reopens the journal so that further changes are appended
+     * to it. If the file has no journal, or its journal belongs to an earlier version of the file, an empty journal is started instead.
+     *
+     * @param deckFile
+     *         the deck file the deck was loaded from
+     * @param deck
+     *         the deck loaded from the file. it must not be observed by a journal yet.
+     * @return the journal, ready to be attached to the deck
+     *
+     * @throws IOException
+     *         if the deck file or the journal can't be read, or the journal can't be reopened
+     */
+    @Nonnull
+    static DeckJournal replay(File deckFile, List<Card> deck) throws IOException {
+        File journalFile = journalFileOf(deckFile);
+        if (!journalFile.isFile()) return started(deckFile);
+
+        long validLength;
+        int  records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile), 1 << 16))) {
+            if (journalFile.length() < HEADER_SIZE || in.readInt() != MAGIC || in.readShort() != VERSION_1 ||
+                in.readLong() != deckFile.length() || in.readInt() != (int) checksumOf(deckFile)) {
+                LOGGER.warn("Ignoring journal that does not belong to the deck file " + deckFile.getCanonicalPath());
+                return started(deckFile);
+            }
+
+            validLength = HEADER_SIZE;
+            CRC32  crc     = new CRC32();
+            byte[] payload = new byte[64];
+            while (true) {
+                int size;
+                try {
+                    size = in.readInt();
+                    if (size < 12 || validLength + size + 8 > journalFile.length()) break;
+                    if (size > payload.length) payload = new byte[size];
+                    in.readFully(payload, 0, size);
+                    crc.reset();
+                    crc.update(payload, 0, size);
+                    if (in.readInt() != (int) crc.getValue()) break;
+                } catch (EOFException e) {
+                    break;
+                }
+                if (!applyRecord(new DataInputStream(new ByteArrayInputStream(payload, 0, size)), deck)) break;
+                validLength += size + 8;
+                records++;
+            }
+        }
+        if (validLength < journalFile.length()) {
+            LOGGER.warn("Discarding " + (journalFile.length() - validLength) + " bytes of incomplete or corrupted journal records");
+        }
+
+        // reopen for appending, cutting off whatever followed the last good record
+        DeckJournal journal = new DeckJournal(deckFile);
+        journal.fileOut = new FileOutputStream(journalFile, true);
+        journal.fileOut.getChannel().truncate(validLength);
+        journal.length = validLength;
+        journal.deckLength = deckFile.length();
+        journal.deckModified = deckFile.lastModified();
+        journal.replayedRecords = records;
+        LOGGER.info("Replayed " + records + " journal records onto deck from " + deckFile.getCanonicalPath());
+        return journal;
+    }
+
+    @Nonnull
+    private static DeckJournal started(File deckFile) throws IOException {
+        DeckJournal journal = new DeckJournal(deckFile);
+        journal.start();
+        return journal;
+    }
+
+    /**
+     * Applies one record to the deck.
+     *
+     * @return false if the record does not fit the deck, in which case the deck is left unchanged
+     */
+    private static boolean applyRecord(DataInputStream in, List<Card> deck) throws IOException {
+        int index   = in.readInt();
+        int removed = in.readInt();
+        int added   = in.readInt();
+        if (index < 0 || removed < 0 || added < 0 || index > deck.size() - removed) return false;
+
+        List<Card> cards  = new ArrayList<>(Math.min(added, 1 << 16));
+        byte[]     buffer = new byte[255];
+        for (int i = 0; i < added; i++) {
+            int length = in.readUnsignedByte();
+            if (length == EMPTY_MARK) {
+                cards.add(Card.EMPTY);
+            } else {
+                in.readFully(buffer, 0, length);
+                cards.add(DeckFormat.decodeName(buffer, length));
+            }
+        }
+        if (removed > 0) deck.subList(index, index + removed).clear();
+        if (added > 0) deck.addAll(index, cards);
+        return true;
+    }
+
+    private static long checksumOf(File file) throws IOException {
+        CRC32  crc    = new CRC32();
+        byte[] buffer = new byte[1 << 16];
+        try (InputStream in = new FileInputStream(file)) {
+            for (int read; (read = in.read(buffer)) != -1; ) crc.update(buffer, 0, read);
+        }
+        return crc.getValue();
+    }
+
+    //****************************** RECORD *************************************/
+
+    /**
+     * Appends a record for each change to the deck. The records are held in memory until the next {@link #flush()}.
+     */
+    @Override
+    public void onChanged(Change<? extends Card> change) {
+        while (change.next()) {
+            if (change.wasUpdated()) continue;
+            if (change.wasPermutated()) {
+                int from = change.getFrom();
+                int to   = change.getTo();
+                append(from, to - from, change.getList().subList(from, to));
+            } else {
+                append(change.getFrom(), change.getRemovedSize(), change.getAddedSubList());
+            }
+        }
+    }
+
+    private synchronized void append(int index, int removed, List<? extends Card> added) {
+        if (failure != null || closed) return;
+        try {
+            payload.reset();
+            payloadOut.writeInt(index);
+            payloadOut.writeInt(removed);
+            payloadOut.writeInt(added.size());
+            for (Card card : added) {
+                if (card == null || !card.isInUse()) {
+                    payloadOut.writeByte(EMPTY_MARK);
+                } else {
+                    byte[] bytes = card.getItem().getBytes(StandardCharsets.UTF_8);
+                    payloadOut.writeByte(bytes.length);
+                    payloadOut.write(bytes);
+                }
+            }
+            byte[] bytes = payload.toByteArray();
+            crc.reset();
+            crc.update(bytes, 0, bytes.length);
+            DataOutputStream pendingOut = new DataOutputStream(pending);
+            pendingOut.writeInt(bytes.length);
+            pendingOut.write(bytes);
+            pendingOut.writeInt((int) crc.getValue());
+            length += bytes.length + 8;
+            pendingRecords++;
+        } catch (IOException e) {
+            // writing to memory can't fail, but keep the journal honest if it somehow does
+            LOGGER.error("Failed to append to the deck journal of " + deckFile, e);
+            failure = e;
+        }
+    }
+
+    /**
+     * Writes the records appended since the last flush to the journal file and syncs it to the disk. Should be called by the thread that
+     * saves the deck rather than the thread that changes it.
+     *
+     * @return the number of records written
+     *
+     * @throws IOException
+     *         if the journal has not been started, or the records could not be written
+     */
+    int flush() throws IOException {
+        if (failure != null) throw LOGGER.throwing(new IOException("deck journal has failed and must be restarted", failure));
+        if (fileOut == null) throw LOGGER.throwing(new IOException("deck journal has not been started"));
+        byte[] records;
+        int    count;
+        synchronized (this) {
+            records = pending.toByteArray();
+            count = pendingRecords;
+            pending.reset();
+            pendingRecords = 0;
+        }
+        try {
+            fileOut.write(records);
+            fileOut.getChannel().force(false);
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+        return count;
+    }
+
+    //****************************** STATUS *************************************/
+
+    /**
+     * Checks that this journal can carry the changes of a save to the file. It can only if the file is the deck file this journal was
+     * started for, and that deck file hasn't been rewritten since.
+     *
+     * @param destination
+     *         the file the deck is being saved to
+     * @return true if a save to the file only needs to {@link #flush()} this journal
+     */
+    boolean isJournalOf(File destination) {
+        if (failure != null || closed || !deckFile.equals(destination.getAbsoluteFile())) return false;
+        // a journal that hasn't started yet is waiting on its deck file to be written
+        return deckLength < 0 || (deckFile.length() == deckLength && deckFile.lastModified() == deckModified);
+    }
+
+    /**
+     * @return true once the journal has outgrown its deck file, at which point replaying it costs more than rewriting the deck file
+     */
+    boolean shouldCompact() {
+        return length > Math.max(COMPACT_MIN, deckLength);
+    }
+
+    /**
+     * @return the number of records appended since the last flush
+     */
+    synchronized int getPendingRecords() {
+        return pendingRecords;
+    }
+
+    /**
+     * @return the number of records applied to the deck when this journal was opened by {@link #replay(File, List)}
+     */
+    int getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * @return the deck file this journal's changes apply to
+     */
+    @Nonnull
+    File getDeckFile() {
+        return deckFile;
+    }
+
+    /**
+     * Stops the journal from taking further records and closes its file. Records that have not been flushed are written first, unless the
+     * journal never started or has failed. Like {@link #flush()}, this should be called by the thread that saves the deck.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        if (fileOut == null) return;
+        try {
+            if (failure == null) flush();
+        } finally {
+            fileOut.close();
+        }
+    }
+}
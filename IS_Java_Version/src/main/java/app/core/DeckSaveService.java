@@ -0,0 +1,273 @@
+package app.core;
+
+import app.model.Card;
+import javafx.application.Platform;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Saves decks on a dedicated I/O thread so that the JavaFX thread never waits on the disk. The caller hands over a snapshot of the deck,
+ * which is a plain copy of the deck's card references since a {@link Card} is immutable, and is told of the save's progress and result
+ * through a {@link SaveListener} called back on the JavaFX thread.
+ * <br><br>
+ * Saves run one at a time in the order they were requested. A save requested while an earlier save to the same file is still waiting for
+ * its turn is combined with it: a newer snapshot replaces the waiting one, and a journal flush joins the waiting save of that journal, so a
+ * burst of saves costs a single write.
+ *
+ * @author Triston Scallan
+ * @see DeckJournal
+ */
+@ParametersAreNonnullByDefault
+final class DeckSaveService {
+    private static final Logger   LOGGER            = LogManager.getLogger(DeckSaveService.class);
+    private static final String   THREAD_NAME       = "sylladex-io";
+    /** how long the application waits on exit for queued saves to finish */
+    private static final long     SHUTDOWN_WAIT_SEC = 10;
+    private final        Executor ioExecutor;
+    private final        Executor callbackExecutor;
+    /** the last save queued that has yet to start, guarded by this service */
+    @Nullable
+    private              SaveJob  pending           = null;
+
+    /**
+     * Creates a service with its own I/O thread, calling back on the JavaFX thread. Saves still queued when the application exits are
+     * given a short while to finish.
+     */
+    DeckSaveService() {
+        this(createIoExecutor(), Platform::runLater);
+    }
+
+    /**
+     * @param ioExecutor
+     *         runs the saves. it must run its tasks one at a time, in the order they were given.
+     * @param callbackExecutor
+     *         runs the callbacks of each save's listener
+     */
+    DeckSaveService(Executor ioExecutor, Executor callbackExecutor) {
+        this.ioExecutor = ioExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    private static ExecutorService createIoExecutor() {
+        ExecutorService executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(SHUTDOWN_WAIT_SEC, TimeUnit.SECONDS)) LOGGER.error("Exited before queued deck saves finished.");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, THREAD_NAME + "-shutdown"));
+        return executor;
+    }
+
+    //****************************** REQUESTS ***********************************/
+
+    /**
+     * Queues a full write of a deck snapshot to its deck file, after which the journal recording the deck's changes since the snapshot is
+     * started.
+     *
+     * @param snapshot
+     *         a copy of the deck that is not changed after it is handed over
+     * @param deckFile
+     *         the file to write, already carrying the deck file extension
+     * @param previous
+     *         the journal the deck was recording to before the snapshot, closed before the write. null if there was none.
+     * @param journal
+     *         the journal recording the deck's changes since the snapshot, not yet started
+     * @param listener
+     *         told of the save's progress and result
+     */
+    synchronized void saveDeck(List<Card> snapshot, File deckFile, @Nullable DeckJournal previous, DeckJournal journal,
+                               SaveListener listener) {
+        SaveJob job = new SaveJob(deckFile, snapshot, previous, journal, listener);
+        if (pending != null && pending.deckFile.equals(deckFile) && pending.journal == previous) {
+            // the queued write would be thrown away by this one, so only this one is written
+            pending.superseded = true;
+            job.listeners.addAll(0, pending.listeners);
+            notifyListener(listener, l -> l.progress("combined with a queued save."));
+        }
+        queue(job);
+    }
+
+    /**
+     * Queues a flush of a journal, which writes only the deck changes recorded since its last flush.
+     *
+     * @param journal
+     *         the journal to flush
+     * @param listener
+     *         told of the save's progress and result
+     */
+    synchronized void saveJournal(DeckJournal journal, SaveListener listener) {
+        if (pending != null && pending.journal == journal) {
+            // the queued save flushes this journal when it runs, which will include every change recorded until then
+            pending.listeners.add(listener);
+            notifyListener(listener, l -> l.progress("combined with a queued save."));
+            return;
+        }
+        queue(new SaveJob(journal.getDeckFile(), null, null, journal, listener));
+    }
+
+    /**
+     * Queues a write of a file other than a deck file, replacing the file's contents as a whole.
+     *
+     * @param file
+     *         the file to write
+     * @param writer
+     *         writes the file's contents. it runs on the I/O thread, so whatever it reads must not change until the write is done.
+     * @param listener
+     *         told of the write's result
+     */
+    synchronized void saveFile(File file, FileController.ContentWriter writer, SaveListener listener) {
+        ioExecutor.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                FileController.writeFile(file, writer);
+                String message = "Saved " + file.getName() + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.";
+                notifyListener(listener, l -> l.saved(message));
+            } catch (IOException | SecurityException e) {
+                LOGGER.error("Failed to save " + file, e);
+                notifyListener(listener, l -> l.failed(e));
+            }
+        });
+    }
+
+    /**
+     * Queues the closing of a journal behind any save still using it.
+     */
+    synchronized void closeJournal(DeckJournal journal) {
+        pending = null;
+        ioExecutor.execute(() -> closeQuietly(journal));
+    }
+
+    /**
+     * Queues the closing of a journal behind any save still using it, then runs a task on the callback executor once it is closed.
+     *
+     * @param journal
+     *         the journal to close
+     * @param closed
+     *         run once every save queued so far is done and the journal is closed
+     */
+    synchronized void closeJournal(DeckJournal journal, Runnable closed) {
+        pending = null;
+        ioExecutor.execute(() -> {
+            closeQuietly(journal);
+            callbackExecutor.execute(closed);
+        });
+    }
+
+    /**
+     * Blocks until every save queued so far has finished.
+     *
+     * @throws InterruptedException
+     *         if interrupted while waiting
+     */
+    void awaitQueuedSaves() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        synchronized (this) {
+            pending = null;
+            ioExecutor.execute(done::countDown);
+        }
+        done.await();
+    }
+
+    private void queue(SaveJob job) {
+        pending = job;
+        ioExecutor.execute(() -> run(job));
+    }
+
+    //****************************** I/O THREAD *********************************/
+
+    private void run(SaveJob job) {
+        List<SaveListener> listeners;
+        synchronized (this) {
+            if (pending == job) pending = null;
+            listeners = new ArrayList<>(job.listeners);
+        }
+        if (job.previous != null) closeQuietly(job.previous);
+        if (job.superseded) return;
+
+        long start = System.nanoTime();
+        try {
+            String result;
+            if (job.snapshot != null) {
+                notifyListeners(listeners, l -> l.progress("writing " + job.snapshot.size() + " cards..."));
+                FileController.writeDeckToFile(job.snapshot, job.deckFile);
+                job.journal.start();
+                result = "Saved " + job.snapshot.size() + " cards to " + job.deckFile.getName();
+            } else {
+                result = "Saved " + job.journal.flush() + " changes to the journal of " + job.deckFile.getName();
+            }
+            String message = result + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms.";
+            LOGGER.info(message);
+            notifyListeners(listeners, l -> l.saved(message));
+        } catch (IOException | SecurityException e) {
+            LOGGER.error("Failed to save deck to " + job.deckFile, e);
+            // a journal whose deck file was never written can't be flushed, the next save has to write the deck in full
+            if (job.snapshot != null) closeQuietly(job.journal);
+            notifyListeners(listeners, l -> l.failed(e));
+        }
+    }
+
+    private static void closeQuietly(DeckJournal journal) {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            LOGGER.warn("Failed to close the deck journal of " + journal.getDeckFile(), e);
+        }
+    }
+
+    private void notifyListener(SaveListener listener, Consumer<SaveListener> callback) {
+        callbackExecutor.execute(() -> callback.accept(listener));
+    }
+
+    private void notifyListeners(List<SaveListener> listeners, Consumer<SaveListener> callback) {
+        callbackExecutor.execute(() -> listeners.forEach(callback));
+    }
+
+    /**
+     * Told of the progress and result of a save, on the callback executor.
+     */
+    interface SaveListener {
+        void progress(String message);
+
+        void saved(String message);
+
+        void failed(Exception e);
+    }
+
+    /**
+     * A queued save. A job with a snapshot writes the deck file and starts its journal, one without flushes its journal.
+     */
+    private static final class SaveJob {
+        final    File               deckFile;
+        @Nullable
+        final    List<Card>         snapshot;
+        @Nullable
+        final    DeckJournal        previous;
+        final    DeckJournal        journal;
+        final    List<SaveListener> listeners  = new ArrayList<>(1);
+        volatile boolean            superseded = false;
+
+        SaveJob(File deckFile, @Nullable List<Card> snapshot, @Nullable DeckJournal previous, DeckJournal journal, SaveListener listener) {
+            this.deckFile = deckFile.getAbsoluteFile();
+            this.snapshot = snapshot;
+            this.previous = previous;
+            this.journal = journal;
+            this.listeners.add(listener);
+        }
+    }
+}
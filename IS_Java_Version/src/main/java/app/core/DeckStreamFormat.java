@@ -0,0 +1,309 @@
+package app.core;
+
+import app.model.Card;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.*;
+
+/**
+ * The compressed, streaming variant of the {@link DeckFormat}, written as its version 3. The deck is encoded in a single pass as a stream
+ * of tokens against an item name dictionary that is built as the stream goes, so neither the writer nor the reader has to see the whole
+ * deck first. The token stream may in turn be deflated.
+ * <br><br>
+ * <b>Layout</b>
+ * <pre>
+ * header  the 16 byte {@link DeckFormat} header, with the flags in place of the record width and the card count as an upper bound
+ * tokens  unsigned LEB128 varints, the low 2 bits of which are the token type and the rest its argument
+ *         0 EMPTY_RUN n  n {@link Card#EMPTY} cards. n = 0 marks the end of the tokens.
+ *         1 REFERENCE i  the card of dictionary entry i
+ *         2 NEW_NAME     the card of a new dictionary entry, followed by (unsigned byte length, UTF-8 bytes of the item name)
+ *         3 REPEAT n     the previous card, which is not empty, n more times
+ * trailer int card count, int CRC32 of the tokens up to and including the end mark
+ * </pre>
+ * If {@link #FLAG_DEFLATE} is set, everything after the header is a zlib stream. Unlike the block structured version 2, a corrupted stream
+ * can't be partially recovered, since every token depends on the dictionary built before it, so the whole load fails.
+ *
+ * @author Triston Scallan
+ * @see FileController.Compression
+ */
+@ParametersAreNonnullByDefault
+final class DeckStreamFormat {
+    static final         int    FLAG_DEFLATE = 1;
+    private static final Logger LOGGER       = LogManager.getLogger(DeckStreamFormat.class);
+    private static final int    EMPTY_RUN    = 0;
+    private static final int    REFERENCE    = 1;
+    private static final int    NEW_NAME     = 2;
+    private static final int    REPEAT       = 3;
+    private static final int    MAX_ARGUMENT = (1 << 30) - 1;
+    private static final int    BUFFER_SIZE  = 1 << 16;
+
+    private DeckStreamFormat() {
+    }
+
+    //****************************** WRITE **************************************/
+
+    /**
+     * Writes the deck to the stream in a single pass. Null cards are skipped.
+     *
+     * @param deck
+     *         the deck to write
+     * @param sizeHint
+     *         the expected number of cards, which the reader uses to size its list. the deck may not hold more than this.
+     * @param out
+     *         the stream to write to. it is flushed, but not closed.
+     * @param deflate
+     *         true to deflate the tokens, trading throughput for a smaller file
+     * @throws IOException
+     *         if the stream fails to write
+     */
+    static void write(Iterable<Card> deck, int sizeHint, OutputStream out, boolean deflate) throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(DeckFormat.MAGIC);
+        header.writeShort(DeckFormat.VERSION_3);
+        header.writeByte(deflate ? FLAG_DEFLATE : 0);
+        header.writeByte(0);
+        header.writeInt(sizeHint);
+        header.writeInt(0);
+        header.flush();
+
+        Deflater             deflater   = deflate ? new Deflater(Deflater.BEST_SPEED) : null;
+        OutputStream         body       = deflate ? new DeflaterOutputStream(out, deflater, BUFFER_SIZE) : out;
+        TokenWriter          tokens     = new TokenWriter(body);
+        Map<String, Integer> dictionary = new HashMap<>();
+        int                  numCards   = 0;
+        int                  emptyRun   = 0;
+        int                  repeats    = 0;
+        String               previous   = null;
+        try {
+            for (Card card : deck) {
+                if (card == null) continue;
+                numCards++;
+                if (!card.isInUse()) {
+                    if (repeats > 0) tokens.writeRun(REPEAT, repeats);
+                    repeats = 0;
+                    previous = null;
+                    emptyRun++;
+                    continue;
+                }
+                if (emptyRun > 0) tokens.writeRun(EMPTY_RUN, emptyRun);
+                emptyRun = 0;
+                String item = card.getItem();
+                if (item.equals(previous)) {
+                    repeats++;
+                    continue;
+                }
+                if (repeats > 0) tokens.writeRun(REPEAT, repeats);
+                repeats = 0;
+                previous = item;
+
+                Integer index = dictionary.get(item);
+                if (index != null) {
+                    tokens.writeToken(REFERENCE, index);
+                } else {
+                    dictionary.put(item, dictionary.size());
+                    tokens.writeToken(NEW_NAME, 0);
+                    tokens.writeName(item.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            if (emptyRun > 0) tokens.writeRun(EMPTY_RUN, emptyRun);
+            if (repeats > 0) tokens.writeRun(REPEAT, repeats);
+            tokens.writeToken(EMPTY_RUN, 0);
+            tokens.finish(numCards);
+            if (body instanceof DeflaterOutputStream) ((DeflaterOutputStream) body).finish();
+            out.flush();
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+    }
+
+    /**
+     * Buffers the tokens, keeping a checksum of every byte written until {@link #finish(int)}.
+     */
+    private static final class TokenWriter {
+        private final OutputStream out;
+        private final byte[]       buffer   = new byte[BUFFER_SIZE];
+        private final CRC32        crc      = new CRC32();
+        private       int          position = 0;
+
+        TokenWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        /**
+         * Writes a run as as many tokens as it takes to fit its length into their arguments.
+         */
+        void writeRun(int type, int length) throws IOException {
+            for (; length > MAX_ARGUMENT; length -= MAX_ARGUMENT) writeToken(type, MAX_ARGUMENT);
+            writeToken(type, length);
+        }
+
+        void writeToken(int type, int argument) throws IOException {
+            if (position > buffer.length - 5) flush();
+            // shifted out unsigned, so the argument's full 30 bits survive
+            int value = (argument << 2) | type;
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeName(byte[] name) throws IOException {
+            if (position > buffer.length - 1 - name.length) flush();
+            buffer[position++] = (byte) name.length;
+            System.arraycopy(name, 0, buffer, position, name.length);
+            position += name.length;
+        }
+
+        void finish(int numCards) throws IOException {
+            flush();
+            DataOutputStream trailer = new DataOutputStream(out);
+            trailer.writeInt(numCards);
+            trailer.writeInt((int) crc.getValue());
+            trailer.flush();
+        }
+
+        private void flush() throws IOException {
+            crc.update(buffer, 0, position);
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    //****************************** READ ***************************************/
+
+    /**
+     * Reads the deck that follows a version 3 header.
+     *
+     * @param in
+     *         the stream positioned just after the header
+     * @param header
+     *         the header already read from the stream
+     * @return the deck read from the stream
+     *
+     * @throws IOException
+     *         if the stream fails to read, ends early, or fails its checksum
+     */
+    @Nonnull
+    static List<Card> read(InputStream in, DeckFormat.Header header) throws IOException {
+        boolean  deflate  = (header.flags & FLAG_DEFLATE) != 0;
+        Inflater inflater = deflate ? new Inflater() : null;
+        try {
+            TokenReader tokens     = new TokenReader(deflate ? new InflaterInputStream(in, inflater, BUFFER_SIZE) : in);
+            List<Card>  dictionary = new ArrayList<>();
+            List<Card>  deck       = new ArrayList<>(Math.min(header.numCards, 1 << 20));
+            Card        previous   = null;
+            byte[]      name       = new byte[255];
+            while (true) {
+                int token    = tokens.readVarint();
+                int argument = token >>> 2;
+                switch (token & 0b11) {
+                    case EMPTY_RUN:
+                        if (argument == 0) {
+                            tokens.checkTrailer(deck.size());
+                            return deck;
+                        }
+                        checkRun(deck, argument, header);
+                        for (int i = 0; i < argument; i++) deck.add(Card.EMPTY);
+                        previous = null;
+                        break;
+                    case REFERENCE:
+                        if (argument >= dictionary.size()) throw LOGGER.throwing(new IOException("deck token points outside the dictionary"));
+                        checkRun(deck, 1, header);
+                        previous = dictionary.get(argument);
+                        deck.add(previous);
+                        break;
+                    case NEW_NAME:
+                        checkRun(deck, 1, header);
+                        int length = tokens.readName(name);
+                        previous = DeckFormat.decodeName(name, length);
+                        dictionary.add(previous);
+                        deck.add(previous);
+                        break;
+                    default: // REPEAT
+                        if (previous == null) throw LOGGER.throwing(new IOException("deck token repeats a card that isn't there"));
+                        checkRun(deck, argument, header);
+                        for (int i = 0; i < argument; i++) deck.add(previous);
+                }
+            }
+        } finally {
+            if (inflater != null) inflater.end();
+        }
+    }
+
+    /**
+     * Checks a run of cards against the header's card count before it is added. A corrupted run length could otherwise add up to 2^30
+     * cards before the checksum at the end of the stream is checked.
+     *
+     * @throws IOException
+     *         if the run would give the deck more cards than its header says it holds
+     */
+    private static void checkRun(List<Card> deck, int run, DeckFormat.Header header) throws IOException {
+        if (run > header.numCards - deck.size()) throw LOGGER.throwing(new IOException("deck file holds more cards than its header says"));
+    }
+
+    /**
+     * Reads tokens through a buffer of its own, keeping a checksum of every byte consumed until the end mark.
+     */
+    private static final class TokenReader {
+        private final InputStream in;
+        private final byte[]      buffer   = new byte[BUFFER_SIZE];
+        private final CRC32       crc      = new CRC32();
+        private       int         position = 0;
+        private       int         limit    = 0;
+        /** the start of the bytes in the buffer yet to be added to the checksum */
+        private       int         checked  = 0;
+
+        TokenReader(InputStream in) {
+            this.in = in;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw LOGGER.throwing(new IOException("deck token is malformed"));
+        }
+
+        int readName(byte[] name) throws IOException {
+            int length = readByte();
+            for (int i = 0; i < length; i++) name[i] = (byte) readByte();
+            return length;
+        }
+
+        void checkTrailer(int numCards) throws IOException {
+            crc.update(buffer, checked, position - checked);
+            checked = -1;
+            int expectedCards = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+            int expectedCrc   = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+            if (expectedCards != numCards || expectedCrc != (int) crc.getValue())
+                throw LOGGER.throwing(new IOException("deck file failed its checksum"));
+        }
+
+        private int readByte() throws IOException {
+            if (position == limit) {
+                if (checked >= 0) crc.update(buffer, checked, limit - checked);
+                limit = in.read(buffer, 0, buffer.length);
+                if (limit <= 0) {
+                    limit = 0;
+                    throw LOGGER.throwing(new EOFException("deck file ended before its end mark"));
+                }
+                position = 0;
+                if (checked >= 0) checked = 0;
+            }
+            return buffer[position++] & 0xFF;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package app.core;
+
+import app.model.Card;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Imports and exports decks as text files, for bringing in inventories kept outside the sylladex. A deck is one card per line, in one of
+ * two {@link Format formats}:
+ * <pre>
+ * CSV     a header line "item", then the item name in the first field of each line. other fields are ignored, and an empty first field is
+ *         an {@link Card#EMPTY} card. fields may be quoted, with quotes doubled inside, but a quoted field can't span lines.
+ * NDJSON  a JSON object per line, the card's item name under the key "item". an object with the item null or missing is an empty card,
+ *         and blank lines are skipped.
+ * </pre>
+ * An import is split into chunks of whole lines that are parsed into cards by worker threads, while the calling thread reads ahead. The
+ * chunks are put back together in order, so the imported deck is in the order of the file. An item name longer than {@link
+ * Card#MAX_ITEM_LENGTH} or a line that can't be parsed fails the whole import, naming the line.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+final class DeckTransfer {
+    /** the size of the chunks an import is parsed in */
+    static final         int    CHUNK_SIZE = 1 << 22;
+    private static final Logger LOGGER     = LogManager.getLogger(DeckTransfer.class);
+    private static final String ITEM_KEY   = "item";
+
+    private DeckTransfer() {
+    }
+
+    /**
+     * The text formats a deck can be imported from and exported to.
+     */
+    enum Format {
+        CSV, NDJSON;
+
+        /**
+         * @return the format of the file as told by its extension, {@link #CSV} unless the file is a ".ndjson" or ".jsonl" file
+         */
+        @Nonnull
+        static Format of(File file) {
+            String name = file.getName().toLowerCase();
+            return (name.endsWith(".ndjson") || name.endsWith(".jsonl")) ? NDJSON : CSV;
+        }
+    }
+
+    //****************************** EXPORT *************************************/
+
+    /**
+     * Writes the deck to the stream one card at a time. Null cards are skipped.
+     *
+     * @param deck
+     *         the deck to write
+     * @param format
+     *         the format to write in
+     * @param out
+     *         the stream to write to. it is flushed, but not closed.
+     * @throws IOException
+     *         if the stream fails to write
+     */
+    static void exportDeck(Iterable<Card> deck, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        if (format == Format.CSV) writer.write(ITEM_KEY + "\n");
+        for (Card card : deck) {
+            if (card == null) continue;
+            if (format == Format.CSV) {
+                if (card.isInUse()) writeCsvField(writer, card.getItem());
+            } else {
+                writer.write("{\"" + ITEM_KEY + "\":");
+                if (card.isInUse()) writeJsonString(writer, card.getItem());
+                else writer.write("null");
+                writer.write('}');
+            }
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    private static void writeCsvField(Writer writer, String field) throws IOException {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0) {
+            writer.write(field);
+        } else {
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static void writeJsonString(Writer writer, String string) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+    //****************************** IMPORT *************************************/
+
+    /**
+     * Reads a deck from a file in the format told by its extension, parsing it on the common fork join pool.
+     *
+     * @param source
+     *         the file to import
+     * @return the imported deck
+     *
+     * @throws IOException
+     *         if the file can't be read, or a line of it can't be parsed into a card
+     */
+    @Nonnull
+    static List<Card> importDeck(File source) throws IOException {
+        return importDeck(source, Format.of(source), CHUNK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Reads a deck from a file, parsing chunks of it in parallel. At most two chunks per worker are held in memory ahead of the chunk
+     * being put into the deck.
+     *
+     * @param source
+     *         the file to import
+     * @param format
+     *         the format of the file
+     * @param chunkSize
+     *         the size in bytes the file is read in. a chunk holds as many whole lines as fit, or a single line if it is longer.
+     * @param workers
+     *         parses the chunks
+     * @return the imported deck
+     *
+     * @throws IOException
+     *         if the file can't be read, or a line of it can't be parsed into a card
+     */
+    @Nonnull
+    static List<Card> importDeck(File source, Format format, int chunkSize, ExecutorService workers) throws IOException {
+        int                  maxInFlight = 2*Math.max(1, Runtime.getRuntime().availableProcessors());
+        Deque<Future<Chunk>> inFlight    = new ArrayDeque<>();
+        List<Card>           deck        = new ArrayList<>();
+        int[]                nextLine    = {1};
+        try (InputStream in = new FileInputStream(source)) {
+            byte[]  buffer = new byte[chunkSize];
+            int     filled = 0;
+            boolean first  = true;
+            while (true) {
+                int read = in.read(buffer, filled, buffer.length - filled);
+                if (read > 0) filled += read;
+                if (read >= 0 && filled < buffer.length) continue;
+
+                int end = (read < 0) ? filled : lastLineEnd(buffer, filled);
+                if (end == 0 && read >= 0) {
+                    // a single line fills the buffer, so it grows until the line fits
+                    buffer = Arrays.copyOf(buffer, buffer.length*2);
+                    continue;
+                }
+                if (end > 0) {
+                    // the chunk keeps the buffer, the remainder of the last line moves to a new one
+                    byte[] next = new byte[Math.max(chunkSize, filled - end)];
+                    System.arraycopy(buffer, end, next, 0, filled - end);
+                    inFlight.add(workers.submit(new ChunkParser(buffer, end, format, first)));
+                    buffer = next;
+                    filled -= end;
+                    first = false;
+                }
+                while (inFlight.size() >= maxInFlight || (read < 0 && !inFlight.isEmpty())) {
+                    append(source, inFlight, deck, nextLine);
+                }
+                if (read < 0) break;
+            }
+        } finally {
+            for (Future<Chunk> chunk : inFlight) chunk.cancel(true);
+        }
+        LOGGER.info("Imported " + deck.size() + " cards from " + source.getCanonicalPath());
+        return deck;
+    }
+
+    /**
+     * @return the index just past the last line feed in the buffer, or 0 if there is none
+     */
+    private static int lastLineEnd(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) if (buffer[i] == '\n') return i + 1;
+        return 0;
+    }
+
+    /**
+     * Waits for the oldest chunk and adds its cards to the deck.
+     */
+    private static void append(File source, Deque<Future<Chunk>> inFlight, List<Card> deck, int[] nextLine) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = inFlight.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while importing " + source.getName());
+        } catch (ExecutionException e) {
+            throw LOGGER.throwing(new IOException("could not import " + source.getName(), e.getCause()));
+        }
+        if (chunk.error != null) {
+            throw LOGGER.throwing(new IOException(source.getName() + " line " + (nextLine[0] + chunk.errorLine) + ": " + chunk.error));
+        }
+        deck.addAll(chunk.cards);
+        nextLine[0] += chunk.lines;
+    }
+
+    /**
+     * The cards parsed from a chunk, or the first error in it.
+     */
+    private static final class Chunk {
+        final List<Card> cards;
+        final int        lines;
+        /** the line of the error counted from the chunk's first line, which is 0 */
+        final int        errorLine;
+        @Nullable
+        final String     error;
+
+        Chunk(List<Card> cards, int lines, int errorLine, @Nullable String error) {
+            this.cards = cards;
+            this.lines = lines;
+            this.errorLine = errorLine;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Parses a chunk of whole lines into cards.
+     */
+    private static final class ChunkParser implements Callable<Chunk> {
+        private final byte[]  bytes;
+        private final int     length;
+        private final Format  format;
+        /** true if the chunk starts the file, and so starts with the CSV header */
+        private final boolean first;
+
+        ChunkParser(byte[] bytes, int length, Format format, boolean first) {
+            this.bytes = bytes;
+            this.length = length;
+            this.format = format;
+            this.first = first;
+        }
+
+        @Override
+        public Chunk call() {
+            List<Card> cards = new ArrayList<>(length/8);
+            int        line  = 0;
+            for (int start = 0; start < length; line++) {
+                int end = start;
+                while (end < length && bytes[end] != '\n') end++;
+                int next = end + 1;
+                if (end > start && bytes[end - 1] == '\r') end--;
+                try {
+                    if (format == Format.CSV) {
+                        String item = parseCsvLine(start, end);
+                        if (!(first && line == 0 && ITEM_KEY.equalsIgnoreCase(item))) cards.add(toCard(item));
+                    } else if (!isBlank(start, end)) {
+                        cards.add(toCard(new JsonLine(new String(bytes, start, end - start, StandardCharsets.UTF_8)).parseItem()));
+                    }
+                } catch (IllegalArgumentException e) {
+                    return new Chunk(cards, line, line, e.getMessage());
+                }
+                start = next;
+            }
+            return new Chunk(cards, line, 0, null);
+        }
+
+        /**
+         * @return the first field of the line, unquoted
+         */
+        @Nonnull
+        private String parseCsvLine(int start, int end) {
+            if (start == end || bytes[start] != '"') {
+                int comma = start;
+                while (comma < end && bytes[comma] != ',') comma++;
+                return new String(bytes, start, comma - start, StandardCharsets.UTF_8);
+            }
+            String        line  = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+            StringBuilder field = new StringBuilder();
+            for (int i = 1; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (i + 1 == line.length() || line.charAt(i + 1) == ',') {
+                    return field.toString();
+                } else {
+                    throw new IllegalArgumentException("unexpected text after a quoted field");
+                }
+            }
+            throw new IllegalArgumentException("quoted field is not closed");
+        }
+
+        private boolean isBlank(int start, int end) {
+            for (int i = start; i < end; i++) if (bytes[i] != ' ' && bytes[i] != '\t') return false;
+            return true;
+        }
+
+        @Nonnull
+        private static Card toCard(@Nullable String item) {
+            if (item == null || item.trim().isEmpty()) return Card.EMPTY;
+            if (item.trim().length() > Card.MAX_ITEM_LENGTH) {
+                throw new IllegalArgumentException("item \"" + item.trim() + "\" is longer than " + Card.MAX_ITEM_LENGTH + " characters");
+            }
+            return Card.of(item);
+        }
+    }
+
+    /**
+     * Reads the item of a JSON object on a single line, skipping over the object's other members.
+     */
+    private static final class JsonLine {
+        private final String line;
+        private       int    position = 0;
+
+        JsonLine(String line) {
+            this.line = line;
+        }
+
+        /**
+         * @return the object's item, or null if it is null or missing
+         *
+         * @throws IllegalArgumentException
+         *         if the line is not a single JSON object, or its item is neither a string nor null
+         */
+        @Nullable
+        String parseItem() {
+            String item = null;
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    String key = parseString();
+                    expect(':');
+                    if (ITEM_KEY.equals(key)) {
+                        if (peek() == '"') item = parseString();
+                        else if (line.startsWith("null", position)) position += 4;
+                        else throw new IllegalArgumentException("item must be a string or null");
+                    } else {
+                        skipValue();
+                    }
+                    char c = next();
+                    if (c == '}') break;
+                    if (c != ',') throw new IllegalArgumentException("expected ',' or '}' but found '" + c + "'");
+                }
+            }
+            if (peek() != 0) throw new IllegalArgumentException("unexpected text after the object");
+            return item;
+        }
+
+        /**
+         * @return the next character that isn't whitespace without consuming it, or 0 at the end of the line
+         */
+        private char peek() {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) position++;
+            return (position < line.length()) ? line.charAt(position) : 0;
+        }
+
+        private char next() {
+            char c = peek();
+            if (c == 0) throw new IllegalArgumentException("line ended inside a JSON object");
+            position++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            char c = next();
+            if (c != expected) throw new IllegalArgumentException("expected '" + expected + "' but found '" + c + "'");
+        }
+
+        @Nonnull
+        private String parseString() {
+            expect('"');
+            StringBuilder string = new StringBuilder();
+            while (position < line.length()) {
+                char c = line.charAt(position++);
+                if (c == '"') return string.toString();
+                if (c != '\\') {
+                    string.append(c);
+                    continue;
+                }
+                if (position >= line.length()) break;
+                char escaped = line.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        string.append('\b');
+                        break;
+                    case 'f':
+                        string.append('\f');
+                        break;
+                    case 'n':
+                        string.append('\n');
+                        break;
+                    case 'r':
+                        string.append('\r');
+                        break;
+                    case 't':
+                        string.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > line.length()) throw new IllegalArgumentException("unicode escape is cut short");
+                        try {
+                            string.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("unicode escape is malformed");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        string.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("string is not closed");
+        }
+
+        /**
+         * Skips a value of any type, counting brackets across nested objects and arrays.
+         */
+        private void skipValue() {
+            int depth = 0;
+            do {
+                char c = peek();
+                if (c == 0) throw new IllegalArgumentException("line ended inside a JSON value");
+                if (c == '"') {
+                    parseString();
+                    continue;
+                }
+                if (depth == 0 && (c == ',' || c == '}')) return;
+                if (c == '{' || c == '[') depth++;
+                else if (c == '}' || c == ']') depth--;
+                position++;
+            } while (depth > 0 || !isValueEnd(peek()));
+        }
+
+        private static boolean isValueEnd(char c) {
+            return c == ',' || c == '}' || c == 0;
+        }
+    }
+}
@@ -9,59 +9,151 @@ import org.apache.logging.log4j.Logger;
 import javax.annotation.Nonnull;
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 @ParametersAreNonnullByDefault
 class FileController {
-    private static final Logger      LOGGER            = LogManager.getLogger(FileController.class);
-    private static final String      DEFAULT_FILE_NAME = "sylladex_save_file";
-    private static final String      DEFAULT_FILE_EXT  = "deck";
-    private static final FileChooser fileChooser;
+    private static final    Logger      LOGGER            = LogManager.getLogger(FileController.class);
+    private static final    String      DEFAULT_FILE_NAME = "sylladex_save_file";
+    private static final    String      DEFAULT_FILE_EXT  = "deck";
+    /** binary deck files at least this large are memory mapped on load rather than read onto the heap. */
+    private static final    long        MAPPED_LOAD_MIN   = 1 << 20;
+    private static final    FileChooser fileChooser;
+    /** chooses the files decks are imported from and exported to, see {@link DeckTransfer} */
+    private static final    FileChooser transferChooser;
+    private static volatile Compression compression       = Compression.NONE;
 
     static {
         fileChooser = new FileChooser();
         fileChooser.setInitialDirectory(new File("").getAbsoluteFile());
         fileChooser.setInitialFileName(DEFAULT_FILE_NAME + "." + DEFAULT_FILE_EXT);
         fileChooser.setSelectedExtensionFilter(new FileChooser.ExtensionFilter("sylladex deck files", DEFAULT_FILE_EXT));
+
+        transferChooser = new FileChooser();
+        transferChooser.setInitialDirectory(new File("").getAbsoluteFile());
+        transferChooser.setInitialFileName(DEFAULT_FILE_NAME + ".csv");
+        transferChooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV files", "*.csv"),
+                                                     new FileChooser.ExtensionFilter("NDJSON files", "*.ndjson", "*.jsonl"));
     }
 
     /**
-     * Writes the deck out to a binary file. Will create a new file if it doesn't exist.
+     * Writes the deck out to a binary file in the compact {@link DeckFormat}, compressed as set by {@link #setCompression(Compression)}.
+     * Will create a new file if it doesn't exist.
      *
      * @param deck
      *         the deck to be written out
      * @param destination
      *         the local file to write to
+     * @return the file written to, which has the deck file extension even if the destination did not
+     *
      * @throws SecurityException
      *         thrown by {@link FileOutputStream}
      * @throws IOException
-     *         thrown by {@link ObjectOutputStream}
+     *         thrown by {@link DeckFormat#write(List, OutputStream)}
      */
-    static synchronized void writeDeckToFile(List<Card> deck, File destination) throws SecurityException, IOException {
-        // create a copy of the deck with no null references, this helps ensure deck doesn't mutate during write
-        List<Card> saveDeck = deck.stream().filter(Objects::nonNull).collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
-        File       saveFile;
-        // enforce file extension
-        if (destination.getName().endsWith("." + DEFAULT_FILE_EXT)) {
-            if (!destination.isFile() && !destination.createNewFile()) throw LOGGER.throwing(new IOException("could not create save file"));
-            saveFile = destination;
+    @Nonnull
+    static File writeDeckToFile(List<Card> deck, File destination) throws SecurityException, IOException {
+        return writeDeckToFile(deck, destination, compression);
+    }
+
+    /**
+     * Writes the deck out to a binary file in the compact {@link DeckFormat}. Will create a new file if it doesn't exist.
+     *
+     * @param deck
+     *         the deck to be written out
+     * @param destination
+     *         the local file to write to
+     * @param compression
+     *         how to compress the file
+     * @return the file written to, which has the deck file extension even if the destination did not
+     *
+     * @throws SecurityException
+     *         thrown by {@link FileOutputStream}
+     * @throws IOException
+     *         thrown by {@link DeckFormat#write(List, OutputStream)} or {@link DeckStreamFormat#write(Iterable, int, OutputStream,
+     *         boolean)}
+     */
+    @Nonnull
+    static synchronized File writeDeckToFile(List<Card> deck, File destination, Compression compression)
+            throws SecurityException, IOException {
+        File saveFile = resolveSaveFile(destination);
+        if (compression == Compression.NONE) {
+            // create a copy of the deck with no null references, this helps ensure deck doesn't mutate during write
+            List<Card> saveDeck = deck.stream().filter(Objects::nonNull).collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+            replaceFile(saveFile, out -> DeckFormat.write(saveDeck, out));
         } else {
-            saveFile = new File(destination.getPath().replaceFirst("\\.[^.]+$", "") + "." + DEFAULT_FILE_EXT);
-            if (saveFile.exists() && !saveFile.isFile())
-                throw LOGGER.throwing(new IOException(saveFile.getName() + " exists, but is not a valid file."));
+            // streamed straight from the deck in one pass, so the deck must not change until the write is done
+            replaceFile(saveFile, out -> DeckStreamFormat.write(deck, deck.size(), out, compression == Compression.DICTIONARY_DEFLATE));
         }
+        LOGGER.info("Saved deck to location: " + saveFile.getCanonicalPath());
+        return saveFile;
+    }
+
+    /**
+     * @return how decks are compressed by {@link #writeDeckToFile(List, File)}
+     */
+    @Nonnull
+    static Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Sets how decks are compressed by {@link #writeDeckToFile(List, File)}. Loading detects the compression of each file by itself.
+     */
+    static void setCompression(Compression compression) {
+        FileController.compression = compression;
+    }
+
+    /**
+     * Writes the deck out to a file using java serialization of each card, the format used before {@link DeckFormat}. Kept so that
+     * the two formats can be compared and so older builds can be handed a file they understand.
+     *
+     * @param deck
+     *         the deck to be written out
+     * @param destination
+     *         the local file to write to
+     * @throws SecurityException
+     *         thrown by {@link FileOutputStream}
+     * @throws IOException
+     *         thrown by {@link ObjectOutputStream}
+     */
+    static synchronized void writeLegacyDeckToFile(List<Card> deck, File destination) throws SecurityException, IOException {
+        List<Card> saveDeck = deck.stream().filter(Objects::nonNull).collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        File       saveFile = resolveSaveFile(destination);
 
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(saveFile))) {
+        replaceFile(saveFile, out -> {
+            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(out));
             //write deck size to the front of the file,
             oos.writeInt(saveDeck.size());
-            for (Card card : deck) {
+            for (Card card : saveDeck) {
                 oos.writeObject(card);
             }
             //finally write a null to mark the end of the file.
             oos.writeByte((byte) '\0');
             oos.flush();
-        }
-        LOGGER.info("Saved deck to location: " + saveFile.getCanonicalPath());
+        });
+        LOGGER.info("Saved legacy deck to location: " + saveFile.getCanonicalPath());
+    }
+
+    /**
+     * Replaces the contents of a file as a whole, so that a crash leaves either the previous or the new contents.
+     *
+     * @param destination
+     *         the local file to write to
+     * @param writer
+     *         writes the new contents of the file to the given stream
+     * @throws SecurityException
+     *         thrown by {@link FileOutputStream}
+     * @throws IOException
+     *         if the contents could not be written or moved into place
+     */
+    static void writeFile(File destination, ContentWriter writer) throws SecurityException, IOException {
+        replaceFile(destination, writer);
     }
 
     static Optional<File> selectFileSave(Window window) {
@@ -72,8 +164,17 @@ class FileController {
         return Optional.ofNullable(fileChooser.showOpenDialog(window));
     }
 
+    static Optional<File> selectFileImport(Window window) {
+        return Optional.ofNullable(transferChooser.showOpenDialog(window));
+    }
+
+    static Optional<File> selectFileExport(Window window) {
+        return Optional.ofNullable(transferChooser.showSaveDialog(window));
+    }
+
     /**
-     * Loads a binary file to extract a List of Card from.
+     * Loads a binary file to extract a List of Card from. The format of the file is detected from its leading bytes, so both
+     * {@link DeckFormat} files and legacy serialized deck files can be loaded.
      *
      * @param destination
      *         the local file to read from
@@ -84,19 +185,20 @@ class FileController {
      * @throws ClassCastException
      *         thrown if the found class in file isn't {@link Card}
      * @throws IOException
-     *         thrown by {@link ObjectInputStream}
+     *         thrown by {@link DeckFormat#read(InputStream)} or {@link ObjectInputStream}
      */
     @Nonnull
     static List<Card> loadDeckFromFile(File destination) throws ClassNotFoundException, ClassCastException, IOException {
         List<Card> deck = new ArrayList<>();
 
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(destination))) {
-            int numOfCards = ois.readInt();
-            for (int i = 0; i < numOfCards; i++) {
-                Object o = ois.readObject();
-                deck.add((Card) o);
-            }
-        } catch (EOFException ignore) {
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(destination))) {
+            in.mark(4);
+            int magic = new DataInputStream(in).readInt();
+            in.reset();
+            deck = DeckFormat.isBinaryDeck(magic) ? DeckFormat.read(in) : loadLegacyDeck(in);
+        } catch (EOFException e) {
+            if (destination.length() >= Integer.BYTES) throw e;
+            // a file too short to hold a header is an empty deck, as it was before the binary format existed
         } catch (FileNotFoundException e) {
             LOGGER.error("sylladex load failed - ERROR: file not found at " + destination.getCanonicalPath(), e);
             throw e;
@@ -104,4 +206,157 @@ class FileController {
         LOGGER.info("Loaded deck from location: " + destination.getCanonicalPath());
         return deck;
     }
+
+    /**
+     * Maps a binary deck file into memory and returns a read-only view of its deck. Cards are decoded as they are accessed, so the deck
+     * is never fully loaded onto the heap.
+     *
+     * @param destination
+     *         the local binary deck file to map
+     * @return a read-only, lazily decoded view of the deck in the file
+     *
+     * @throws IOException
+     *         if the file can't be mapped or isn't a complete binary deck file
+     * @see MappedDeck
+     */
+    @Nonnull
+    static List<Card> mapDeckFromFile(File destination) throws IOException {
+        List<Card> deck = MappedDeck.map(destination);
+        LOGGER.info("Mapped deck of " + deck.size() + " cards from location: " + destination.getCanonicalPath());
+        return deck;
+    }
+
+    /**
+     * Checks whether a file is a binary deck file large enough that {@link #mapDeckFromFile(File)} should be preferred over {@link
+     * #loadDeckFromFile(File)}.
+     *
+     * @param destination
+     *         the local file to check
+     * @return true if the file should be memory mapped when loaded
+     *
+     * @throws IOException
+     *         if the file can't be read
+     */
+    static boolean shouldMapDeck(File destination) throws IOException {
+        if (destination.length() < MAPPED_LOAD_MIN) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(destination))) {
+            return DeckFormat.isBinaryDeck(in.readInt()) && DeckFormat.isMappable(in.readShort());
+        }
+    }
+
+    /**
+     * Reads a deck written by {@link #writeLegacyDeckToFile(List, File)}. Empty cards are swapped for {@link Card#EMPTY} so that modi
+     * comparing against it by reference treat them as free slots.
+     */
+    @Nonnull
+    private static List<Card> loadLegacyDeck(InputStream in) throws ClassNotFoundException, ClassCastException, IOException {
+        List<Card> deck = new ArrayList<>();
+        try (ObjectInputStream ois = new ObjectInputStream(in)) {
+            int numOfCards = ois.readInt();
+            for (int i = 0; i < numOfCards; i++) {
+                // a card resolves itself to a shared card of its item, or to Card.EMPTY, as it is read
+                deck.add((Card) ois.readObject());
+            }
+        } catch (EOFException ignore) {
+        }
+        return deck;
+    }
+
+    /**
+     * Writes a file's new contents beside it, syncs them to the disk and then moves them over the file, so that a crash leaves either the
+     * previous or the new contents and never a mix. A {@link MappedDeck} of the previous file keeps reading the previous contents, where
+     * truncating the file in place would pull the pages out from under it.
+     *
+     * @param saveFile
+     *         the file to replace
+     * @param writer
+     *         writes the new contents to the given stream, which is closed afterwards
+     * @throws IOException
+     *         if the contents could not be written or moved into place
+     */
+    private static void replaceFile(File saveFile, ContentWriter writer) throws IOException {
+        File tempFile = File.createTempFile(saveFile.getName(), ".tmp", saveFile.getAbsoluteFile().getParentFile());
+        try {
+            try (FileOutputStream out = new FileOutputStream(tempFile)) {
+                writer.write(out);
+                out.getChannel().force(true);
+            }
+            try {
+                Files.move(tempFile.toPath(), saveFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AccessDeniedException e) {
+                // windows won't replace a file that is still mapped. a mapped deck is detached from its file before the file is replaced,
+                // but the mapping itself is only released once it's collected
+                LOGGER.debug("Could not replace " + saveFile + ", retrying once its old mappings are collected.", e);
+                System.gc();
+                Files.move(tempFile.toPath(), saveFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            syncDirectory(saveFile.getAbsoluteFile().getParentFile());
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * Syncs a directory so that a rename within it survives a crash. Not every platform can open a directory for this, in which case the
+     * rename is left to the file system's own ordering.
+     */
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            LOGGER.debug("Could not sync directory " + directory, e);
+        }
+    }
+
+    /**
+     * Resolves the file a deck should be written to, enforcing the deck file extension.
+     *
+     * @param destination
+     *         the file selected by the user
+     * @return the file to write to
+     *
+     * @throws IOException
+     *         if the file could not be created or exists but is not a normal file
+     */
+    @Nonnull
+    private static File resolveSaveFile(File destination) throws IOException {
+        File saveFile = deckFileOf(destination);
+        if (saveFile == destination) {
+            if (!destination.isFile() && !destination.createNewFile()) throw LOGGER.throwing(new IOException("could not create save file"));
+        } else if (saveFile.exists() && !saveFile.isFile()) {
+            throw LOGGER.throwing(new IOException(saveFile.getName() + " exists, but is not a valid file."));
+        }
+        return saveFile;
+    }
+
+    /**
+     * Names the file {@link #writeDeckToFile(List, File)} will write to for a destination, without touching the file system.
+     *
+     * @param destination
+     *         the file selected by the user
+     * @return the destination itself if it has the deck file extension, otherwise the destination with its extension replaced
+     */
+    @Nonnull
+    static File deckFileOf(File destination) {
+        // enforce file extension
+        if (destination.getName().endsWith("." + DEFAULT_FILE_EXT)) return destination;
+        return new File(destination.getPath().replaceFirst("\\.[^.]+$", "") + "." + DEFAULT_FILE_EXT);
+    }
+
+    /**
+     * How deck files are compressed when written.
+     */
+    enum Compression {
+        /** the block structured {@link DeckFormat}, which can be memory mapped and partially recovered */
+        NONE,
+        /** the {@link DeckStreamFormat}, which shrinks repeated item names and runs of empty cards */
+        DICTIONARY,
+        /** the {@link DeckStreamFormat}, deflated on top */
+        DICTIONARY_DEFLATE
+    }
+
+    @FunctionalInterface
+    interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
 }
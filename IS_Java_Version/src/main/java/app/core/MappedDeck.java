@@ -0,0 +1,201 @@
+package app.core;
+
+import app.model.Card;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import java.util.zip.CRC32;
+
+/**
+ * A read-only deck view over a memory mapped {@link DeckFormat} file. Only the headers and the offsets of the string tables are read when
+ * the view is created; a card's record is decoded when the card is accessed, and each item name is decoded at most once.
+ * <br><br>
+ * The records are fixed-width, so {@link #get(int)} is a constant time lookup within a block and streaming the view does not hold the deck
+ * on the heap. The checksum of every block of a version 2 file is verified when the view is created, and a corrupted block is left out of
+ * the view as it would be left out of a loaded deck.
+ *
+ * @author Triston Scallan
+ * @see FileController#mapDeckFromFile(File)
+ */
+@ParametersAreNonnullByDefault
+final class MappedDeck extends AbstractList<Card> implements RandomAccess {
+    private static final Logger     LOGGER = LogManager.getLogger(MappedDeck.class);
+    private final        ByteBuffer buffer;
+    private final        int        recordWidth;
+    private final        int        numCards;
+    /** the index in this view of each block's first card */
+    private final        int[]      blockStarts;
+    /** absolute position of each block's first record */
+    private final        int[]      recordOffsets;
+    /** absolute position of each block's string table entries' length bytes */
+    private final        int[][]    nameOffsets;
+    /** the card of each block's string table entries, filled in on first access */
+    private final        Card[][]   decodedNames;
+
+    private MappedDeck(ByteBuffer buffer, int recordWidth, int[] blockStarts, int[] recordOffsets, int[][] nameOffsets, int numCards) {
+        this.buffer = buffer;
+        this.recordWidth = recordWidth;
+        this.blockStarts = blockStarts;
+        this.recordOffsets = recordOffsets;
+        this.nameOffsets = nameOffsets;
+        this.decodedNames = new Card[nameOffsets.length][];
+        for (int i = 0; i < nameOffsets.length; i++) decodedNames[i] = new Card[nameOffsets[i].length];
+        this.numCards = numCards;
+    }
+
+    /**
+     * Maps the file and checks that its headers, string tables and records are all within the file.
+     *
+     * @param source
+     *         a binary deck file
+     * @return a lazily decoded view of the deck
+     *
+     * @throws IOException
+     *         if the file could not be mapped, is too large to map, or is not a complete binary deck file
+     */
+    @Nonnull
+    static MappedDeck map(File source) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw LOGGER.throwing(new IOException("deck file is too large to map: " + source));
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        DeckFormat.Header header = DeckFormat.readHeader(buffer);
+        return (header.version == DeckFormat.VERSION_1) ? mapVersion1(buffer, header) : mapBlocks(buffer, header);
+    }
+
+    @Nonnull
+    private static MappedDeck mapVersion1(ByteBuffer buffer, DeckFormat.Header header) throws IOException {
+        if (header.numNames > buffer.remaining()) throw LOGGER.throwing(new IOException("deck file string table is truncated"));
+        int[] nameOffsets = new int[header.numNames];
+        int   position    = buffer.position();
+        for (int i = 0; i < header.numNames; i++) {
+            if (position >= buffer.limit()) throw LOGGER.throwing(new IOException("deck file string table is truncated"));
+            nameOffsets[i] = position;
+            position += 1 + (buffer.get(position) & 0xFF);
+        }
+        if ((long) position + (long) header.numCards*header.recordWidth > buffer.limit())
+            throw LOGGER.throwing(new IOException("deck file records are truncated"));
+        return new MappedDeck(buffer, header.recordWidth, new int[]{0}, new int[]{position}, new int[][]{nameOffsets}, header.numCards);
+    }
+
+    @Nonnull
+    private static MappedDeck mapBlocks(ByteBuffer buffer, DeckFormat.Header header) throws IOException {
+        if ((long) header.numBlocks*DeckFormat.BLOCK_HEADER_SIZE > buffer.remaining())
+            throw LOGGER.throwing(new IOException("deck file blocks are truncated"));
+        int[]   blockStarts   = new int[header.numBlocks];
+        int[]   recordOffsets = new int[header.numBlocks];
+        int[][] nameOffsets   = new int[header.numBlocks][];
+        int     kept          = 0;
+        int     numCards      = 0;
+        int     droppedCards  = 0;
+        int     position      = buffer.position();
+        CRC32   crc           = new CRC32();
+
+        for (int block = 0; block < header.numBlocks; block++) {
+            if (buffer.limit() - position < DeckFormat.BLOCK_HEADER_SIZE)
+                throw LOGGER.throwing(new IOException("deck file blocks are truncated"));
+            int blockCards  = buffer.getInt(position);
+            int blockNames  = buffer.getInt(position + 4);
+            int payloadSize = buffer.getInt(position + 8);
+            int checksum    = buffer.getInt(position + 12);
+            if (!DeckFormat.isPlausibleBlock(blockCards, blockNames, payloadSize, header.blockSize))
+                throw LOGGER.throwing(new IOException("deck file block " + block + " is corrupted past recovery"));
+            int payloadStart = position + DeckFormat.BLOCK_HEADER_SIZE;
+            if (buffer.limit() - payloadStart < payloadSize) throw LOGGER.throwing(new IOException("deck file blocks are truncated"));
+
+            ByteBuffer checked = buffer.duplicate();
+            checked.limit(position + 12).position(position);
+            crc.reset();
+            crc.update(checked);
+            checked.limit(payloadStart + payloadSize).position(payloadStart);
+            crc.update(checked);
+            int[] offsets = null;
+            if ((int) crc.getValue() == checksum) offsets = nameOffsetsOf(buffer, payloadStart, payloadSize, blockCards, blockNames);
+            if (offsets == null) {
+                droppedCards += blockCards;
+            } else if (blockCards > 0) {
+                blockStarts[kept] = numCards;
+                recordOffsets[kept] = payloadStart + payloadSize - blockCards*2;
+                nameOffsets[kept] = offsets;
+                kept++;
+                numCards += blockCards;
+            }
+            position = payloadStart + payloadSize;
+        }
+        if (droppedCards > 0) LOGGER.warn("Left " + droppedCards + " cards of corrupted deck file blocks out of the mapped deck.");
+        return new MappedDeck(buffer, 2, Arrays.copyOf(blockStarts, kept), Arrays.copyOf(recordOffsets, kept),
+                              Arrays.copyOf(nameOffsets, kept), numCards);
+    }
+
+    /**
+     * Finds the string table entries of a block whose checksum has passed.
+     *
+     * @return the absolute position of each entry, or null if the entries and records don't fill the payload exactly
+     */
+    private static int[] nameOffsetsOf(ByteBuffer buffer, int payloadStart, int payloadSize, int blockCards, int blockNames) {
+        int[] offsets    = new int[blockNames];
+        int   position   = payloadStart;
+        int   recordsEnd = payloadStart + payloadSize - blockCards*2;
+        for (int i = 0; i < blockNames; i++) {
+            if (position >= recordsEnd) return null;
+            offsets[i] = position;
+            position += 1 + (buffer.get(position) & 0xFF);
+        }
+        return (position == recordsEnd) ? offsets : null;
+    }
+
+    /**
+     * Decodes the card at the index.
+     *
+     * @throws UncheckedIOException
+     *         if the record or its item name is corrupted
+     */
+    @Override
+    public Card get(int index) {
+        if (index < 0 || index >= numCards) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + numCards);
+        int block = Arrays.binarySearch(blockStarts, index);
+        if (block < 0) block = -block - 2;
+
+        int nameIndex = DeckFormat.readRecord(buffer, recordOffsets[block] + (index - blockStarts[block])*recordWidth, recordWidth);
+        if (DeckFormat.isEmptyMark(nameIndex, recordWidth)) return Card.EMPTY;
+        Card[] names = decodedNames[block];
+        if (nameIndex < 0 || nameIndex >= names.length)
+            throw LOGGER.throwing(new UncheckedIOException(new IOException("deck record points outside the string table")));
+
+        Card card = names[nameIndex];
+        if (card == null) {
+            // racing threads may both decode the same name, which is harmless as the cards are equivalent and immutable
+            card = decodeName(nameOffsets[block][nameIndex]);
+            names[nameIndex] = card;
+        }
+        return card;
+    }
+
+    @Override
+    public int size() {
+        return numCards;
+    }
+
+    @Nonnull
+    private Card decodeName(int offset) {
+        int    length = buffer.get(offset) & 0xFF;
+        byte[] bytes  = new byte[length];
+        for (int i = 0; i < length; i++) bytes[i] = buffer.get(offset + 1 + i);
+        return DeckFormat.decodeName(bytes, length);
+    }
+}
@@ -3,9 +3,11 @@ package app.core;
 import app.model.Card;
 import app.model.Metadata;
 import app.model.ModusBuffer;
+import app.model.OpenHand;
+import app.model.SnapshotReader;
+import app.model.SnapshotWriter;
 import app.modus.Modus;
 import app.util.*;
-import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -15,6 +17,9 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -45,7 +50,11 @@ class ModusContainer {
     private final        StringProperty                  modusInput;
     /** Tracks all available Fetch Modi for the Sylladex */
     private final        List<Class<? extends Modus>>    modusClassList;
+    /** coalesces the redraws asked for by resizes of the display and by modus commands */
+    private final        RedrawScheduler                 redrawScheduler;
     private              ModusBuffer                     modusBuffer;
+    /** whether the display was resized since it was last drawn in full, so the pending redraw has to draw all of it */
+    private              boolean                         resized      = false;
 
     /**
      * Constructor
@@ -60,18 +69,19 @@ class ModusContainer {
      *         the property for the current text input
      * @param deckProperty
      *         the property for the master deck
-     * @param openHandProperty
-     *         the property for the open hand
+     * @param openHand
+     *         the open hand
      */
     ModusContainer(ReadOnlyObjectProperty<Consumer<ChangeListener<String>>> submittedInputSubscriberProperty,
                    ReadOnlyObjectProperty<? extends Pane> displayProperty,
                    ReadOnlyObjectProperty<? extends TextInputControl> outputProperty,
                    ReadOnlyObjectProperty<? extends TextInputControl> inputProperty,
                    ListProperty<Card> deckProperty,
-                   ListProperty<String> openHandProperty) {
+                   OpenHand openHand) {
         this.modusInput = new SimpleStringProperty(this, "modus_input", "");
-        this.modusBuffer = new ModusBuffer(modusInput, displayProperty, outputProperty, deckProperty, openHandProperty);
+        this.modusBuffer = new ModusBuffer(modusInput, displayProperty, outputProperty, deckProperty, openHand);
         this.currentModusMetadata = new ReadOnlyObjectWrapper<>(this, "current_modus_metadata", null);
+        this.redrawScheduler = new RedrawScheduler(this::drawPending);
 
         modusClassList = ModusLocator.getModiAsClassList();
         LOGGER.info("ClassListing: complete.");
@@ -80,14 +90,8 @@ class ModusContainer {
         }
         try {
             currentModusMetadata.addListener((bean, oldV, newV) -> inputProperty.getValue().setDisable(newV == null));
-            displayProperty.getValue().widthProperty().addListener((bean, oldV, newV) -> {
-                if (this.getCurrentModusMetadata() != null) {
-                    Platform.runLater(this::requestDrawToDisplay);
-                }
-            });
-            displayProperty.getValue().heightProperty().addListener((bean, oldV, newV) -> {
-                if (this.getCurrentModusMetadata() != null) Platform.runLater(this::requestDrawToDisplay);
-            });
+            displayProperty.getValue().widthProperty().addListener((bean, oldV, newV) -> requestResizeRedraw());
+            displayProperty.getValue().heightProperty().addListener((bean, oldV, newV) -> requestResizeRedraw());
             submittedInputSubscriberProperty.getValue().accept(this::handleModusInput);
         } catch (RuntimeException e) {
             LOGGER.catching(e);
@@ -173,6 +177,8 @@ class ModusContainer {
                 execModusCmd(command);
             }
         }
+        // the slots the command changed are drawn on the next pulse, along with those of any other command before it
+        redrawScheduler.requestRedraw();
         // reset modus input to a 'no input' state.
         modusInput.setValue("");
         LOGGER.traceExit();
@@ -210,6 +216,28 @@ class ModusContainer {
         }
     }
 
+    private void requestResizeRedraw() {
+        if (getCurrentModusMetadata() == null) return;
+        resized = true;
+        redrawScheduler.requestResizeRedraw(System.nanoTime());
+    }
+
+    /**
+     * Runs the redraw the scheduler held back: all of the display if it was resized, otherwise only the slots the current modus reported
+     * as changed by the commands since the last redraw, if it reported any.
+     *
+     * @see Modus#drawSlotsToDisplay(ModusBuffer, BitSet)
+     */
+    private void drawPending() {
+        if (getCurrentModusMetadata() == null) return;
+        if (resized) {
+            requestDrawToDisplay();
+            return;
+        }
+        BitSet slots = modusBuffer.takeDirtySlots();
+        if (!slots.isEmpty()) getCurrentModusMetadata().REFERENCE.drawSlotsToDisplay(modusBuffer, slots);
+    }
+
     void requestSave() throws RequestException {
         if (getCurrentModusMetadata() == null) throw new RequestException("No modus selected");
         getCurrentModusMetadata().REFERENCE.save(modusBuffer);
@@ -220,7 +248,74 @@ class ModusContainer {
         getCurrentModusMetadata().REFERENCE.load(modusBuffer);
     }
 
+    /**
+     * Loads the current modus from the deck without asking the user anything, for a deck the modus saved itself.
+     *
+     * @see Modus#resume(ModusBuffer)
+     */
+    void requestResume() throws RequestException {
+        if (getCurrentModusMetadata() == null) throw new RequestException("No modus selected");
+        getCurrentModusMetadata().REFERENCE.resume(modusBuffer);
+    }
+
+    /**
+     * Takes a snapshot of the current modus' exact layout.
+     *
+     * @return the snapshot, or null if the modus doesn't take snapshots or failed to
+     */
+    @CheckForNull
+    byte[] requestSnapshot() throws RequestException {
+        if (getCurrentModusMetadata() == null) throw new RequestException("No modus selected");
+        Modus modus = getCurrentModusMetadata().REFERENCE;
+        if (!modus.supportsSnapshot()) return null;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            SnapshotWriter out = new SnapshotWriter(bytes);
+            modus.writeSnapshot(out);
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Modus " + getCurrentModusMetadata().NAME + " failed to take a snapshot.", e);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the current modus' layout from a snapshot taken by {@link #requestSnapshot()} of the same modus class.
+     *
+     * @param snapshot
+     *         the snapshot to restore
+     * @return true if the snapshot was restored, false if the modus doesn't take snapshots or the snapshot is corrupted
+     */
+    boolean requestRestoreSnapshot(byte[] snapshot) throws RequestException {
+        if (getCurrentModusMetadata() == null) throw new RequestException("No modus selected");
+        Modus modus = getCurrentModusMetadata().REFERENCE;
+        if (!modus.supportsSnapshot()) return false;
+        try {
+            modus.readSnapshot(new SnapshotReader(new ByteArrayInputStream(snapshot)));
+            return true;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Modus " + getCurrentModusMetadata().NAME + " failed to restore its snapshot.", e);
+            return false;
+        }
+    }
+
+    /**
+     * @return the current modus' inventory as a deck, or null if the modus can't convert it
+     */
+    @CheckForNull
+    List<Card> requestToDeck() throws RequestException {
+        if (getCurrentModusMetadata() == null) throw new RequestException("No modus selected");
+        return getCurrentModusMetadata().REFERENCE.toDeck();
+    }
+
+    /**
+     * Redraws the display now, which also takes care of any redraw the display's resizes or the modus' commands still had pending.
+     */
     void requestDrawToDisplay() {
+        redrawScheduler.markDrawn();
+        resized = false;
+        modusBuffer.takeDirtySlots();
         if (getCurrentModusMetadata() == null) {
             LOGGER.error("No modus selected, unable to request a draw to display.");
         } else {
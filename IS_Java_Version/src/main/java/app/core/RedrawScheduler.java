@@ -0,0 +1,160 @@
+package app.core;
+
+import javafx.animation.AnimationTimer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces requests to redraw the modus display into at most one redraw per JavaFX pulse. A request only marks the display dirty; the
+ * redraw runs on the next pulse, however many requests came in before it. Dragging the edge of the window changes the display's width
+ * and height on nearly every mouse event, so a redraw per change would queue up far more full redraws than the screen can show.
+ * <br><br>
+ * Resizes are debounced on top of that: a redraw requested by a resize waits until the display has stopped changing size for
+ * {@link #RESIZE_QUIET_MS}, though never longer than {@link #RESIZE_MAX_WAIT_MS} after the first resize, so that the display still
+ * follows a long drag.
+ * <br><br>
+ * Every request that didn't get a redraw of its own is counted as skipped, and the count is logged at debug level with each redraw. The
+ * scheduler only listens to pulses while a redraw is pending. It is meant for the JavaFX thread, like the display.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+final class RedrawScheduler {
+    /** how long the display has to keep its size before a resize redraws it */
+    static final         long     RESIZE_QUIET_MS    = 50;
+    /** the longest a resize waits for its redraw while the display keeps changing size */
+    static final         long     RESIZE_MAX_WAIT_MS = 250;
+    private static final Logger   LOGGER             = LogManager.getLogger(RedrawScheduler.class);
+    private static final long     RESIZE_QUIET_NS    = TimeUnit.MILLISECONDS.toNanos(RESIZE_QUIET_MS);
+    private static final long     RESIZE_MAX_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(RESIZE_MAX_WAIT_MS);
+    private final        Runnable redraw;
+    private final        Runnable startPulses;
+    private final        Runnable stopPulses;
+
+    private boolean dirty        = false;
+    private boolean resizing     = false;
+    /** when the pending resize started and when the display last changed size, in the pulse's nanoseconds */
+    private long    resizeStart  = 0;
+    private long    lastResize   = 0;
+    /** requests since the last redraw */
+    private int     batch        = 0;
+    private long    requestCount = 0;
+    private long    redrawCount  = 0;
+
+    /**
+     * @param redraw
+     *         redraws the display, run on a pulse of the JavaFX thread
+     */
+    RedrawScheduler(Runnable redraw) {
+        AnimationTimer timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pulse(now);
+            }
+        };
+        this.redraw = redraw;
+        this.startPulses = timer::start;
+        this.stopPulses = timer::stop;
+    }
+
+    /**
+     * @param redraw
+     *         redraws the display
+     * @param startPulses
+     *         starts calling {@link #pulse(long)} on every pulse
+     * @param stopPulses
+     *         stops calling it
+     */
+    RedrawScheduler(Runnable redraw, Runnable startPulses, Runnable stopPulses) {
+        this.redraw = redraw;
+        this.startPulses = startPulses;
+        this.stopPulses = stopPulses;
+    }
+
+    //****************************** REQUESTS ***********************************/
+
+    /**
+     * Redraws the display on the next pulse.
+     */
+    void requestRedraw() {
+        request();
+    }
+
+    /**
+     * Redraws the display once it has stopped changing size.
+     *
+     * @param now
+     *         the time of the resize, in {@link System#nanoTime()}
+     */
+    void requestResizeRedraw(long now) {
+        if (!resizing) resizeStart = now;
+        resizing = true;
+        lastResize = now;
+        request();
+    }
+
+    /**
+     * Drops the pending redraw, if any, for when the display was just redrawn some other way. Its requests are counted as skipped.
+     */
+    void markDrawn() {
+        if (!dirty) return;
+        dirty = false;
+        resizing = false;
+        batch = 0;
+        stopPulses.run();
+    }
+
+    private void request() {
+        requestCount++;
+        batch++;
+        if (dirty) return;
+        dirty = true;
+        startPulses.run();
+    }
+
+    //****************************** PULSE **************************************/
+
+    /**
+     * Runs the pending redraw, unless the display is still being resized.
+     *
+     * @param now
+     *         the time of the pulse, in {@link System#nanoTime()}
+     */
+    void pulse(long now) {
+        if (!dirty) {
+            stopPulses.run();
+            return;
+        }
+        if (resizing && now - lastResize < RESIZE_QUIET_NS && now - resizeStart < RESIZE_MAX_WAIT_NS) return;
+
+        int requests = batch;
+        dirty = false;
+        resizing = false;
+        batch = 0;
+        stopPulses.run();
+        redrawCount++;
+        redraw.run();
+        LOGGER.debug("Redrew the display for {} requests, {} redraws skipped so far.", requests, getSkippedCount());
+    }
+
+    //****************************** ACCESS *************************************/
+
+    long getRequestCount() {
+        return requestCount;
+    }
+
+    long getRedrawCount() {
+        return redrawCount;
+    }
+
+    /**
+     * @return the number of requests that haven't had a redraw of their own, whether they were folded into another request's redraw or
+     *         are still waiting for theirs
+     */
+    long getSkippedCount() {
+        return requestCount - redrawCount;
+    }
+}
@@ -0,0 +1,283 @@
+package app.core;
+
+import app.model.Card;
+import app.model.OpenHand;
+import app.util.DetachableList;
+import javafx.collections.ListChangeListener;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the sylladex's session on disk, so that the next launch can pick up where the last one left off without asking for a file. A
+ * session is the deck, the open hand, and the class of the active modus, along with a snapshot of the modus' layout taken as the
+ * application exits.
+ * <br><br>
+ * The session is checkpointed every {@link #CHECKPOINT_INTERVAL_SEC} seconds, and once more when the application exits, but only if it
+ * changed since the last checkpoint. The deck is kept incrementally, the same way as a deck saved to a file: the session's deck file is
+ * written in full once, and after that each checkpoint only flushes the changes recorded by its {@link DeckJournal}. The open hand and the
+ * modus class are small, so they are rewritten whole into the session's state file. The modus snapshot is left out of the periodic
+ * checkpoints, so that they stay incremental for a modus as large as its deck; a session that ends without its final checkpoint resumes
+ * the modus from the deck instead.
+ * <br><br>
+ * <b>State file layout</b> (big endian, as written by {@link DataOutputStream})
+ * <pre>
+ * int magic ("SYLS"), short version, UTF modus class name (empty for none), int distinct hand items,
+ * (UTF item, int count) per distinct hand item, int modus snapshot length (-1 for none) and the snapshot's bytes, int CRC32 of the preceding
+ * </pre>
+ * Version 2 state files, written before the hand was counted, hold the hand as an int hand size and that many UTF items, repeated as
+ * often as the hand held them. Version 1 state files, written before modus snapshots, also have no snapshot length or bytes.
+ * Every write goes through the {@link DeckSaveService}, so checkpoints never wait on the disk. All other methods are meant for the JavaFX
+ * thread.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+final class SessionAutosave implements ListChangeListener<Card> {
+    static final         long                         CHECKPOINT_INTERVAL_SEC = 30;
+    private static final Logger                       LOGGER                  = LogManager.getLogger(SessionAutosave.class);
+    private static final String                       DECK_FILE_NAME          = "session.deck";
+    private static final String                       STATE_FILE_NAME         = "session.state";
+    /** "SYLS" in ascii */
+    private static final int                          MAGIC                   = 0x53594C53;
+    private static final short                        VERSION_1               = 1;
+    private static final short                        VERSION_2               = 2;
+    private static final short                        VERSION_3               = 3;
+
+    private final File                         directory;
+    private final File                         deckFile;
+    private final File                         stateFile;
+    private final DeckSaveService              saveService;
+    /** logs the checkpoints, and marks the session dirty again if one fails so the next checkpoint tries again */
+    private final DeckSaveService.SaveListener listener = new DeckSaveService.SaveListener() {
+        @Override
+        public void progress(String message) {
+        }
+
+        @Override
+        public void saved(String message) {
+            LOGGER.debug("Session checkpoint: " + message);
+        }
+
+        @Override
+        public void failed(Exception e) {
+            LOGGER.warn("Session checkpoint failed, the next checkpoint will try again.", e);
+            dirty = true;
+        }
+    };
+    /** journal of the deck's changes since the session's deck file was written, null if the next checkpoint has to write it in full */
+    @Nullable
+    private       DeckJournal                  journal  = null;
+    private       boolean                      dirty    = false;
+
+    /**
+     * @param directory
+     *         the directory the session's files are kept in, created by the first checkpoint
+     * @param saveService
+     *         writes the checkpoints
+     */
+    SessionAutosave(File directory, DeckSaveService saveService) {
+        this.directory = directory;
+        this.deckFile = new File(directory, DECK_FILE_NAME);
+        this.stateFile = new File(directory, STATE_FILE_NAME);
+        this.saveService = saveService;
+    }
+
+    //****************************** RESTORE ************************************/
+
+    /**
+     * Reads the last checkpointed session. The session isn't tracked until it is handed back through {@link #resumed(Session)}, once the
+     * sylladex has taken it up.
+     *
+     * @return the last session, or null if there is none
+     *
+     * @throws IOException
+     *         if the session's files are corrupted or could not be read
+     * @throws ClassNotFoundException
+     *         thrown by {@link FileController#loadDeckFromFile(File)}
+     */
+    @CheckForNull
+    Session restore() throws IOException, ClassNotFoundException {
+        if (!stateFile.isFile()) return null;
+
+        byte[] bytes = Files.readAllBytes(stateFile.toPath());
+        CRC32  crc   = new CRC32();
+        crc.update(bytes, 0, Math.max(0, bytes.length - Integer.BYTES));
+        String       modusClass;
+        OpenHand     openHand      = new OpenHand();
+        byte[]       modusSnapshot = null;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            short version = (in.readInt() == MAGIC) ? in.readShort() : -1;
+            if (version < VERSION_1 || version > VERSION_3) throw LOGGER.throwing(new IOException("not a session state file"));
+            modusClass = in.readUTF();
+            int handSize = in.readInt();
+            if (handSize < 0 || handSize > bytes.length) throw LOGGER.throwing(new IOException("session state file is corrupted"));
+            for (int i = 0; i < handSize; i++) {
+                String item  = in.readUTF();
+                int    count = (version == VERSION_3) ? in.readInt() : 1;
+                if (count <= 0) throw LOGGER.throwing(new IOException("session state file is corrupted"));
+                openHand.add(item, count);
+            }
+            if (version >= VERSION_2) {
+                int snapshotLength = in.readInt();
+                if (snapshotLength > bytes.length) throw LOGGER.throwing(new IOException("session state file is corrupted"));
+                if (snapshotLength >= 0) {
+                    modusSnapshot = new byte[snapshotLength];
+                    in.readFully(modusSnapshot);
+                }
+            }
+            if (in.readInt() != (int) crc.getValue()) throw LOGGER.throwing(new IOException("session state file failed its checksum"));
+        }
+
+        List<Card>  deck     = new ArrayList<>();
+        DeckJournal replayed = null;
+        if (deckFile.isFile()) {
+            deck = FileController.shouldMapDeck(deckFile)
+                   ? new DetachableList<>(FileController.mapDeckFromFile(deckFile))
+                   : FileController.loadDeckFromFile(deckFile);
+            replayed = DeckJournal.replay(deckFile, deck);
+        }
+        return new Session(deck, openHand, modusClass.isEmpty() ? null : modusClass, modusSnapshot, replayed);
+    }
+
+    /**
+     * Starts tracking a restored session from where it was checkpointed. Call once the session's deck has been set, so that setting it
+     * isn't recorded as a change.
+     */
+    void resumed(Session session) {
+        journal = session.journal;
+        dirty = false;
+    }
+
+    //****************************** TRACKING ***********************************/
+
+    /**
+     * Records a change of the deck to the session's journal.
+     */
+    @Override
+    public void onChanged(Change<? extends Card> change) {
+        if (journal != null) journal.onChanged(change);
+        dirty = true;
+    }
+
+    /**
+     * Marks the session as changed, for changes that are rewritten whole on the next checkpoint.
+     */
+    void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Drops the journal before the deck is replaced as a whole, so that the next checkpoint writes the new deck in full rather than
+     * journaling every card of it.
+     */
+    void deckReplaced() {
+        if (journal != null) saveService.closeJournal(journal);
+        journal = null;
+        dirty = true;
+    }
+
+    /**
+     * @return true if a checkpoint that saves the deck writes the session's deck file in full, replacing it, rather than flushing the
+     *         journal
+     */
+    boolean willRewriteDeck() {
+        return journal == null || !journal.isJournalOf(deckFile) || journal.shouldCompact();
+    }
+
+    /**
+     * Queues a checkpoint of the session if it changed since the last one.
+     *
+     * @param deck
+     *         the deck
+     * @param openHand
+     *         the open hand
+     * @param modusClass
+     *         the simple class name of the active modus, or null if there is none
+     * @param modusSnapshot
+     *         a snapshot of the active modus' layout, or null to leave it out. a checkpoint with a snapshot is queued even if the session
+     *         is unchanged, so that the snapshot is kept.
+     * @return true if a checkpoint was queued
+     */
+    boolean checkpoint(List<Card> deck, OpenHand openHand, @Nullable String modusClass, @Nullable byte[] modusSnapshot) {
+        if (!dirty && modusSnapshot == null) return false;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            LOGGER.warn("Could not create the session directory " + directory.getAbsolutePath() + ", the session is not saved.");
+            return false;
+        }
+
+        // an unchanged session with a journal already has its deck checkpointed, only the snapshot is new
+        if (dirty || journal == null) {
+            if (!willRewriteDeck()) {
+                saveService.saveJournal(journal, listener);
+            } else {
+                DeckJournal previous = journal;
+                journal = new DeckJournal(deckFile);
+                saveService.saveDeck(new ArrayList<>(deck), deckFile, previous, journal, listener);
+            }
+        }
+        dirty = false;
+        try {
+            byte[] state = encodeState(openHand, modusClass, modusSnapshot);
+            saveService.saveFile(stateFile, out -> out.write(state), listener);
+        } catch (IOException e) {
+            LOGGER.warn("Could not encode the session state.", e);
+        }
+        return true;
+    }
+
+    @Nonnull
+    private static byte[] encodeState(OpenHand openHand, @Nullable String modusClass, @Nullable byte[] modusSnapshot)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream      out   = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION_3);
+        out.writeUTF(modusClass == null ? "" : modusClass);
+        out.writeInt(openHand.distinctSize());
+        for (String item : openHand.distinctItems()) {
+            out.writeUTF(item);
+            out.writeInt(openHand.countOf(item));
+        }
+        out.writeInt(modusSnapshot == null ? -1 : modusSnapshot.length);
+        if (modusSnapshot != null) out.write(modusSnapshot);
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * A session read back by {@link #restore()}.
+     */
+    static final class Session {
+        final         List<Card>   deck;
+        final         OpenHand     openHand;
+        /** the simple class name of the modus that was active, null if there was none */
+        @Nullable
+        final         String       modusClass;
+        /** the snapshot of the modus' layout, null if the session ended without one */
+        @Nullable
+        final         byte[]       modusSnapshot;
+        @Nullable
+        private final DeckJournal  journal;
+
+        private Session(List<Card> deck, OpenHand openHand, @Nullable String modusClass, @Nullable byte[] modusSnapshot,
+                        @Nullable DeckJournal journal) {
+            this.deck = deck;
+            this.openHand = openHand;
+            this.modusClass = modusClass;
+            this.modusSnapshot = modusSnapshot;
+            this.journal = journal;
+        }
+    }
+}
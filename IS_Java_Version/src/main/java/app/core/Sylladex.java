@@ -1,14 +1,23 @@
 package app.core;
 
 import app.model.Card;
+import app.model.CardStore;
+import app.model.Metadata;
+import app.model.OpenHand;
 import app.ui.GuiPropertyMap;
 import app.ui.ModusSelectComponent;
 import app.util.CommandMap;
+import app.util.DetachableList;
 import app.util.RequestException;
 import app.util.SyllCommandMap;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.event.ActionEvent;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -18,6 +27,7 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ButtonBar.ButtonData;
 import javafx.scene.layout.VBox;
 import javafx.scene.text.Font;
+import javafx.util.Duration;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -30,6 +40,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The Sylladex acts as the framework for hosting a fetch Modus, a collection of Card, and managing interactions with the user in respect to
@@ -47,23 +58,40 @@ import java.util.*;
  */
 @ParametersAreNonnullByDefault
 public class Sylladex {
-    private static final Logger               LOGGER         = LogManager.getLogger(Sylladex.class);
-    private static final String               SYLL_PREFIX    = "syll.";
-    private static final String               SAVE_FILE_NAME = "sylladexDeck.sav";
-    private static final String               OUT_PATH       = "";
+    private static final Logger               LOGGER            = LogManager.getLogger(Sylladex.class);
+    private static final String               SYLL_PREFIX       = "syll.";
+    private static final String               SAVE_FILE_NAME    = "sylladexDeck.sav";
+    private static final String               OUT_PATH          = "";
+    private static final String               SESSION_DIR       = "sylladex_session";
+    /** the file holding the decks archived by name, see {@link DeckArchive} */
+    private static final String               ARCHIVE_FILE_NAME = "sylladexDecks.archive";
     private final        SyllCommandMap       SYLL_CMD_MAP; //depended on by handleSyllInput
-    private final        ListProperty<String> openHandProperty;
+    private final        OpenHand             openHand          = new OpenHand();
     private final        ListProperty<Card>   deckProperty;
+    private final        DeckSaveService      saveService       = new DeckSaveService();
+    private final        SessionAutosave      session           = new SessionAutosave(new File(OUT_PATH + SESSION_DIR), saveService);
+    private final        ModusContainer       modusContainer;
+    /** journal of the deck's changes since it was last loaded from or written to a file, null if it hasn't been */
+    @Nullable
+    private              DeckJournal          journal           = null;
+    /** the deck while it still reads through to the file it was mapped from, null if it doesn't */
+    @Nullable
+    private              DetachableList<Card> mappedDeck        = null;
 
     public Sylladex(GuiPropertyMap guiPropertyMap) {
-        openHandProperty = new SimpleListProperty<>(this, "open_hand", FXCollections.observableArrayList());
-        deckProperty = new SimpleListProperty<>(this, "deck", FXCollections.observableArrayList());
-        ModusContainer modusContainer = new ModusContainer(guiPropertyMap.submittedInputSubscriberProperty(),
-                                                           guiPropertyMap.displayProperty(),
-                                                           guiPropertyMap.textOutputProperty(),
-                                                           guiPropertyMap.textInputProperty(),
-                                                           deckProperty,
-                                                           openHandProperty);
+        deckProperty = new SimpleListProperty<>(this, "deck", FXCollections.observableList(new CardStore()));
+        deckProperty.addListener((ListChangeListener<Card>) change -> {
+            if (journal != null) journal.onChanged(change);
+            session.onChanged(change);
+        });
+        openHand.addListener(deltas -> session.markDirty());
+        modusContainer = new ModusContainer(guiPropertyMap.submittedInputSubscriberProperty(),
+                                            guiPropertyMap.displayProperty(),
+                                            guiPropertyMap.textOutputProperty(),
+                                            guiPropertyMap.textInputProperty(),
+                                            deckProperty,
+                                            openHand);
+        modusContainer.currentModusMetadataProperty().addListener((bean, oldV, newV) -> session.markDirty());
         SYLL_CMD_MAP = initSyllCmdMap(guiPropertyMap.textOutputProperty(), modusContainer);
 
         //should attempt to prompt the user to equip a modus
@@ -91,6 +119,13 @@ public class Sylladex {
                                                                 event));
 
         guiPropertyMap.setAllModusMenuSelectableClassList(modusContainer.getModusClassList());
+
+        //pick up the last session where it left off. the stage has yet to draw its first frame, so the restored session is the first seen
+        resumeSession(guiPropertyMap.textOutputProperty(), guiPropertyMap.modusCmdListChildrenProperty());
+        Timeline autosave = new Timeline(new KeyFrame(Duration.seconds(SessionAutosave.CHECKPOINT_INTERVAL_SEC),
+                                                      event -> checkpointSession()));
+        autosave.setCycleCount(Animation.INDEFINITE);
+        autosave.play();
     }
 
 
@@ -112,24 +147,13 @@ public class Sylladex {
                 Optional<File> saveFile = FileController.selectFileSave(textOutput.getScene().getWindow());
                 if (saveFile.isPresent()) {
                     modiMgr.requestSave();
-                    FileController.writeDeckToFile(getDeck(), saveFile.get());
-                    textOutput.appendText("Save successful.\n");
+                    // the deck is written on the io thread, which reports back to the console once it is done
+                    saveDeck(saveFile.get(), consoleSaveListener(textOutput));
                 } else {
                     LOGGER.info("Save cancelled.");
                     textOutput.appendText("save cancelled.\n");
                 }
-            } catch (SecurityException | FileNotFoundException e) {
-                LOGGER.error(e);
-                Alert alert = new Alert(Alert.AlertType.WARNING);
-                alert.setTitle("Unable To Create Or Open File");
-                alert.setHeaderText("Unable to open a save file.");
-                alert.setContentText("Sylladex was unable to create save file " +
-                                     "because this program could not open the file, likely as a security issue. \n" +
-                                     "Please change directory/file permissions to allow file " +
-                                     "creation and then try again. \n");
-                alert.showAndWait();
-                textOutput.appendText("save failed.\n");
-            } catch (IOException | RequestException e) {
+            } catch (RequestException e) {
                 LOGGER.error(e);
                 textOutput.appendText("ERROR saving file - could not save. Please try again in a bit.\n");
             }
@@ -137,30 +161,98 @@ public class Sylladex {
         commandMap.put("loadDeckFromFile", () -> {
             TextInputControl textOutput = textOutputProperty.getValue();
             textOutput.appendText("Loading deck from file... ");
+            Optional<File> loadFile = FileController.selectFileLoad(textOutput.getScene().getWindow());
+            if (loadFile.isPresent()) {
+                loadDeck(loadFile.get(), textOutput, modiMgr);
+            } else {
+                LOGGER.info("Load cancelled.");
+                textOutput.appendText("load cancelled.\n");
+            }
+        });
+        commandMap.put("archiveDeck", args -> {
+            TextInputControl textOutput = textOutputProperty.getValue();
+            if (args.length == 0) {
+                textOutput.appendText("Please name the deck to archive, as in " + SYLL_PREFIX + "archiveDeck <name>.\n");
+                return;
+            }
+            String name = String.join(" ", args);
+            textOutput.appendText("Archiving deck as " + name + "... ");
             try {
-                Optional<File> loadFile = FileController.selectFileLoad(textOutput.getScene().getWindow());
-                if (loadFile.isPresent()) {
-                    setDeck(FileController.loadDeckFromFile(loadFile.get()));
-                    textOutput.appendText("load successful.\n");
-                    modiMgr.requestLoad();
-                } else {
-                    LOGGER.info("Load cancelled.");
-                    textOutput.appendText("load cancelled.\n");
+                modiMgr.requestSave();
+            } catch (RequestException e) {
+                LOGGER.error(e);
+                textOutput.appendText("ERROR archiving deck - could not save the modus. Please try again in a bit.\n");
+                return;
+            }
+            // the copy is written on the io thread while the sylladex's deck goes on changing
+            List<Card> cards   = new ArrayList<>(getDeck());
+            File       archive = new File(OUT_PATH + ARCHIVE_FILE_NAME);
+            saveService.saveFile(archive, out -> DeckArchive.write(archive, name, cards, out), consoleSaveListener(textOutput));
+        });
+        commandMap.put("listDecks", () -> {
+            TextInputControl textOutput = textOutputProperty.getValue();
+            try {
+                List<DeckArchive.Entry> index = DeckArchive.readIndex(new File(OUT_PATH + ARCHIVE_FILE_NAME));
+                if (index.isEmpty()) {
+                    textOutput.appendText("There are no archived decks. Use " + SYLL_PREFIX + "archiveDeck <name> to archive one.\n");
+                    return;
                 }
-            } catch (SecurityException | FileNotFoundException e) {
-                Alert alert = new Alert(Alert.AlertType.WARNING);
-                alert.setTitle("Insufficient Permission");
-                alert.setHeaderText("Unable to create save file.");
-                alert.setContentText("Sylladex was unable to read the save file " +
-                                     "because the save file had insufficient permission. \n" +
-                                     "Please change file permissions to allow file " +
-                                     "read and then try again. \n");
-                alert.showAndWait();
-                textOutput.appendText("load failed.\n");
-            } catch (ClassNotFoundException | ClassCastException e) {
-                textOutput.appendText("ERROR - found file is corrupted or invalid. load failed. \n");
+                textOutput.appendText("Archived decks are: \n");
+                for (DeckArchive.Entry entry : index) textOutput.appendText("  " + entry.name + " (" + entry.numCards + " cards)\n");
             } catch (IOException e) {
-                textOutput.appendText("ERROR loading file - load failed. Please try again.\n");
+                LOGGER.error("Failed to read the deck archive.", e);
+                textOutput.appendText("ERROR reading the deck archive - " + e.getMessage() + ".\n");
+            }
+        });
+        commandMap.put("loadDeck", args -> {
+            TextInputControl textOutput = textOutputProperty.getValue();
+            if (args.length == 0) {
+                textOutput.appendText("Please name the deck to load, as in " + SYLL_PREFIX + "loadDeck <name>.\n");
+                return;
+            }
+            String name = String.join(" ", args);
+            textOutput.appendText("Loading archived deck " + name + "... ");
+            try {
+                List<Card> deck = DeckArchive.loadDeck(new File(OUT_PATH + ARCHIVE_FILE_NAME), name);
+                if (deck == null) {
+                    textOutput.appendText("no deck is archived as " + name + ".\n");
+                    return;
+                }
+                // the deck didn't come from a deck file, so there is no journal to keep
+                closeJournal(() -> {
+                    setDeck(deck);
+                    textOutput.appendText("load successful.\n");
+                    if (modiMgr.getCurrentModusMetadata() != null) modiMgr.requestLoad();
+                });
+            } catch (IOException e) {
+                LOGGER.error("Failed to load archived deck " + name, e);
+                textOutput.appendText("ERROR loading archived deck - " + e.getMessage() + ".\n");
+            }
+        });
+        commandMap.put("importDeck", () -> {
+            TextInputControl textOutput = textOutputProperty.getValue();
+            textOutput.appendText("Importing deck from file... ");
+            Optional<File> importFile = FileController.selectFileImport(textOutput.getScene().getWindow());
+            if (importFile.isPresent()) {
+                importDeck(importFile.get(), textOutput, modiMgr);
+            } else {
+                LOGGER.info("Import cancelled.");
+                textOutput.appendText("import cancelled.\n");
+            }
+        });
+        commandMap.put("exportDeck", () -> {
+            TextInputControl textOutput = textOutputProperty.getValue();
+            textOutput.appendText("Exporting deck to file... ");
+            Optional<File> exportFile = FileController.selectFileExport(textOutput.getScene().getWindow());
+            if (exportFile.isPresent()) {
+                // the modus' deck is a copy of its own, so the io thread can stream it while the sylladex's deck goes on changing
+                List<Card> modusDeck = (modiMgr.getCurrentModusMetadata() == null) ? null : modiMgr.requestToDeck();
+                List<Card> cards     = (modusDeck == null) ? new ArrayList<>(getDeck()) : modusDeck;
+                DeckTransfer.Format format = DeckTransfer.Format.of(exportFile.get());
+                saveService.saveFile(exportFile.get(), out -> DeckTransfer.exportDeck(cards, format, out), consoleSaveListener(textOutput));
+            } else {
+                LOGGER.info("Export cancelled.");
+                textOutput.appendText("export cancelled.\n");
             }
         });
         commandMap.put("deleteDeck", () -> {
@@ -180,6 +272,13 @@ public class Sylladex {
                 textOutput.appendText("deletion failed.\n");
             }
         });
+        commandMap.put("toggleCompression", () -> {
+            TextInputControl             textOutput = textOutputProperty.getValue();
+            FileController.Compression[] modes      = FileController.Compression.values();
+            FileController.Compression   next       = modes[(FileController.getCompression().ordinal() + 1)%modes.length];
+            FileController.setCompression(next);
+            textOutput.appendText("Deck files will now be saved with compression: " + next.name().toLowerCase() + ".\n");
+        });
         commandMap.put("resetModus", () -> {
             TextInputControl textOutput = textOutputProperty.getValue();
             textOutput.appendText("Refreshing the modus...");
@@ -190,13 +289,11 @@ public class Sylladex {
         commandMap.put("showLooseItems", () -> {
             TextInputControl textOutput = textOutputProperty.getValue();
             textOutput.appendText("Items in the hand are currently: \n");
-            synchronized (getOpenHand()) {
-                for (ListIterator<String> hand = getOpenHand().listIterator(); hand.hasNext(); ) {
-                    String item = hand.next();
-                    if (hand.hasNext()) textOutput.appendText(item + ", ");
-                    else textOutput.appendText(item + ".\n");
-                }
-            }
+            // one entry per distinct item, however many times the hand holds it
+            StringBuilder items = new StringBuilder();
+            openHand.forEach((item, count) -> items.append(items.length() == 0 ? "" : ", ").append(item)
+                                                   .append(count > 1 ? " x" + count : ""));
+            if (items.length() > 0) textOutput.appendText(items.append(".\n").toString());
         });
 
         return commandMap;
@@ -216,14 +313,16 @@ public class Sylladex {
         // if no match, then the input is not directed to this handler.
         if (!inputString.toUpperCase().startsWith(SYLL_PREFIX.toUpperCase())) return;
 
-        String   command     = inputString.substring(SYLL_PREFIX.length());
-        Runnable runnableCmd = SYLL_CMD_MAP.get(command);
-        if (runnableCmd == null) {
+        // the command is the first word after the prefix, and any words after it are its arguments
+        String[] words   = inputString.substring(SYLL_PREFIX.length()).trim().split("\\s+");
+        String   command = words[0];
+        String[] args    = Arrays.copyOfRange(words, 1, words.length);
+        if (SYLL_CMD_MAP.get(command) == null) {
             LOGGER.error("Invalid sylladex command string supplied as input: " + command);
             return;
         }
-        LOGGER.info("running sylladex command {}.", command);
-        SYLL_CMD_MAP.command(command);
+        LOGGER.info("running sylladex command {} with arguments {}.", command, args);
+        SYLL_CMD_MAP.command(command, args);
         LOGGER.traceExit();
     }
 
@@ -236,11 +335,11 @@ public class Sylladex {
      * @param event
      *         the button push event
      */
-    private static void handleModusSelection(ModusContainer modusContainer,
-                                             ReadOnlyObjectProperty<? extends TextInputControl> textOutputProperty,
-                                             ReadOnlyListProperty<Node> modusCmdListChildrenProperty,
-                                             ListProperty<Card> deckProperty,
-                                             ActionEvent event) {
+    private void handleModusSelection(ModusContainer modusContainer,
+                                      ReadOnlyObjectProperty<? extends TextInputControl> textOutputProperty,
+                                      ReadOnlyListProperty<Node> modusCmdListChildrenProperty,
+                                      ListProperty<Card> deckProperty,
+                                      ActionEvent event) {
         TextInputControl textOutput = textOutputProperty.getValue();
 
         //if there was a previous modus selected, prompt if they want to save or reset their deck
@@ -264,8 +363,9 @@ public class Sylladex {
                 try {
                     Optional<File> saveFile = FileController.selectFileSave(textOutput.getScene().getWindow());
                     if (saveFile.isPresent()) {
-                        FileController.writeDeckToFile(deckProperty.getValue(), saveFile.get());
-                        textOutput.appendText("save successful.\n");
+                        // the save takes its snapshot of the deck now, so the deck can be refreshed while it is written
+                        saveDeck(saveFile.get(), consoleSaveListener(textOutput));
+                        detachJournal();
                     } else {
                         LOGGER.info("Save cancelled.");
                         textOutput.appendText("save cancelled.\n");
@@ -300,6 +400,17 @@ public class Sylladex {
         }
         textOutput.appendText("Modus selected: " + modusClass + "\n");
 
+        showModusCommands(modusContainer, modusCmdListChildrenProperty);
+        //reset the display
+        modusContainer.requestDrawToDisplay();
+        //display this modus' description to screen
+        textOutput.appendText(modusContainer.requestDescription());
+    }
+
+    /**
+     * Clears the modus command list and fills it with the current modus' commands and their descriptions.
+     */
+    private static void showModusCommands(ModusContainer modusContainer, ReadOnlyListProperty<Node> modusCmdListChildrenProperty) {
         //clear the lists and update them to the selected modus' COMMAND_MAP
         modusCmdListChildrenProperty.getValue().clear();
         for (String command : modusContainer.getCurrentModusMetadata().COMMAND_MAP.keySet()) {
@@ -313,10 +424,240 @@ public class Sylladex {
             Separator line = new Separator();
             modusCmdListChildrenProperty.getValue().addAll(commandName, commandDesc, line);
         }
-        //reset the display
-        modusContainer.requestDrawToDisplay();
-        //display this modus' description to screen
-        textOutput.appendText(modusContainer.requestDescription());
+    }
+
+    ///// SESSION /////
+
+    /**
+     * Restores the last session's deck, open hand and modus, without asking the user anything. A session that can't be restored is left
+     * behind, and the sylladex starts out empty as if there was none.
+     */
+    private void resumeSession(ReadOnlyObjectProperty<? extends TextInputControl> textOutputProperty,
+                               ReadOnlyListProperty<Node> modusCmdListChildrenProperty) {
+        long                    start = System.nanoTime();
+        SessionAutosave.Session restored;
+        try {
+            restored = session.restore();
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            LOGGER.error("Could not restore the last session, starting a new one.", e);
+            return;
+        }
+        if (restored == null) return;
+
+        setDeck(restored.deck);
+        openHand.setAll(restored.openHand);
+        if (restored.modusClass != null) {
+            try {
+                modusContainer.updateCurrentModus(restored.modusClass);
+                // the snapshot brings back the modus' exact layout, without it the modus is resumed from the deck
+                if (restored.modusSnapshot == null || !modusContainer.requestRestoreSnapshot(restored.modusSnapshot)) {
+                    modusContainer.requestResume();
+                }
+                showModusCommands(modusContainer, modusCmdListChildrenProperty);
+                modusContainer.requestDrawToDisplay();
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not resume the last session's modus " + restored.modusClass + ".", e);
+            }
+        }
+        session.resumed(restored);
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.info("Restored the last session of " + restored.deck.size() + " cards in " + elapsed + " ms.");
+        textOutputProperty.getValue().appendText("Resumed the last session: " + restored.deck.size() + " cards" +
+                                                 (restored.modusClass == null ? "" : " in " + restored.modusClass) + ".\n");
+    }
+
+    /**
+     * Queues a checkpoint of the session, if it changed since the last one.
+     */
+    private void checkpointSession() {
+        Metadata modus = modusContainer.getCurrentModusMetadata();
+        if (session.willRewriteDeck()) releaseMappedDeck();
+        session.checkpoint(getDeck(), openHand, modus == null ? null : modus.NAME, null);
+    }
+
+    /**
+     * Checkpoints the session one last time, with a snapshot of the modus' layout, and waits for every queued save to finish. Called as
+     * the application exits.
+     */
+    public void saveSession() {
+        Metadata modus    = modusContainer.getCurrentModusMetadata();
+        byte[]   snapshot = (modus == null) ? null : modusContainer.requestSnapshot();
+        if (session.willRewriteDeck()) releaseMappedDeck();
+        session.checkpoint(getDeck(), openHand, modus == null ? null : modus.NAME, snapshot);
+        try {
+            saveService.awaitQueuedSaves();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for the last session checkpoint.");
+        }
+    }
+
+    ///// DECK FILES /////
+
+    /**
+     * Queues a save of the deck to the file. If the deck was loaded from or last saved to that same file, only the changes made since then
+     * are flushed to the file's journal, until the journal outgrows the deck file and the two are compacted into a rewritten deck file.
+     * Otherwise a snapshot of the deck is written in full, and a new journal records the changes made after the snapshot.
+     *
+     * @param destination
+     *         the file to save the deck to
+     * @param listener
+     *         told of the save's progress and result
+     */
+    private void saveDeck(File destination, DeckSaveService.SaveListener listener) {
+        File deckFile = FileController.deckFileOf(destination);
+        if (journal != null && journal.isJournalOf(deckFile) && !journal.shouldCompact()) {
+            saveService.saveJournal(journal, listener);
+            return;
+        }
+        releaseMappedDeck();
+        DeckJournal previous = journal;
+        journal = new DeckJournal(deckFile);
+        saveService.saveDeck(new ArrayList<>(getDeck()), deckFile, previous, journal, listener);
+    }
+
+    /**
+     * Copies a deck that still reads through to the file it was mapped from onto the heap, before that file may be replaced. Some
+     * platforms refuse to replace a file that is still mapped.
+     */
+    private void releaseMappedDeck() {
+        if (mappedDeck == null) return;
+        mappedDeck.detach();
+        mappedDeck = null;
+    }
+
+    /**
+     * @return a save listener that reports to the console
+     */
+    @Nonnull
+    private static DeckSaveService.SaveListener consoleSaveListener(TextInputControl textOutput) {
+        return new DeckSaveService.SaveListener() {
+            @Override
+            public void progress(String message) {
+                textOutput.appendText(message + " ");
+            }
+
+            @Override
+            public void saved(String message) {
+                textOutput.appendText(message + "\n");
+            }
+
+            @Override
+            public void failed(Exception e) {
+                if (e instanceof SecurityException || e instanceof FileNotFoundException) {
+                    Alert alert = new Alert(Alert.AlertType.WARNING);
+                    alert.setTitle("Unable To Create Or Open File");
+                    alert.setHeaderText("Unable to open a save file.");
+                    alert.setContentText("Sylladex was unable to create save file " +
+                                         "because this program could not open the file, likely as a security issue. \n" +
+                                         "Please change directory/file permissions to allow file " +
+                                         "creation and then try again. \n");
+                    alert.showAndWait();
+                    textOutput.appendText("save failed.\n");
+                } else {
+                    textOutput.appendText("ERROR saving file - could not save. Please try again in a bit.\n");
+                }
+            }
+        };
+    }
+
+    /**
+     * Loads the deck from the file and replays the changes in the file's journal on top of it, once the current journal is closed. The
+     * current journal may still be flushing to the same file, so the file is read after the saves queued before it, without waiting for
+     * them here.
+     *
+     * @param source
+     *         the file to load the deck from
+     * @param textOutput
+     *         told of the load's result
+     */
+    private void loadDeck(File source, TextInputControl textOutput, ModusContainer modiMgr) {
+        closeJournal(() -> {
+            try {
+                // large decks are mapped and decoded as the modus reads them, the deck only copies itself once it is written to
+                List<Card> deck = FileController.shouldMapDeck(source)
+                                  ? new DetachableList<>(FileController.mapDeckFromFile(source))
+                                  : FileController.loadDeckFromFile(source);
+                DeckJournal replayed = DeckJournal.replay(source, deck);
+                // the journal is attached after the deck is set, so that loading isn't recorded as a change
+                setDeck(deck);
+                journal = replayed;
+                textOutput.appendText("load successful.\n");
+                if (modiMgr.getCurrentModusMetadata() != null) modiMgr.requestLoad();
+            } catch (SecurityException | FileNotFoundException e) {
+                Alert alert = new Alert(Alert.AlertType.WARNING);
+                alert.setTitle("Insufficient Permission");
+                alert.setHeaderText("Unable to create save file.");
+                alert.setContentText("Sylladex was unable to read the save file " +
+                                     "because the save file had insufficient permission. \n" +
+                                     "Please change file permissions to allow file " +
+                                     "read and then try again. \n");
+                alert.showAndWait();
+                textOutput.appendText("load failed.\n");
+            } catch (ClassNotFoundException | ClassCastException e) {
+                textOutput.appendText("ERROR - found file is corrupted or invalid. load failed. \n");
+            } catch (IOException e) {
+                LOGGER.error("Failed to load deck from " + source, e);
+                textOutput.appendText("ERROR loading file - load failed. Please try again.\n");
+            }
+        });
+    }
+
+    /**
+     * Imports a deck from a text file on a thread of its own, then replaces the deck's cards with it in a single change.
+     *
+     * @param source
+     *         the CSV or NDJSON file to import
+     * @param textOutput
+     *         told of the import's result
+     */
+    private void importDeck(File source, TextInputControl textOutput, ModusContainer modiMgr) {
+        Thread importer = new Thread(() -> {
+            long start = System.nanoTime();
+            try {
+                List<Card> cards = DeckTransfer.importDeck(source);
+                long       parse = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                // the deck no longer matches the file it came from, and is too different for a journal to be worth it
+                Platform.runLater(() -> closeJournal(() -> {
+                    session.deckReplaced();
+                    deckProperty.setAll(cards);
+                    textOutput.appendText("imported " + cards.size() + " cards in " + parse + " ms.\n");
+                    if (modiMgr.getCurrentModusMetadata() != null) modiMgr.requestLoad();
+                }));
+            } catch (IOException e) {
+                LOGGER.error("Failed to import deck from " + source, e);
+                Platform.runLater(() -> textOutput.appendText("ERROR importing file - " + e.getMessage() + ".\n"));
+            }
+        }, "sylladex-import");
+        importer.setDaemon(true);
+        importer.start();
+    }
+
+    /**
+     * Stops recording the deck's changes to the journal, and queues its closing behind any save still using it. Changes recorded before
+     * this are still flushed by the saves already queued.
+     */
+    private void detachJournal() {
+        if (journal == null) return;
+        saveService.closeJournal(journal);
+        journal = null;
+    }
+
+    /**
+     * Closes the journal on the I/O thread once queued saves are done with it, without waiting for it.
+     *
+     * @param closed
+     *         run on the JavaFX thread once the journal is closed, or right away if there is no journal
+     */
+    private void closeJournal(Runnable closed) {
+        if (journal == null) {
+            closed.run();
+            return;
+        }
+        // detached now, so changes made while the close is queued aren't recorded to it
+        saveService.closeJournal(journal, closed);
+        journal = null;
     }
 
     ///// GETTERS AND SETTERS /////
@@ -325,12 +666,13 @@ public class Sylladex {
         return deckProperty.get();
     }
 
+    /**
+     * Replaces the deck. The cards are copied into a compact {@link CardStore}, unless the deck is a mapped deck that hasn't been copied
+     * onto the heap yet.
+     */
     private void setDeck(List<Card> deck) {
-        deckProperty.setValue(FXCollections.observableList(deck));
-    }
-
-    @Nonnull
-    private List<String> getOpenHand() {
-        return openHandProperty.get();
+        session.deckReplaced();
+        mappedDeck = (deck instanceof DetachableList) ? (DetachableList<Card>) deck : null;
+        deckProperty.setValue(FXCollections.observableList((deck instanceof DetachableList) ? deck : CardStore.of(deck)));
     }
 }
@@ -0,0 +1,266 @@
+package app.model;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.*;
+
+/**
+ * An index of where each item is held, across the sylladex's deck and its open hand, looked up by item name or by captcha code. Any modus
+ * can answer "where is X" through {@link ModusBuffer#getCaptchaIndex()} without scanning its own cards.
+ * <br><br>
+ * The index follows the deck and the hand by listening to their changes, and only works through what each change touches. Replacing a
+ * card in place costs a lookup in the card's item; adding or removing cards also shifts the positions of the cards after them, which is
+ * no more work than the list itself does to move those cards along. The hand is indexed by count, as it holds no positions. Empty cards
+ * are not indexed.
+ * <br><br>
+ * Item names are compared as a card holds them, trimmed and upper-cased, so names typed into the open hand match the cards they came from.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+public final class CaptchaIndex {
+    private static final int[]                    NO_POSITIONS = new int[0];
+    private final        Map<String, Entry>       byItem       = new HashMap<>();
+    private final        Map<Long, Entry>         byCaptcha    = new HashMap<>();
+    private final        DeckTracker              deck         = new DeckTracker();
+    /** bumped once per shift, so that each entry's positions are shifted at most once per change */
+    private              int                      stamp        = 0;
+
+    /**
+     * Indexes the lists as they are, and listens to them to stay up to date.
+     *
+     * @param deckList
+     *         the sylladex's deck
+     * @param hand
+     *         the sylladex's open hand
+     */
+    public CaptchaIndex(ObservableList<Card> deckList, OpenHand hand) {
+        deck.insert(0, deckList);
+        hand.forEach(this::countInHand);
+        deckList.addListener(deck);
+        hand.addListener(deltas -> deltas.forEach(this::countInHand));
+    }
+
+    //****************************** LOOKUP **************************************/
+
+    /**
+     * @param item
+     *         the item name, in any case
+     * @return the positions in the deck of the cards holding the item, in increasing order. empty if the deck holds none.
+     */
+    @Nonnull
+    public int[] deckPositionsOf(String item) {
+        Entry entry = byItem.get(normalize(item));
+        return (entry == null) ? NO_POSITIONS : Arrays.copyOf(entry.deck.positions, entry.deck.size);
+    }
+
+    /**
+     * @param item
+     *         the item name, in any case
+     * @return the position of the first card in the deck holding the item, or -1 if the deck holds none
+     */
+    public int firstDeckPosition(String item) {
+        Entry entry = byItem.get(normalize(item));
+        return (entry == null || entry.deck.size == 0) ? -1 : entry.deck.positions[0];
+    }
+
+    /**
+     * @param item
+     *         the item name, in any case
+     * @return the number of times the open hand holds the item
+     */
+    public int handCountOf(String item) {
+        Entry entry = byItem.get(normalize(item));
+        return (entry == null) ? 0 : entry.handCount;
+    }
+
+    /**
+     * @param item
+     *         the item name, in any case
+     * @return the number of cards in the deck holding the item
+     */
+    public int deckCountOf(String item) {
+        Entry entry = byItem.get(normalize(item));
+        return (entry == null) ? 0 : entry.deck.size;
+    }
+
+    /**
+     * @param item
+     *         the item name, in any case
+     * @return true if the item is held anywhere in the deck or the open hand
+     */
+    public boolean contains(String item) {
+        return byItem.containsKey(normalize(item));
+    }
+
+    /**
+     * Finds the item held under a captcha code. Two items share a code about once in every few hundred thousand million pairs; should they
+     * both be held, the one indexed first is found.
+     *
+     * @param captchaCode
+     *         a captcha code, as {@link Card#getCaptchaCode()} gives it
+     * @return the item held under the code, or null if no held item has that code
+     */
+    @CheckForNull
+    public String itemOfCaptcha(String captchaCode) {
+        long  value = Card.captchaValueOf(captchaCode);
+        Entry entry = (value < 0) ? null : byCaptcha.get(value);
+        return (entry == null) ? null : entry.item;
+    }
+
+    //****************************** UPDATE **************************************/
+
+    @Nonnull
+    private static String normalize(String item) {
+        return item.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @CheckForNull
+    private Entry entryOf(@CheckForNull Card card) {
+        return (card == null || !card.isInUse()) ? null : entryOf(card.getItem());
+    }
+
+    @Nonnull
+    private Entry entryOf(String item) {
+        Entry entry = byItem.get(item);
+        if (entry == null) {
+            entry = new Entry(item);
+            byItem.put(item, entry);
+            byCaptcha.putIfAbsent(entry.captcha, entry);
+        }
+        return entry;
+    }
+
+    private void countInHand(String item, int delta) {
+        Entry entry = entryOf(normalize(item));
+        entry.handCount += delta;
+        release(entry);
+    }
+
+    private void release(Entry entry) {
+        if (entry.deck.size > 0 || entry.handCount > 0) return;
+        byItem.remove(entry.item);
+        byCaptcha.remove(entry.captcha, entry);
+    }
+
+    /**
+     * Mirrors the deck as the entry of each of its cards, and keeps each entry's positions in the deck in step with its changes.
+     */
+    private final class DeckTracker implements ListChangeListener<Card> {
+        /** the entry of each card of the deck, null for cards that aren't indexed */
+        private final List<Entry> mirror = new ArrayList<>();
+
+        @Override
+        public void onChanged(Change<? extends Card> change) {
+            // each part of a change is applied in turn, in the coordinates the list had once the parts before it were applied
+            while (change.next()) {
+                if (change.wasUpdated()) continue;
+                if (change.wasPermutated()) {
+                    int from = change.getFrom();
+                    int to   = change.getTo();
+                    remove(from, to - from);
+                    insert(from, change.getList().subList(from, to));
+                } else {
+                    int removed = change.getRemovedSize();
+                    int added   = change.getAddedSize();
+                    if (removed > 0) remove(change.getFrom(), removed);
+                    if (added > 0) insert(change.getFrom(), change.getAddedSubList());
+                }
+            }
+        }
+
+        void remove(int from, int count) {
+            List<Entry> removed = mirror.subList(from, from + count);
+            for (int i = 0; i < count; i++) {
+                Entry entry = removed.get(i);
+                if (entry == null) continue;
+                entry.deck.remove(from + i);
+                release(entry);
+            }
+            removed.clear();
+            shift(from, from + count, -count);
+        }
+
+        void insert(int from, List<? extends Card> cards) {
+            shift(from, from, cards.size());
+            List<Entry> added = new ArrayList<>(cards.size());
+            for (Card card : cards) added.add(entryOf(card));
+            mirror.addAll(from, added);
+            for (int i = 0; i < added.size(); i++) {
+                Entry entry = added.get(i);
+                if (entry != null) entry.deck.insert(from + i);
+            }
+        }
+
+        /**
+         * Moves every position at or after a threshold by a delta. The entries to shift are found by walking the mirror from where the
+         * change happened, and each entry's positions past the threshold are one sorted run, so the walk only touches what moves.
+         *
+         * @param start
+         *         the first index of the mirror, as it is now, holding an element that moved
+         * @param threshold
+         *         the lowest position, as the entries still hold it, that moves
+         */
+        private void shift(int start, int threshold, int delta) {
+            if (delta == 0) return;
+            int shiftStamp = ++stamp;
+            for (int i = start; i < mirror.size(); i++) {
+                Entry entry = mirror.get(i);
+                if (entry == null || entry.stamp == shiftStamp) continue;
+                entry.stamp = shiftStamp;
+                entry.deck.shift(threshold, delta);
+            }
+        }
+    }
+
+    /**
+     * Everything the index knows of one item.
+     */
+    private static final class Entry {
+        final String    item;
+        final long      captcha;
+        final Positions deck = new Positions();
+        int             handCount;
+        /** the last shift this entry took part in */
+        int             stamp;
+
+        Entry(String item) {
+            this.item = item;
+            this.captcha = Card.captchaValue(item);
+        }
+    }
+
+    /**
+     * A sorted set of positions, in a plain int array since most items are held only a few times.
+     */
+    private static final class Positions {
+        int[] positions = NO_POSITIONS;
+        int   size      = 0;
+
+        void insert(int position) {
+            int index = Arrays.binarySearch(positions, 0, size, position);
+            if (index >= 0) return;
+            index = -index - 1;
+            if (size == positions.length) positions = Arrays.copyOf(positions, Math.max(4, size*2));
+            System.arraycopy(positions, index, positions, index + 1, size - index);
+            positions[index] = position;
+            size++;
+        }
+
+        void remove(int position) {
+            int index = Arrays.binarySearch(positions, 0, size, position);
+            if (index < 0) return;
+            System.arraycopy(positions, index + 1, positions, index, size - index - 1);
+            size--;
+        }
+
+        void shift(int threshold, int delta) {
+            int index = Arrays.binarySearch(positions, 0, size, threshold);
+            for (int i = (index < 0) ? -index - 1 : index; i < size; i++) positions[i] += delta;
+        }
+    }
+}
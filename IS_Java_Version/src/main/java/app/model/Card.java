@@ -3,13 +3,20 @@ package app.model;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import javax.annotation.RegEx;
-import java.io.Serializable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * The Card class is a data structure designed to hold information about a given item.
  * <br> This class provides functionality to manipulate item information and whether
  * or not this object is currently holding an actual item.
+ * <br><br>
+ * A card is a value: two cards are equal if they hold the same item, or are both empty, so cards can be looked up by content in hashed
+ * collections. Everything derived from the item, the captcha code, the hash and whether the card is valid, is worked out once when the card
+ * is made.
  *
  * @author Triston Scallan
  */
@@ -18,18 +25,51 @@ public class Card implements Serializable {
      * The class constant for an empty CARD.
      */
     public static final         Card   EMPTY             = new Card();
+    /** the longest item name a card can hold, after trimming */
+    public static final         int    MAX_ITEM_LENGTH   = 16;
+    /** number of characters in a captcha code */
+    public static final         int    CAPTCHA_LENGTH    = 7;
+    /** number of distinct captcha codes, 62 to the 7th */
+    public static final         long   CAPTCHA_CODES     = 3_521_614_606_208L;
     private static final        long   serialVersionUID  = 1L;
-    private static final        int    MAX_ITEM_LENGTH   = 16;
-    @RegEx private static final String REQ_CAPTCHA_REGEX = "^[\\w\\d]{0,7}$";
     private static final        Logger LOGGER            = LogManager.getLogger(Card.class);
+    /** the characters of a captcha code, in the order of their digit value */
+    private static final        char[] CAPTCHA_DIGITS    = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    /**
+     * random words, one per position and ascii character of an item name, combined by {@link #captchaValue(CharSequence)}. a fixed seed
+     * keeps the codes the same from run to run.
+     */
+    private static final        long[] CAPTCHA_TABLE     = captchaTable(new Random(0x5C_A7C4A_5EEDL));
+    /** number of slots in the table of interned cards, a power of two */
+    private static final        int    INTERN_SLOTS      = 1 << 16;
+
+    /**
+     * the interned cards of {@link #of(String)}, each in the slot its item name hashes to. a card of another item that hashes to the same
+     * slot replaces it, which keeps the table bounded without any bookkeeping.
+     */
+    private static final AtomicReferenceArray<Card> INTERNED = new AtomicReferenceArray<>(INTERN_SLOTS);
+
+    /**
+     * the fields of a card as java serialization wrote them before they were primitives, kept so that legacy deck files still read. the
+     * derived fields are never serialized, a card read back from a stream is rebuilt by {@link #readResolve()}.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {new ObjectStreamField("item", String.class),
+                                                                      new ObjectStreamField("captchaCode", String.class),
+                                                                      new ObjectStreamField("inUse", Boolean.class)};
 
     ///// Variables
     /** item name, max size should be 16 */
-    private final String  item;
+    private final transient String  item;
     /** 7 alphanumeric code */
-    private final String  captchaCode;
+    private final transient String  captchaCode;
     /** track if this CARD is empty or not */
-    private final Boolean inUse;
+    private final transient boolean inUse;
+    /** the result of {@link #isValid()}, checked once as the card is made */
+    private final transient boolean valid;
+    /** the hash code, derived from the captcha code's value so that it is spread over all of its bits */
+    private final transient int     hash;
+    /** the card a deserialized card stands for, see {@link #readResolve()}. null for any card made by a constructor. */
+    private transient       Card    resolved;
 
     ///// Constructors
 
@@ -38,6 +78,8 @@ public class Card implements Serializable {
         this.item = "EMPTY";
         this.captchaCode = "0000000";
         this.inUse = false;
+        this.valid = true;
+        this.hash = 0;
     }
 
     /**
@@ -48,12 +90,146 @@ public class Card implements Serializable {
      * @throws IllegalArgumentException
      *         if the item parameter is null or too long
      */
-    //TODO: consider replacing with a simple Card.of(itemName) and Card.EMPTY()? type safety isn't a worry since this isn't a generic.
     public Card(String item) throws IllegalArgumentException {
+        this(heldFormOf(item), true);
+    }
+
+    /**
+     * Makes a card of an item name already in the form a card holds it, whatever its length.
+     *
+     * @param item
+     *         the item name, trimmed and upper-cased
+     * @param inUse
+     *         always true, it only tells this constructor apart from {@link #Card(String)}
+     */
+    private Card(String item, boolean inUse) {
+        this.item = item;
+        long captchaValue = captchaValue(this.item);
+        this.captchaCode = captchaCodeOf(captchaValue);
+        this.inUse = inUse;
+        this.valid = this.item.length() <= MAX_ITEM_LENGTH && isCaptchaCode(this.captchaCode);
+        this.hash = Long.hashCode(captchaValue) | 1;
+    }
+
+    /**
+     * @return the item name as a card holds it, trimmed and upper-cased
+     *
+     * @throws IllegalArgumentException
+     *         if the item parameter is null or too long
+     */
+    private static String heldFormOf(String item) throws IllegalArgumentException {
         if (item == null || item.trim().length() > MAX_ITEM_LENGTH) throw LOGGER.throwing(new IllegalArgumentException());
-        this.item = item.trim().toUpperCase();
-        this.captchaCode = captchaHash(item);
-        this.inUse = true;
+        return item.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the card of an item, sharing one card between every caller asking for the same item. A card can't change, so it is safe to
+     * hold the same card in many places; a deck of a million cards drawn from a few thousand items then holds a few thousand cards.
+     * <br><br>
+     * The shared cards live in a table of fixed size. A card whose item hashes to the same slot as another takes its place, so a later
+     * call for the other item creates a new card, but no card is ever dropped from somewhere it is still held. Finding a shared card
+     * does not allocate.
+     *
+     * @param item
+     *         The name of the item stored
+     * @return a card of the item, equal in every field to {@code new Card(item)}
+     *
+     * @throws IllegalArgumentException
+     *         if the item parameter is null or too long
+     */
+    public static Card of(String item) throws IllegalArgumentException {
+        if (item == null) throw LOGGER.throwing(new IllegalArgumentException());
+        // the bounds of the name as String#trim would leave it
+        int start = 0;
+        int end   = item.length();
+        while (start < end && item.charAt(start) <= ' ') start++;
+        while (end > start && item.charAt(end - 1) <= ' ') end--;
+        if (end - start > MAX_ITEM_LENGTH) throw LOGGER.throwing(new IllegalArgumentException());
+
+        // an FNV-1a hash of the upper-cased name. names often differ only in their last few characters, which String#hashCode leaves in
+        // its low bits where they collide. only ascii names are shared, since upper-casing any other character may change the name's length
+        int hash = 0x811C9DC5;
+        for (int i = start; i < end; i++) {
+            char c = item.charAt(i);
+            if (c >= 0x80) return new Card(item);
+            hash = (hash ^ ((c >= 'a' && c <= 'z') ? c - ('a' - 'A') : c))*0x01000193;
+        }
+        int  slot   = internSlot(hash);
+        Card shared = INTERNED.get(slot);
+        if (shared != null && shared.holds(item, start, end)) return shared;
+
+        Card card = new Card(item);
+        INTERNED.set(slot, card);
+        return card;
+    }
+
+    /**
+     * Gets the card of an item name read back from storage, which was written from {@link #getItem()} and so is already trimmed and
+     * upper-cased. The name's length isn't checked again: upper-casing can make a name longer than {@link #MAX_ITEM_LENGTH}, such as ß
+     * becoming SS, and the card it was written from was made anyway, only not {@link #isValid() valid}. The card read back is equal to it.
+     *
+     * @param item
+     *         the item name as a card held it
+     * @return a card of the item, shared with {@link #of(String)} if it can be
+     *
+     * @throws IllegalArgumentException
+     *         if the item parameter is null
+     */
+    public static Card ofStored(String item) throws IllegalArgumentException {
+        if (item == null) throw LOGGER.throwing(new IllegalArgumentException());
+        return (item.length() <= MAX_ITEM_LENGTH) ? of(item) : new Card(item, true);
+    }
+
+    /**
+     * Gets the card of an item name already in the form a card holds it, trimmed and upper-cased, from its ascii bytes. Shares cards with
+     * {@link #of(String)}, and likewise does not allocate when a shared card is found.
+     *
+     * @param name
+     *         holds the ascii bytes of the item name
+     * @param offset
+     *         the position of the name's first byte
+     * @param length
+     *         the number of bytes in the name, at most {@link #MAX_ITEM_LENGTH}
+     * @return a card of the item
+     */
+    static Card ofAscii(byte[] name, int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++) hash = (hash ^ name[i])*0x01000193;
+        int  slot   = internSlot(hash);
+        Card shared = INTERNED.get(slot);
+        if (shared != null && shared.holds(name, offset, length)) return shared;
+
+        Card card = new Card(new String(name, offset, length, StandardCharsets.US_ASCII));
+        INTERNED.set(slot, card);
+        return card;
+    }
+
+    private static int internSlot(int hash) {
+        hash ^= hash >>> 15;
+        hash *= 0x2C1B3C6D;
+        hash ^= hash >>> 12;
+        return hash & (INTERN_SLOTS - 1);
+    }
+
+    /**
+     * @return true if this card's item is the ascii bytes within the bounds
+     */
+    private boolean holds(byte[] name, int offset, int length) {
+        if (item.length() != length) return false;
+        for (int i = 0; i < length; i++) if (item.charAt(i) != name[offset + i]) return false;
+        return true;
+    }
+
+    /**
+     * @return true if this card's item is the ascii name within the bounds, upper-cased
+     */
+    private boolean holds(String name, int start, int end) {
+        if (item.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            char c = name.charAt(i);
+            if (item.charAt(i - start) != ((c >= 'a' && c <= 'z') ? c - ('a' - 'A') : c)) return false;
+        }
+        return true;
     }
 
     ///// Getters
@@ -76,7 +252,7 @@ public class Card implements Serializable {
     /**
      * @return the inUse
      */
-    public Boolean isInUse() {
+    public boolean isInUse() {
         return inUse;
     }
 
@@ -87,8 +263,20 @@ public class Card implements Serializable {
      *
      * @return true if valid, false otherwise
      */
-    public Boolean isValid() {
-        return this.item != null && this.item.length() <= MAX_ITEM_LENGTH && this.captchaCode.matches(REQ_CAPTCHA_REGEX);
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Checks a captcha code the way the pattern {@code ^[\w\d]{0,7}$} would, without a regex.
+     */
+    private static boolean isCaptchaCode(String code) {
+        if (code.length() > CAPTCHA_LENGTH) return false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_')) return false;
+        }
+        return true;
     }
 
     /**
@@ -96,10 +284,129 @@ public class Card implements Serializable {
      *
      * @param item
      *         the item's name
-     * @return a captchacode derived from the item name
+     * @return a captchacode derived from the item name, {@link #CAPTCHA_LENGTH} characters from [0-9A-Za-z]
+     *
+     * @see #captchaValue(CharSequence)
      */
     public String captchaHash(String item) {
-        return "0000000"; //TODO: add hashing function
+        return captchaCodeOf(captchaValue(item));
+    }
+
+    /**
+     * @return the captcha code spelling out the value in base 62
+     */
+    private static String captchaCodeOf(long value) {
+        char[] code = new char[CAPTCHA_LENGTH];
+        for (int i = CAPTCHA_LENGTH - 1; i >= 0; i--) {
+            code[i] = CAPTCHA_DIGITS[(int) (value%CAPTCHA_DIGITS.length)];
+            value /= CAPTCHA_DIGITS.length;
+        }
+        return new String(code);
+    }
+
+    /**
+     * Hashes an item name to the number its captcha code spells out, in base 62. Since it doesn't allocate, the number rather than the
+     * code is what should be used to index or shard cards on their captcha.
+     * <br><br>
+     * Each character is hashed by looking up a random word for its position and value, a tabulation hash, so that names differing in a
+     * single character differ in every bit. The name is hashed as given, so it should already be trimmed and upper-cased as a card's item
+     * name is.
+     *
+     * @param item
+     *         the item's name
+     * @return a number from 0 inclusive to {@link #CAPTCHA_CODES} exclusive
+     */
+    public static long captchaValue(CharSequence item) {
+        long hash = item.length()*0x9E3779B97F4A7C15L;
+        for (int i = 0; i < item.length(); i++) {
+            char c = item.charAt(i);
+            // item names are at most MAX_ITEM_LENGTH long, but a longer name is still hashed by wrapping around the table
+            int position = (i%MAX_ITEM_LENGTH) << 7;
+            hash ^= CAPTCHA_TABLE[position | (c & 0x7F)];
+            // characters beyond ascii have their high bits multiplied in, since the table only covers the low seven
+            if (c >= 0x80) hash ^= (c >>> 7)*0xC2B2AE3D27D4EB4FL;
+            hash = Long.rotateLeft(hash, 23);
+        }
+        // the finalizer of murmur3, which spreads the bits of the last characters over the whole word
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 1)%CAPTCHA_CODES;
+    }
+
+    /**
+     * Reads a captcha code back to the number it spells out, the inverse of {@link #captchaHash(String)}.
+     *
+     * @param code
+     *         a captcha code
+     * @return the code's value as {@link #captchaValue(CharSequence)} gives it, or -1 if the string is not a captcha code
+     */
+    public static long captchaValueOf(CharSequence code) {
+        if (code.length() != CAPTCHA_LENGTH) return -1;
+        long value = 0;
+        for (int i = 0; i < CAPTCHA_LENGTH; i++) {
+            char c = code.charAt(i);
+            int  digit;
+            if (c >= '0' && c <= '9') digit = c - '0';
+            else if (c >= 'A' && c <= 'Z') digit = 10 + c - 'A';
+            else if (c >= 'a' && c <= 'z') digit = 36 + c - 'a';
+            else return -1;
+            value = value*CAPTCHA_DIGITS.length + digit;
+        }
+        return value;
+    }
+
+    private static long[] captchaTable(Random rng) {
+        long[] table = new long[MAX_ITEM_LENGTH << 7];
+        for (int i = 0; i < table.length; i++) table[i] = rng.nextLong();
+        return table;
+    }
+
+    /**
+     * Two cards are equal if they hold the same item, or if neither holds an item.
+     */
+    @Override
+    public final boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof Card)) return false;
+        Card other = (Card) obj;
+        // the hash of every empty card is 0 and of every other card odd, so it tells the two apart before the item is compared
+        return hash == other.hash && (!inUse || item.equals(other.item));
+    }
+
+    @Override
+    public final int hashCode() {
+        return hash;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("item", item);
+        fields.put("captchaCode", captchaCode);
+        fields.put("inUse", Boolean.valueOf(inUse));
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        Object                     inUse  = fields.get("inUse", null);
+        Object                     item   = fields.get("item", null);
+        if (!Boolean.TRUE.equals(inUse)) {
+            resolved = EMPTY;
+        } else if (item instanceof String && ((String) item).trim().length() <= MAX_ITEM_LENGTH) {
+            resolved = of((String) item);
+        } else {
+            throw new InvalidObjectException("serialized card holds an invalid item: " + item);
+        }
+    }
+
+    /**
+     * @return the card a deserialized card stands for, made by {@link #of(String)} so that its derived fields are filled in
+     */
+    private Object readResolve() {
+        return resolved;
     }
 
     /* (non-Javadoc)
@@ -0,0 +1,84 @@
+package app.model;
+
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The designs a card's back is drawn with. Each design is a randomly drawn gradient, as a {@link CardNode}'s back used to get one of its
+ * own each time it was built; the bank draws {@link #VARIANTS} of them once, from a fixed seed, and a card is given one of them by its
+ * item. So building a card's back no longer draws, prints and parses a new gradient, every card of an item has the same back from one
+ * redraw and one run to the next, and a deck of any size shows no more than {@link #VARIANTS} different backs, which lets the
+ * {@link CardImageCache} draw each just once.
+ * <br><br>
+ * The designs are drawn the first time one is asked for. Gradients are immutable, so the bank can be read from any thread.
+ *
+ * @author Triston Scallan
+ */
+public final class CardBacks {
+    /** the number of designs, a power of two */
+    public static final  int  VARIANTS = 64;
+    /** the seed the designs are drawn from */
+    private static final long SEED     = 0x5EED_CA4DL;
+
+    private CardBacks() {
+    }
+
+    /**
+     * @return which of the designs the card's back is drawn with, from 0 to {@link #VARIANTS}, exclusive
+     */
+    public static int variantOf(Card card) {
+        int hash = card.getItem().hashCode();
+        return (hash ^ (hash >>> 16)) & (VARIANTS - 1);
+    }
+
+    /**
+     * @return the design the card's back is drawn with
+     */
+    @Nonnull
+    public static Paint designOf(Card card) {
+        return Bank.DESIGNS[variantOf(card)];
+    }
+
+    /**
+     * Holds the designs, so that they are only drawn once a card needs one.
+     */
+    private static final class Bank {
+        static final Paint[] DESIGNS = createDesigns();
+
+        private static Paint[] createDesigns() {
+            List<Stop> stops = Arrays.asList(new Stop(0.0, Color.rgb(70, 39, 39)),
+                                             new Stop(0.43959418632119457, Color.rgb(235, 47, 47)),
+                                             new Stop(0.7525456602553742, Color.rgb(255, 64, 185)),
+                                             new Stop(1.0, Color.rgb(252, 197, 197)));
+            Random  rng     = new Random(SEED);
+            Paint[] designs = new Paint[VARIANTS];
+            for (int i = 0; i < designs.length; i++) {
+                //Classic default design below.
+                //RadialGradient graphic = new RadialGradient(-90, -0.18, 1.0, 0, 0.476, true, CycleMethod.REPEAT, stops);
+                double r; //value of the radius
+                double n; //value of the focus distance
+                double x = 1; //probability multiplier for the radius. x>1=less lean, x<1=more lean
+                designs[i] = new RadialGradient(
+                        -120 + rng.nextInt(61),         //-120..-60
+                        n = rng.nextDouble()*2 - 1,     //-1..1
+                        rng.nextInt(2),                 //0, 1
+                        rng.nextInt(2),                 //0, 1
+                        //if focus distance is below 0.4, lean to 1 and limit at 0.4. 0.4 .. 1
+                        //if above 0.4, lean to 0.05 and limit at 1. 0.05 .. 1
+                        (n < 0.4)
+                        ? (((r = x*Math.abs(rng.nextGaussian())*-1 + 1) < 0.4) ? r : 0.4)
+                        : (((r = x*Math.abs(rng.nextGaussian()) - 0.05) > 1) ? r : 1),
+                        true, CycleMethod.REPEAT, stops);
+            }
+            return designs;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package app.model;
+
+import javafx.geometry.Bounds;
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.transform.Transform;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Draws cards once, as images, and hands out image views of them from then on. Building a {@link CardNode} lays out two grid panes of
+ * svg paths, labels and fonts, of which a modus only ever shows one side; a redraw that builds a card node per card spends most of its
+ * time doing that. A modus that draws through this cache lays out a card node only the first time a card is drawn with a given look, and
+ * draws an {@link ImageView} of its snapshot every time after. The cache keeps a single card node, {@link CardNode#bind(Card) bound} to
+ * each card it draws, and a view can be rebound to another image, so a redraw of cards already in the cache allocates nothing but the
+ * views it asks for; see {@link CardViewPool} to reuse those too.
+ * <br><br>
+ * Faces are keyed by the card's item, the color of the card and the scale it is drawn at, since each changes the picture. Backs are
+ * keyed by the card's {@link CardBacks#variantOf(Card) back design} and the scale, as every card with the same design has the same
+ * back, so however large the deck there are no more than {@link CardBacks#VARIANTS} backs to draw at a scale. The least recently
+ * drawn images are let go once the cache holds more than {@link #MAX_PIXELS} pixels.
+ * <br><br>
+ * A modus that draws in {@link RenderMode#CANVAS} draws the same images straight onto the display's canvas instead, see
+ * {@link #canvasOf(Pane)}.
+ * <br><br>
+ * Snapshots can only be taken on the JavaFX thread, like the redraws that call into the cache.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+public final class CardImageCache {
+    /** the most pixels the cache holds on to, at four bytes a pixel about 32 MB */
+    public static final  int    MAX_PIXELS   = 8 << 20;
+    /** the color of a card that isn't drawn in a color of its own */
+    private static final Paint  DEFAULT_FILL = Color.RED;
+    /** scales are rounded to this many steps per unit, so that two redraws at the same scale always share an image */
+    private static final double SCALE_STEPS  = 100;
+
+    private final Map<Key, CardImage> images  = new LinkedHashMap<>(64, 0.75f, true);
+    /** the key looked up by each draw, so that drawing a card already in the cache allocates nothing */
+    private final Key                 probe   = new Key();
+    private       long                pixels  = 0;
+    /** the node every card is drawn from, bound to each card in turn. null until the first card is drawn */
+    @CheckForNull
+    private       CardNode            scratch = null;
+
+    /**
+     * @param card
+     *         the card to draw
+     * @param fill
+     *         the color of the card, or null for the default
+     * @param scale
+     *         the scale to draw the card at, 1 being the size of a {@link CardNode}
+     * @return a view of the card's face, its top left corner where the card node's would be at that scale
+     */
+    @Nonnull
+    public ImageView faceOf(Card card, @CheckForNull Paint fill, double scale) {
+        return bindFace(new ImageView(), card, fill, scale);
+    }
+
+    /**
+     * @param card
+     *         the card to draw
+     * @param scale
+     *         the scale to draw the card at, 1 being the size of a {@link CardNode}
+     * @return a view of the card's back, its top left corner where the card node's would be at that scale
+     */
+    @Nonnull
+    public ImageView backOf(Card card, double scale) {
+        return bindBack(new ImageView(), card, scale);
+    }
+
+    /**
+     * Shows the card's face on an existing view, as {@link #faceOf(Card, Paint, double)} would on a new one.
+     *
+     * @return the view
+     */
+    @Nonnull
+    public ImageView bindFace(ImageView view, Card card, @CheckForNull Paint fill, double scale) {
+        return bind(view, imageOf(probe.set(card, false, fill, scale)));
+    }
+
+    /**
+     * Shows the card's back on an existing view, as {@link #backOf(Card, double)} would on a new one.
+     *
+     * @return the view
+     */
+    @Nonnull
+    public ImageView bindBack(ImageView view, Card card, double scale) {
+        return bind(view, imageOf(probe.set(card, true, null, scale)));
+    }
+
+    /**
+     * Draws the card's face onto a canvas, where {@link #faceOf(Card, Paint, double)} would place its view.
+     *
+     * @param x
+     *         where the card's top left corner goes, as a card node's translation would place it
+     * @param y
+     *         where the card's top left corner goes, as a card node's translation would place it
+     */
+    public void drawFace(GraphicsContext gc, Card card, @CheckForNull Paint fill, double scale, double x, double y) {
+        CardImage image = imageOf(probe.set(card, false, fill, scale));
+        gc.drawImage(image.image, x + image.x, y + image.y);
+    }
+
+    /**
+     * Draws the card's back onto a canvas, where {@link #backOf(Card, double)} would place its view.
+     *
+     * @param x
+     *         where the card's top left corner goes, as a card node's translation would place it
+     * @param y
+     *         where the card's top left corner goes, as a card node's translation would place it
+     */
+    public void drawBack(GraphicsContext gc, Card card, double scale, double x, double y) {
+        CardImage image = imageOf(probe.set(card, true, null, scale));
+        gc.drawImage(image.image, x + image.x, y + image.y);
+    }
+
+    /**
+     * Makes a single canvas the display's only child, reusing the one a previous call put there, sizes it to the display and clears it.
+     * Clearing the whole canvas also drops the drawing commands it had queued up, so a redraw doesn't pile onto the ones before it.
+     *
+     * @param display
+     *         the modus display
+     * @return the canvas' graphics context, to draw the display's contents onto
+     */
+    @Nonnull
+    public static GraphicsContext canvasOf(Pane display) {
+        ObservableList<Node> children = display.getChildren();
+        Canvas               canvas;
+        if (children.size() == 1 && children.get(0) instanceof Canvas) {
+            canvas = (Canvas) children.get(0);
+        } else {
+            canvas = new Canvas();
+            children.setAll(canvas);
+        }
+        canvas.setWidth(display.getWidth());
+        canvas.setHeight(display.getHeight());
+
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        return gc;
+    }
+
+    /**
+     * @return the number of images in the cache
+     */
+    public int size() {
+        return images.size();
+    }
+
+    public void clear() {
+        images.clear();
+        pixels = 0;
+    }
+
+    @Nonnull
+    private static ImageView bind(ImageView view, CardImage image) {
+        view.setImage(image.image);
+        view.setX(image.x);
+        view.setY(image.y);
+        return view;
+    }
+
+    /**
+     * @param key
+     *         the key to look up, which may be the {@link #probe}. the cache keeps a copy of it.
+     */
+    @Nonnull
+    private CardImage imageOf(Key key) {
+        CardImage image = images.get(key);
+        if (image == null) {
+            image = draw(key);
+            images.put(key.copy(), image);
+            pixels += (long) image.image.getWidth()*(long) image.image.getHeight();
+            evict();
+        }
+        return image;
+    }
+
+    @Nonnull
+    private CardImage draw(Key key) {
+        if (scratch == null) scratch = new CardNode(key.card);
+        else scratch.bind(key.card);
+        if (key.fill != null) scratch.setFaceFill(key.fill);
+        GridPane side = key.back ? scratch.CARD_BACK : scratch.CARD_FACE;
+
+        // the card's shadow hangs off the top left of its pane, so the image starts where the shadow does rather than at the pane
+        double             scale  = key.scale/SCALE_STEPS;
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        params.setTransform(Transform.scale(scale, scale));
+        WritableImage      image  = side.snapshot(params, null);
+        // read once the snapshot has laid out the pane
+        Bounds             bounds = side.getBoundsInLocal();
+        return new CardImage(image, imageOrigin(bounds.getMinX(), scale), imageOrigin(bounds.getMinY(), scale));
+    }
+
+    /**
+     * Where a snapshot's image starts from the node's origin, along one axis. A snapshot leaves out the node's own transforms, such as a
+     * card pane's translation, and takes its local bounds at the given scale, widened out to whole pixels. So the image starts at the
+     * pixel its scaled bounds start in, which is where a view of it has to start for the card to land where its node would.
+     *
+     * @param localMin
+     *         the least coordinate of the node's local bounds, which include its children's translations, such as the card's shadow
+     * @param scale
+     *         the scale the snapshot was taken at
+     */
+    static double imageOrigin(double localMin, double scale) {
+        return Math.floor(localMin*scale);
+    }
+
+    private void evict() {
+        Iterator<CardImage> eldest = images.values().iterator();
+        // the newest image is always kept, even if it is larger than the whole cache on its own
+        while (pixels > MAX_PIXELS && images.size() > 1) {
+            WritableImage image = eldest.next().image;
+            pixels -= (long) image.getWidth()*(long) image.getHeight();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * A card's snapshot, and where its top left corner lies from the card's.
+     */
+    private static final class CardImage {
+        final WritableImage image;
+        final double        x;
+        final double        y;
+
+        CardImage(WritableImage image, double x, double y) {
+            this.image = image;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /**
+     * A key is only changed while it is the {@link #probe}, the keys of the map are copies that are never changed.
+     */
+    private static final class Key {
+        /** the card to draw. only part of the key for a face, a back is drawn from the first card of its design */
+        Card    card;
+        boolean back;
+        /** the card's back design, for a back */
+        int     variant;
+        @CheckForNull
+        Paint   fill;
+        /** the scale in {@link #SCALE_STEPS} */
+        int     scale;
+
+        @Nonnull
+        Key set(Card card, boolean back, @CheckForNull Paint fill, double scale) {
+            this.card = card;
+            this.back = back;
+            this.variant = back ? CardBacks.variantOf(card) : 0;
+            this.fill = (fill == null || DEFAULT_FILL.equals(fill)) ? null : fill;
+            this.scale = (int) Math.round(scale*SCALE_STEPS);
+            return this;
+        }
+
+        @Nonnull
+        Key copy() {
+            Key copy = new Key();
+            copy.card = card;
+            copy.back = back;
+            copy.variant = variant;
+            copy.fill = fill;
+            copy.scale = scale;
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return back == other.back && scale == other.scale && (back ? variant == other.variant : card.equals(other.card)) &&
+                   Objects.equals(fill, other.fill);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((back ? variant : card.hashCode())*31 + Objects.hashCode(fill))*31 + scale*2 + (back ? 1 : 0);
+        }
+    }
+}
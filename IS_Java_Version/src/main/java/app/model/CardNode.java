@@ -1,9 +1,5 @@
 package app.model;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.VPos;
@@ -17,15 +13,22 @@ import javafx.scene.text.Font;
 /**
  * Describes the graphical representation of a Card object.
  * To use this CARD, simply reference it's constants.
+ * <br><br>
+ * A node can be {@link #bind(Card) bound} to another card, which updates its labels and back in place rather than building a new pair of
+ * grid panes, so a node can be kept and reused to draw one card after another.
+ * <br><br>
+ * A CARD's back is one of the {@link CardBacks} designs, picked by the card's item, rather than a gradient drawn anew for every node.
  * @author Triston Scallan
  *
  */
 public class CardNode {
+	/** the color of a card's face unless {@link #setFaceFill(Paint) set} otherwise */
+	public static final Paint DEFAULT_FACE_FILL = Paint.valueOf("#FF0000");
 	public static final CardNode EMPTY = new CardNode(Card.EMPTY);
 	/**
-	 * 
+	 * the card the node currently shows
 	 */
-	public final Card CARD;
+	private Card card;
 	/**
 	 * 
 	 */
@@ -38,16 +41,48 @@ public class CardNode {
 	 * Scaling factor to resize the CARD on the fly.
 	 */
 	private double cardScaleFactor;
+	//the children of the two sides that change with the card
+	private SVGPath cardFace;
+	private Label itemName;
+	private Label captcha;
+	private SVGPath cardGraphic;
 	
 	/**
 	 * @param card
 	 */
 	public CardNode(Card card) {
-		this.CARD = card;
+		this.card = card;
 		this.CARD_FACE = createCardFront();
 		this.CARD_BACK = createCardBack();
 	}
 
+	/**
+	 * @return the card the node currently shows
+	 */
+	public Card getCard() {
+		return card;
+	}
+
+	/**
+	 * Shows another card on this node: sets the item name and captcha code of the face, gives the back the card's design,
+	 * and puts the face back in its default color.
+	 * @param card the card to show
+	 */
+	public void bind(Card card) {
+		this.card = card;
+		itemName.setText(card.getItem());
+		captcha.setText(card.getCaptchaCode());
+		cardGraphic.setFill(CardBacks.designOf(card));
+		setFaceFill(DEFAULT_FACE_FILL);
+	}
+
+	/**
+	 * @param fill the color of the card's face
+	 */
+	public void setFaceFill(Paint fill) {
+		cardFace.setFill(fill);
+	}
+
 	/**
 	 * @return the cardScaleFactor
 	 */
@@ -97,9 +132,9 @@ public class CardNode {
 		cardShadow.setTranslateY(2.0);
 		node.add(cardShadow, 0, 0);
 		
-		SVGPath cardFace = new SVGPath();
+		cardFace = new SVGPath();
 		cardFace.setContent("M 40 0 L 160 0 L 160 0 L 160 200 L 0 200 L 0 40 L 20 40 L 20 20 L 40 20 Z");
-		cardFace.setFill(Paint.valueOf("#FF0000"));
+		cardFace.setFill(DEFAULT_FACE_FILL);
 		node.add(cardFace, 0, 0);
 		
 		SVGPath pageShadow = new SVGPath();
@@ -117,7 +152,7 @@ public class CardNode {
 		GridPane.setValignment(pageFace, VPos.TOP);
 		node.add(pageFace, 1, 1);
 		
-		Label itemName = new Label(CARD.getItem());
+		itemName = new Label(card.getItem());
 		itemName.setFont(new Font("Courier", 12));
 		itemName.setTextFill(Paint.valueOf("#FFFFFF"));
 		itemName.setPadding(new Insets(0, 2, 2, 2));
@@ -131,7 +166,7 @@ public class CardNode {
 		GridPane.setValignment(captchaBG, VPos.BOTTOM);
 		node.add(captchaBG, 1, 3);
 		
-		Label captcha = new Label(CARD.getCaptchaCode());
+		captcha = new Label(card.getCaptchaCode());
 		captcha.setFont(new Font("CourierStd", 13));
 		GridPane.setHalignment(captcha, HPos.CENTER);
 		GridPane.setValignment(captcha, VPos.CENTER);
@@ -171,29 +206,9 @@ public class CardNode {
 		cardBack.setScaleX(-1);
 		node.add(cardBack, 0, 0);
 		
-		SVGPath cardGraphic = new SVGPath(); //the gradient design of the CARD's back
+		cardGraphic = new SVGPath(); //the gradient design of the CARD's back
 		cardGraphic.setContent("M 40 0 L 160 0 L 160 0 L 160 200 L 0 200 L 0 40 L 20 40 L 20 20 L 40 20 Z");
-		List<Stop> stops = new ArrayList<Stop>();
-				stops.add(new Stop(0.0, Color.rgb(70, 39, 39)));
-				stops.add(new Stop(0.43959418632119457, Color.rgb(235, 47, 47)));
-				stops.add(new Stop(0.7525456602553742, Color.rgb(255, 64, 185)));
-				stops.add(new Stop(1.0, Color.rgb(252, 197, 197)));
-		Random rng = new Random();
-		//Classic default design below.
-		//RadialGradient graphic = new RadialGradient(-90, -0.18, 1.0, 0, 0.476, true, CycleMethod.REPEAT, stops);
-		double r;//value of the radius
-		double n;//value of the focus distance
-		double x = 1; //probability multiplier for the radius. x>1=less lean, x<1=more lean
-		RadialGradient graphic = new RadialGradient(
-				-120 + rng.nextInt(61),		//-120..-60
-				n = rng.nextDouble() * 2 - 1,	//-1..1
-				rng.nextInt(2),				//0, 1
-				rng.nextInt(2),				//0, 1
-				(n < 0.4) ? 
-						((((r = x*Math.abs(rng.nextGaussian()) * -1 + 1) < 0.4) ? r : 0.4)) //if focus distance is below 0.4, lean to 1 and limit at 0.4. 0.4 .. 1
-						: (((r = x*Math.abs(rng.nextGaussian()) - 0.05) > 1) ? r : 1), //if above 0.4, lean to 0.05 and limit at 1. 0.05 .. 1
-				true, CycleMethod.REPEAT, stops);
-		cardGraphic.setFill(Paint.valueOf(graphic.toString()));
+		cardGraphic.setFill(CardBacks.designOf(card));
 		cardGraphic.setScaleX(-0.9);
 		cardGraphic.setScaleY(0.9);
 		cardGraphic.setTranslateX(-2.0);
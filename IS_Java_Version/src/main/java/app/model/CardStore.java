@@ -0,0 +1,460 @@
+package app.model;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * A deck of cards kept in a few primitive arrays rather than as card objects. The item names are packed one after another into a byte
+ * slab, each stored once however many cards hold it, and each card of the deck is an int handle to its name. A million-card deck is then
+ * three arrays for the garbage collector to trace instead of millions of cards and strings.
+ * <br><br>
+ * The store is a {@link List} of cards, so it can stand in wherever a deck is expected, such as behind {@link ModusBuffer#getDeck()} or as
+ * the result of {@link app.modus.Modus#toDeck()}. A card of an ascii name is rebuilt when it is read, shared with every other card of the
+ * same item, which does not allocate once its card is already shared. Any other name keeps the card it was first added with, as does a
+ * name that upper-casing made longer than {@link Card#MAX_ITEM_LENGTH}, which a card can't be made from again.
+ * <br><br>
+ * <b>Slab layout</b>
+ * <pre>
+ * names  one entry per distinct item name, of (unsigned byte length, UTF-8 bytes of the item name)
+ * </pre>
+ * Names are only ever appended. A name no card holds any longer stays in the slab until the store is cleared, which is cheap next to the
+ * cards themselves since a deck's distinct items are few.
+ * <br><br>
+ * <b>Attributes</b>
+ * <br>
+ * Each card of the store can also carry a few attributes a card itself has no room for, such as its item's quantity and size, or the
+ * times a modus placed it. An attribute is a column of ints or longs, parallel to the handles and moved along with them, so that a modus
+ * can total a column without going through a card at a time. A column is only allocated once a card's attribute is first set, until then
+ * every card has the attribute's default. Replacing a card with a card of another item resets its attributes.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+public final class CardStore extends AbstractList<Card> implements RandomAccess {
+    /** the handle of {@link Card#EMPTY}, and of any other card that isn't in use */
+    public static final  int EMPTY_HANDLE     = -1;
+    /** the handle of a null element */
+    public static final  int NULL_HANDLE      = -2;
+    private static final int DEFAULT_CAPACITY = 16;
+    /**
+     * the most bytes a name's length byte can count. upper-casing may grow a name, a character to at most three of three bytes each, so
+     * even so a card's name takes no more than {@code MAX_ITEM_LENGTH*9} bytes in UTF-8, which is under this.
+     */
+    private static final int MAX_NAME_BYTES   = 0xFF;
+
+    /** the name handle of each card of the deck, or one of the special handles */
+    private int[]  handles;
+    private int    size        = 0;
+    private byte[] slab        = new byte[256];
+    private int    slabSize    = 0;
+    /** the position in the slab of each name's length byte, by name handle */
+    private int[]  nameOffsets = new int[DEFAULT_CAPACITY];
+    private int    nameCount   = 0;
+    /** the card of each name that can't be rebuilt from its ascii bytes, by name handle. null for any other name */
+    private Card[] heldCards   = new Card[DEFAULT_CAPACITY];
+    /** open addressed table of name handle + 1 by the hash of the name. 0 marks a free slot. */
+    private int[]  nameTable   = new int[DEFAULT_CAPACITY*2];
+
+    /** the int attribute columns by ordinal, each as long as the handles, or null until the attribute is first set */
+    private final int[][]  intColumns  = new int[IntAttribute.values().length][];
+    /** the long attribute columns by ordinal, each as long as the handles, or null until the attribute is first set */
+    private final long[][] longColumns = new long[LongAttribute.values().length][];
+
+    /**
+     * The int attributes a card of the store can carry.
+     */
+    public enum IntAttribute {
+        /** how many of the item the card stands for, so that a stack of the same item takes one card */
+        QUANTITY(1),
+        /** the "largeness" of the item, in whatever unit the modus measures it */
+        SIZE(0);
+
+        private final int defaultValue;
+
+        IntAttribute(int defaultValue) {
+            this.defaultValue = defaultValue;
+        }
+
+        /**
+         * @return the value of the attribute for a card whose attribute was never set
+         */
+        public int getDefault() {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * The long attributes a card of the store can carry, all 0 for a card whose attribute was never set.
+     */
+    public enum LongAttribute {
+        /** when the card was placed, in milliseconds since the epoch */
+        PLACED_AT,
+        /** how far in time the card has shifted from when it was placed, in milliseconds */
+        TIME_SHIFT
+    }
+
+    public CardStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity
+     *         the number of cards the store can hold before it grows
+     */
+    public CardStore(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        this.handles = new int[capacity];
+    }
+
+    /**
+     * @param cards
+     *         the cards to copy into a new store, in the collection's iteration order
+     * @return a store holding the cards
+     */
+    @Nonnull
+    public static CardStore of(Collection<? extends Card> cards) {
+        CardStore store = new CardStore(cards.size());
+        store.addAll(cards);
+        return store;
+    }
+
+    //****************************** HANDLES **************************************/
+
+    /**
+     * @return the name handle of the card at the index, or {@link #EMPTY_HANDLE} or {@link #NULL_HANDLE}
+     */
+    public int handleAt(int index) {
+        checkIndex(index);
+        return handles[index];
+    }
+
+    /**
+     * @param handle
+     *         a name handle returned by {@link #handleAt(int)}
+     * @return the item name of the handle
+     */
+    @Nonnull
+    public String itemOf(int handle) {
+        if (handle < 0 || handle >= nameCount) throw new IndexOutOfBoundsException("not a name handle: " + handle);
+        int offset = nameOffsets[handle];
+        return new String(slab, offset + 1, slab[offset] & 0xFF, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of distinct item names in the store, which are numbered by the handles from 0 up to this count
+     */
+    public int itemCount() {
+        return nameCount;
+    }
+
+    /**
+     * @return the handle of the card, adding its name to the slab if it isn't there yet
+     */
+    private int handleOf(@CheckForNull Card card) {
+        if (card == null) return NULL_HANDLE;
+        if (!card.isInUse()) return EMPTY_HANDLE;
+        String item = card.getItem();
+
+        // ascii names are hashed and compared straight from the string, the rest are encoded first
+        byte[] encoded = null;
+        for (int i = 0; i < item.length(); i++) {
+            if (item.charAt(i) >= 0x80) {
+                encoded = item.getBytes(StandardCharsets.UTF_8);
+                break;
+            }
+        }
+        int length = (encoded == null) ? item.length() : encoded.length;
+        int hash   = 0x811C9DC5;
+        for (int i = 0; i < length; i++) hash = (hash ^ ((encoded == null) ? item.charAt(i) : encoded[i] & 0xFF))*0x01000193;
+
+        int mask = nameTable.length - 1;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int entry = nameTable[slot];
+            if (entry == 0) break;
+            if (nameEquals(entry - 1, item, encoded, length)) return entry - 1;
+        }
+        return addName(card, encoded, length, hash);
+    }
+
+    private boolean nameEquals(int handle, String item, @CheckForNull byte[] encoded, int length) {
+        int offset = nameOffsets[handle];
+        if ((slab[offset] & 0xFF) != length) return false;
+        for (int i = 0; i < length; i++) {
+            int b = (encoded == null) ? item.charAt(i) : encoded[i] & 0xFF;
+            if ((slab[offset + 1 + i] & 0xFF) != b) return false;
+        }
+        return true;
+    }
+
+    private int addName(Card card, @CheckForNull byte[] encoded, int length, int hash) {
+        String item = card.getItem();
+        if (length > MAX_NAME_BYTES) throw new IllegalArgumentException("item name is too long to store: " + item);
+        if (slabSize + 1 + length > slab.length) slab = Arrays.copyOf(slab, Math.max(slab.length*2, slabSize + 1 + length));
+        if (nameCount == nameOffsets.length) {
+            nameOffsets = Arrays.copyOf(nameOffsets, nameCount*2);
+            heldCards = Arrays.copyOf(heldCards, nameCount*2);
+        }
+
+        int handle = nameCount++;
+        nameOffsets[handle] = slabSize;
+        heldCards[handle] = (encoded == null && length <= Card.MAX_ITEM_LENGTH) ? null : card;
+        slab[slabSize++] = (byte) length;
+        for (int i = 0; i < length; i++) slab[slabSize++] = (encoded == null) ? (byte) item.charAt(i) : encoded[i];
+
+        // the table is kept at most half full, so probes stay short
+        if (nameCount*2 > nameTable.length) {
+            rehash(nameTable.length*2);
+        } else {
+            insert(handle, hash);
+        }
+        return handle;
+    }
+
+    private void insert(int handle, int hash) {
+        int mask = nameTable.length - 1;
+        int slot = spread(hash) & mask;
+        while (nameTable[slot] != 0) slot = (slot + 1) & mask;
+        nameTable[slot] = handle + 1;
+    }
+
+    private void rehash(int tableSize) {
+        nameTable = new int[tableSize];
+        for (int handle = 0; handle < nameCount; handle++) {
+            int offset = nameOffsets[handle];
+            int hash   = 0x811C9DC5;
+            for (int i = offset + 1; i <= offset + (slab[offset] & 0xFF); i++) hash = (hash ^ (slab[i] & 0xFF))*0x01000193;
+            insert(handle, hash);
+        }
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 15;
+        hash *= 0x2C1B3C6D;
+        return hash ^ (hash >>> 12);
+    }
+
+    @CheckForNull
+    private Card cardOf(int handle) {
+        if (handle == EMPTY_HANDLE) return Card.EMPTY;
+        if (handle == NULL_HANDLE) return null;
+        if (heldCards[handle] != null) return heldCards[handle];
+        int offset = nameOffsets[handle];
+        return Card.ofAscii(slab, offset + 1, slab[offset] & 0xFF);
+    }
+
+    //****************************** ATTRIBUTES **************************************/
+
+    public int getInt(IntAttribute attribute, int index) {
+        checkIndex(index);
+        int[] column = intColumns[attribute.ordinal()];
+        return (column == null) ? attribute.defaultValue : column[index];
+    }
+
+    public void setInt(IntAttribute attribute, int index, int value) {
+        checkIndex(index);
+        intColumn(attribute)[index] = value;
+    }
+
+    public long getLong(LongAttribute attribute, int index) {
+        checkIndex(index);
+        long[] column = longColumns[attribute.ordinal()];
+        return (column == null) ? 0 : column[index];
+    }
+
+    public void setLong(LongAttribute attribute, int index, long value) {
+        checkIndex(index);
+        longColumn(attribute)[index] = value;
+    }
+
+    /**
+     * Sets the attribute of every card in the store to the same value.
+     */
+    public void fill(LongAttribute attribute, long value) {
+        Arrays.fill(longColumn(attribute), 0, size, value);
+    }
+
+    /**
+     * @return the total of the attribute over every card in the store
+     */
+    public long sum(IntAttribute attribute) {
+        return sum(attribute, 0, size);
+    }
+
+    /**
+     * @return the total of the attribute over the cards from the index {@code from}, inclusive, to {@code to}, exclusive
+     */
+    public long sum(IntAttribute attribute, int from, int to) {
+        if (from < 0 || to > size || from > to) throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", size: " + size);
+        int[] column = intColumns[attribute.ordinal()];
+        if (column == null) return (long) attribute.defaultValue*(to - from);
+        long total = 0;
+        for (int i = from; i < to; i++) total += column[i];
+        return total;
+    }
+
+    /**
+     * @return the number of cards whose attribute is at least {@code low} and less than {@code high}
+     */
+    public int countBetween(LongAttribute attribute, long low, long high) {
+        long[] column = longColumns[attribute.ordinal()];
+        if (column == null) return (low <= 0 && 0 < high) ? size : 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) if (low <= column[i] && column[i] < high) count++;
+        return count;
+    }
+
+    @Nonnull
+    private int[] intColumn(IntAttribute attribute) {
+        int[] column = intColumns[attribute.ordinal()];
+        if (column == null) {
+            column = intColumns[attribute.ordinal()] = new int[handles.length];
+            if (attribute.defaultValue != 0) Arrays.fill(column, attribute.defaultValue);
+        }
+        return column;
+    }
+
+    @Nonnull
+    private long[] longColumn(LongAttribute attribute) {
+        long[] column = longColumns[attribute.ordinal()];
+        if (column == null) column = longColumns[attribute.ordinal()] = new long[handles.length];
+        return column;
+    }
+
+    /**
+     * Moves the attributes of the cards from the index {@code from} on to the index {@code to}, as the handles are moved.
+     */
+    private void moveAttributes(int from, int to) {
+        for (int[] column : intColumns) if (column != null) System.arraycopy(column, from, column, to, size - from);
+        for (long[] column : longColumns) if (column != null) System.arraycopy(column, from, column, to, size - from);
+    }
+
+    /**
+     * Gives the cards from the index {@code from}, inclusive, to {@code to}, exclusive, the default of every attribute.
+     */
+    private void resetAttributes(int from, int to) {
+        for (IntAttribute attribute : IntAttribute.values()) {
+            int[] column = intColumns[attribute.ordinal()];
+            if (column != null) Arrays.fill(column, from, to, attribute.defaultValue);
+        }
+        for (long[] column : longColumns) if (column != null) Arrays.fill(column, from, to, 0);
+    }
+
+    //****************************** LIST **************************************/
+
+    @Override
+    public Card get(int index) {
+        checkIndex(index);
+        return cardOf(handles[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Card set(int index, Card card) {
+        checkIndex(index);
+        Card previous = cardOf(handles[index]);
+        int  handle   = handleOf(card);
+        if (handle != handles[index]) resetAttributes(index, index + 1);
+        handles[index] = handle;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Card card) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int handle = handleOf(card);
+        ensureCapacity(size + 1);
+        System.arraycopy(handles, index, handles, index + 1, size - index);
+        moveAttributes(index, index + 1);
+        handles[index] = handle;
+        resetAttributes(index, index + 1);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Card> cards) {
+        if (index < 0 || index > size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        int[] added = new int[cards.size()];
+        int   count = 0;
+        for (Card card : cards) added[count++] = handleOf(card);
+        ensureCapacity(size + count);
+        System.arraycopy(handles, index, handles, index + count, size - index);
+        moveAttributes(index, index + count);
+        System.arraycopy(added, 0, handles, index, count);
+        resetAttributes(index, index + count);
+        if (cards instanceof CardStore && cards != this) copyAttributes((CardStore) cards, index, count);
+        size += count;
+        modCount++;
+        return count > 0;
+    }
+
+    /**
+     * Copies the attributes another store gives its cards onto the cards just added from it.
+     */
+    private void copyAttributes(CardStore source, int index, int count) {
+        for (IntAttribute attribute : IntAttribute.values()) {
+            int[] column = source.intColumns[attribute.ordinal()];
+            if (column != null) System.arraycopy(column, 0, intColumn(attribute), index, count);
+        }
+        for (LongAttribute attribute : LongAttribute.values()) {
+            long[] column = source.longColumns[attribute.ordinal()];
+            if (column != null) System.arraycopy(column, 0, longColumn(attribute), index, count);
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Card> cards) {
+        return addAll(size, cards);
+    }
+
+    @Override
+    public Card remove(int index) {
+        checkIndex(index);
+        Card previous = cardOf(handles[index]);
+        removeRange(index, index + 1);
+        return previous;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        System.arraycopy(handles, toIndex, handles, fromIndex, size - toIndex);
+        moveAttributes(toIndex, fromIndex);
+        size -= toIndex - fromIndex;
+        modCount++;
+    }
+
+    /**
+     * Removes every card, and with them every item name in the slab.
+     */
+    @Override
+    public void clear() {
+        size = 0;
+        slabSize = 0;
+        Arrays.fill(heldCards, 0, nameCount, null);
+        nameCount = 0;
+        Arrays.fill(nameTable, 0);
+        modCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= handles.length) return;
+        handles = Arrays.copyOf(handles, Math.max(capacity, Math.max(handles.length*2, DEFAULT_CAPACITY)));
+        for (int i = 0; i < intColumns.length; i++) {
+            if (intColumns[i] != null) intColumns[i] = Arrays.copyOf(intColumns[i], handles.length);
+        }
+        for (int i = 0; i < longColumns.length; i++) {
+            if (longColumns[i] != null) longColumns[i] = Arrays.copyOf(longColumns[i], handles.length);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+}
@@ -0,0 +1,92 @@
+package app.model;
+
+import javafx.collections.ObservableList;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Paint;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the card views of a display from one redraw to the next. A modus numbers the places it draws cards at, its slots, and asks the
+ * pool for the view of each slot; the pool hands back the same view every time, rebound to the card now in that slot, instead of a new
+ * one. With the card images already in the {@link CardImageCache}, a redraw then allocates next to nothing, and the views the display
+ * dropped are no longer left to the garbage collector after every command.
+ * <br><br>
+ * A slot is a place on the display, not a side of a card, so a slot showing a back in one redraw may show a face in the next. Each time a
+ * slot's view is asked for, it is put back at the display's origin at its natural size, and the modus places it anew. A pool is meant
+ * for one display and, like the cache, for the JavaFX thread.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+public final class CardViewPool {
+    private final CardImageCache  imageCache;
+    private final List<ImageView> views = new ArrayList<>();
+
+    /**
+     * @param imageCache
+     *         draws the cards the pool's views show
+     */
+    public CardViewPool(CardImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * @return the slot's view, showing the card's face as {@link CardImageCache#faceOf(Card, Paint, double)} would, untranslated and
+     *         unscaled
+     */
+    @Nonnull
+    public ImageView face(int slot, Card card, @CheckForNull Paint fill, double scale) {
+        return imageCache.bindFace(viewAt(slot), card, fill, scale);
+    }
+
+    /**
+     * @return the slot's view, showing the card's back as {@link CardImageCache#backOf(Card, double)} would, untranslated and unscaled
+     */
+    @Nonnull
+    public ImageView back(int slot, Card card, double scale) {
+        return imageCache.bindBack(viewAt(slot), card, scale);
+    }
+
+    /**
+     * Makes the display show the views of the first slots, in slot order and nothing else. The display's children are only replaced if
+     * they aren't those views already, so a redraw that puts the same cards in the same slots doesn't change the scene graph at all.
+     *
+     * @param count
+     *         the number of slots to show, each of which was asked for since the pool was made
+     */
+    public void showOn(Pane display, int count) {
+        ObservableList<Node> children = display.getChildren();
+        boolean              shown    = children.size() == count;
+        for (int i = 0; shown && i < count; i++) shown = children.get(i) == views.get(i);
+        // copied, as the display must not hold on to a view of the pool's list
+        if (!shown) children.setAll(new ArrayList<>(views.subList(0, count)));
+    }
+
+    /**
+     * @return the number of views the pool holds
+     */
+    public int size() {
+        return views.size();
+    }
+
+    /**
+     * @return the slot's view, cleared of the placement the modus last gave it
+     */
+    @Nonnull
+    ImageView viewAt(int slot) {
+        while (views.size() <= slot) views.add(new ImageView());
+        ImageView view = views.get(slot);
+        view.setTranslateX(0);
+        view.setTranslateY(0);
+        view.setScaleX(1);
+        view.setScaleY(1);
+        return view;
+    }
+}
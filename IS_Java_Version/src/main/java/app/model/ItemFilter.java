@@ -0,0 +1,141 @@
+package app.model;
+
+import javafx.collections.ListChangeListener;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A counting Bloom filter over the item names of the sylladex's deck, which answers "is this item in the deck?" with a certain no or a
+ * probable yes, in constant time and without going through the deck. A lookup of the deck can ask it first, so that looking for an item
+ * the deck doesn't hold returns at once instead of after a scan of every card.
+ * <br><br>
+ * The filter answers for the sylladex's deck only. A modus' own inventory can differ from the deck, the deck may have been deleted or
+ * replaced since the modus last saved, so a modus must not take a no as proof that it doesn't hold an item, only as a sign that the
+ * deck can't tell it where the item is.
+ * <br><br>
+ * The filter follows the deck by listening to its changes: each card that enters the deck increments the item's counters and each card
+ * that leaves decrements them. Counters are four bits, sixteen to a long; a counter that reaches its limit stays there, which can only
+ * make the filter answer yes more often, never no wrongly. When the deck outgrows the filter it is rebuilt from the deck at twice the
+ * size, so that false positives stay at around one lookup in a hundred.
+ * <br><br>
+ * Items are hashed by their {@link Card#captchaValue(CharSequence) captcha value}, so names are compared as a card holds them, trimmed and
+ * upper-cased.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+public final class ItemFilter implements ListChangeListener<Card> {
+    /** the number of counters each item sets, which with {@link #COUNTERS_PER_ITEM} gives about 1% false positives */
+    private static final int HASHES            = 7;
+    private static final int COUNTERS_PER_ITEM = 10;
+    private static final int MIN_CAPACITY      = 64;
+    private static final int COUNTER_BITS      = 4;
+    private static final int COUNTER_MAX       = (1 << COUNTER_BITS) - 1;
+
+    /** the counters, sixteen to a long */
+    private long[] counters;
+    /** the number of counters less one, counters being a power of two */
+    private int    mask;
+    /** the number of items the filter is sized for */
+    private int    capacity;
+    /** the number of cards the filter holds */
+    private int    count    = 0;
+
+    /**
+     * @param deck
+     *         the cards to fill the filter with. the filter doesn't listen to the deck, see {@link #onChanged(Change)}.
+     */
+    public ItemFilter(List<? extends Card> deck) {
+        resize(deck.size());
+        for (Card card : deck) add(card);
+    }
+
+    /**
+     * @param item
+     *         the item name, in any case
+     * @return false if no card of the deck holds the item, true if one probably does
+     */
+    public boolean mightHold(String item) {
+        long hash = spread(Card.captchaValue(item.trim().toUpperCase(Locale.ROOT)));
+        int  h1   = (int) hash;
+        int  h2   = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            if (counter((h1 + i*h2) & mask) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of cards the filter holds, empty cards included
+     */
+    public int size() {
+        return count;
+    }
+
+    //****************************** UPDATE **************************************/
+
+    @Override
+    public void onChanged(Change<? extends Card> change) {
+        while (change.next()) {
+            // a permutation moves cards around without changing which are held, and updates don't change the cards themselves
+            for (Card card : change.getRemoved()) remove(card);
+            for (Card card : change.getAddedSubList()) add(card);
+        }
+        if (count > capacity) {
+            resize(count*2);
+            for (Card card : change.getList()) add(card);
+        }
+    }
+
+    private void resize(int items) {
+        capacity = Math.max(MIN_CAPACITY, items);
+        // round the number of counters up to a power of two, so that an index is a mask away from a hash
+        int counterCount = Integer.highestOneBit(capacity*COUNTERS_PER_ITEM - 1) << 1;
+        counters = new long[counterCount >>> 4];
+        mask = counterCount - 1;
+        count = 0;
+    }
+
+    private void add(@CheckForNull Card card) {
+        count++;
+        if (card != null && card.isInUse()) bump(card.getItem(), 1);
+    }
+
+    private void remove(@CheckForNull Card card) {
+        count--;
+        if (card != null && card.isInUse()) bump(card.getItem(), -1);
+    }
+
+    private void bump(String item, int delta) {
+        long hash = spread(Card.captchaValue(item));
+        int  h1   = (int) hash;
+        int  h2   = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < HASHES; i++) {
+            int index = (h1 + i*h2) & mask;
+            int value = counter(index);
+            // a counter at its limit has lost track of how many items share it, so it is never decremented again
+            if (value == COUNTER_MAX || (delta < 0 && value == 0)) continue;
+            int  shift = (index & 15)*COUNTER_BITS;
+            long word  = counters[index >>> 4] & ~((long) COUNTER_MAX << shift);
+            counters[index >>> 4] = word | ((long) (value + delta) << shift);
+        }
+    }
+
+    private int counter(int index) {
+        return (int) (counters[index >>> 4] >>> ((index & 15)*COUNTER_BITS)) & COUNTER_MAX;
+    }
+
+    /**
+     * A captcha value is a number of well mixed bits short of a long, remixed here so that both halves of the long are good hashes.
+     */
+    private static long spread(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
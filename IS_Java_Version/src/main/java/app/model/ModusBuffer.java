@@ -8,7 +8,9 @@ import javafx.scene.control.TextInputControl;
 import javafx.scene.layout.Pane;
 
 import javax.annotation.Nonnull;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -17,19 +19,26 @@ public class ModusBuffer {
     private final ReadOnlyObjectProperty<? extends Pane>             displayProperty;
     private final ReadOnlyObjectProperty<? extends TextInputControl> textOutputProperty;
     private final ListProperty<Card>                                 deckProperty;
-    private final ListProperty<String>                               openHandProperty;
+    private final OpenHand                                           openHand;
+    private final CaptchaIndex                                       captchaIndex;
+    private final ItemFilter                                         itemFilter;
+    /** the slots of the modus' inventory changed since the modus last drew them, see {@link #markSlotDirty(int)} */
+    private final BitSet                                             dirtySlots      = new BitSet();
     private       Consumer<ModusBuffer>                              inputRedirector = null;
 
     public ModusBuffer(StringProperty modusInputProperty,
                        ReadOnlyObjectProperty<? extends Pane> displayProperty,
                        ReadOnlyObjectProperty<? extends TextInputControl> textOutputProperty,
                        ListProperty<Card> deckProperty,
-                       ListProperty<String> openHandProperty) {
+                       OpenHand openHand) {
         this.modusInputProperty = modusInputProperty;
         this.displayProperty = displayProperty;
         this.textOutputProperty = textOutputProperty;
         this.deckProperty = deckProperty;
-        this.openHandProperty = openHandProperty;
+        this.openHand = openHand;
+        this.captchaIndex = new CaptchaIndex(deckProperty, openHand);
+        this.itemFilter = new ItemFilter(deckProperty);
+        deckProperty.addListener(itemFilter);
     }
 
     public void clearModusInputRedirector() {
@@ -62,8 +71,81 @@ public class ModusBuffer {
         return deckProperty.get();
     }
 
-    public List<String> getOpenHand() {
-        return openHandProperty.get();
+    /**
+     * Brings the sylladex's deck in line with the given deck by changing only the span of cards that differ, rather than clearing the deck
+     * and adding every card back. Listeners of the deck, such as the save journal, then see one small change per modus command.
+     *
+     * @param source
+     *         the deck the sylladex's deck should match, usually the result of {@link app.modus.Modus#toDeck()}
+     */
+    public void syncDeck(List<Card> source) {
+        List<Card> deck = getDeck();
+        synchronized (deck) {
+            int oldSize = deck.size();
+            int newSize = source.size();
+            int prefix  = 0;
+            while (prefix < oldSize && prefix < newSize && Objects.equals(deck.get(prefix), source.get(prefix))) prefix++;
+            int suffix = 0;
+            while (suffix < oldSize - prefix && suffix < newSize - prefix &&
+                   Objects.equals(deck.get(oldSize - 1 - suffix), source.get(newSize - 1 - suffix))) suffix++;
+
+            int oldEnd = oldSize - suffix;
+            int newEnd = newSize - suffix;
+            if (oldEnd - prefix == newEnd - prefix) {
+                // same length span, only replace the cards that changed
+                for (int i = prefix; i < oldEnd; i++) {
+                    if (!Objects.equals(deck.get(i), source.get(i))) deck.set(i, source.get(i));
+                }
+            } else {
+                if (oldEnd > prefix) deck.subList(prefix, oldEnd).clear();
+                if (newEnd > prefix) deck.addAll(prefix, source.subList(prefix, newEnd));
+            }
+        }
+    }
+
+    public OpenHand getOpenHand() {
+        return openHand;
+    }
+
+    /**
+     * @return the index of where each item is held in the deck and the open hand, kept up to date as either changes
+     */
+    public CaptchaIndex getCaptchaIndex() {
+        return captchaIndex;
+    }
+
+    /**
+     * @return a filter that tells at once whether an item is certainly not in the deck, kept up to date as the deck changes
+     */
+    public ItemFilter getItemFilter() {
+        return itemFilter;
+    }
+
+    /**
+     * Reports that a slot of the modus' inventory changed, so that the next {@link app.modus.Modus#drawSlotsToDisplay(ModusBuffer,
+     * BitSet)} redraws it. A slot is a card's position in the modus' {@link app.modus.Modus#toDeck() deck}.
+     */
+    public void markSlotDirty(int slot) {
+        dirtySlots.set(slot);
+    }
+
+    /**
+     * Reports that the slots from {@code from} to {@code to}, exclusive, changed.
+     *
+     * @see #markSlotDirty(int)
+     */
+    public void markSlotsDirty(int from, int to) {
+        dirtySlots.set(from, to);
+    }
+
+    /**
+     * @return the slots reported as changed since the last call, which are no longer reported after it
+     */
+    @Nonnull
+    public BitSet takeDirtySlots() {
+        BitSet slots = (BitSet) dirtySlots.clone();
+        dirtySlots.clear();
+        return slots;
     }
 
     @Nonnull
@@ -0,0 +1,187 @@
+package app.model;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * The sylladex's open hand: the loose items that were taken out of, or thrown out by, the modus. The hand holds the same item any number
+ * of times, and is kept as a count per distinct item rather than as a list, so that a hand filled with the same few items stays as small
+ * as those few items.
+ * <br><br>
+ * Adding, removing and counting an item take constant time, and going through the hand's contents takes time in the number of distinct
+ * items. Distinct items are kept in the order they first entered the hand.
+ * <br><br>
+ * Listeners are told of every change as the difference it made to the count of each item it touched. Adding many items at once, through
+ * {@link #addAll(Collection)}, is one change. The hand is not thread safe, it is meant for the JavaFX thread like the rest of the
+ * sylladex's state.
+ *
+ * @author Triston Scallan
+ */
+@ParametersAreNonnullByDefault
+public final class OpenHand {
+    private final Map<String, Count> counts    = new LinkedHashMap<>();
+    private final List<Listener>     listeners = new ArrayList<>(2);
+    private       int                size      = 0;
+
+    /**
+     * Listens to the changes of an open hand.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param deltas
+         *         the difference the change made to the count of each item it touched, never zero
+         */
+        void onChanged(Map<String, Integer> deltas);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    //****************************** QUERY **************************************/
+
+    /**
+     * @return the number of items in the hand, counting each time an item is held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of distinct items in the hand
+     */
+    public int distinctSize() {
+        return counts.size();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the number of times the hand holds the item
+     */
+    public int countOf(String item) {
+        Count count = counts.get(item);
+        return (count == null) ? 0 : count.value;
+    }
+
+    public boolean contains(String item) {
+        return counts.containsKey(item);
+    }
+
+    /**
+     * @return a view of the distinct items of the hand, in the order they first entered it
+     */
+    @Nonnull
+    public Set<String> distinctItems() {
+        return Collections.unmodifiableSet(counts.keySet());
+    }
+
+    /**
+     * Goes through each distinct item of the hand, in the order they first entered it.
+     *
+     * @param action
+     *         given each item and the number of times the hand holds it
+     */
+    public void forEach(ObjIntConsumer<String> action) {
+        for (Map.Entry<String, Count> entry : counts.entrySet()) action.accept(entry.getKey(), entry.getValue().value);
+    }
+
+    /**
+     * @return every item of the hand, each repeated as many times as the hand holds it
+     */
+    @Nonnull
+    public List<String> toList() {
+        List<String> items = new ArrayList<>(size);
+        forEach((item, count) -> items.addAll(Collections.nCopies(count, item)));
+        return items;
+    }
+
+    //****************************** UPDATE **************************************/
+
+    public void add(String item) {
+        add(item, 1);
+    }
+
+    /**
+     * Adds the item to the hand a number of times, as one change.
+     */
+    public void add(String item, int count) {
+        if (count < 0) throw new IllegalArgumentException("count must not be negative: " + count);
+        if (count == 0) return;
+        increment(item, count);
+        fire(Collections.singletonMap(item, count));
+    }
+
+    /**
+     * Adds every item, as one change.
+     */
+    public void addAll(Collection<String> items) {
+        if (items.isEmpty()) return;
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        for (String item : items) {
+            increment(item, 1);
+            deltas.merge(item, 1, Integer::sum);
+        }
+        fire(deltas);
+    }
+
+    /**
+     * Removes the item from the hand once.
+     *
+     * @return true if the hand held the item
+     */
+    public boolean remove(String item) {
+        if (!counts.containsKey(item)) return false;
+        increment(item, -1);
+        fire(Collections.singletonMap(item, -1));
+        return true;
+    }
+
+    /**
+     * Replaces the contents of the hand with those of another, as one change.
+     */
+    public void setAll(OpenHand hand) {
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        for (Map.Entry<String, Count> entry : counts.entrySet()) deltas.put(entry.getKey(), -entry.getValue().value);
+        hand.forEach((item, count) -> deltas.merge(item, count, Integer::sum));
+        deltas.values().removeIf(delta -> delta == 0);
+
+        counts.clear();
+        size = 0;
+        hand.forEach(this::increment);
+        if (!deltas.isEmpty()) fire(deltas);
+    }
+
+    public void clear() {
+        setAll(new OpenHand());
+    }
+
+    private void increment(String item, int delta) {
+        Count count = counts.get(item);
+        if (count == null) counts.put(item, count = new Count());
+        count.value += delta;
+        if (count.value == 0) counts.remove(item);
+        size += delta;
+    }
+
+    private void fire(Map<String, Integer> deltas) {
+        Map<String, Integer> view = Collections.unmodifiableMap(deltas);
+        for (Listener listener : new ArrayList<>(listeners)) listener.onChanged(view);
+    }
+
+    /**
+     * A mutable count, so that counting an item doesn't box a new integer each time.
+     */
+    private static final class Count {
+        int value;
+    }
+}
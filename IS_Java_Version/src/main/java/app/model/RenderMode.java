@@ -0,0 +1,32 @@
+package app.model;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+
+/**
+ * How a modus puts its cards on the display.
+ *
+ * @author Triston Scallan
+ */
+public enum RenderMode {
+    /** a node per card, which the display lays out and renders. the scene graph grows with the number of cards drawn */
+    NODES,
+    /**
+     * every card drawn onto a single {@link javafx.scene.canvas.Canvas} in one pass, so the display holds one node however many cards
+     * there are. the cards are only pixels then, they can't be picked or styled on their own
+     */
+    CANVAS;
+
+    /**
+     * @param name
+     *         the name of a mode, in any case
+     * @return the mode of that name
+     *
+     * @throws IllegalArgumentException
+     *         if there is no mode of that name
+     */
+    @Nonnull
+    public static RenderMode of(String name) throws IllegalArgumentException {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
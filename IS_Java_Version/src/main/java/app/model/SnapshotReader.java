@@ -0,0 +1,94 @@
+package app.model;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads back a modus' snapshot written by a {@link SnapshotWriter}, in the same order it was written.
+ *
+ * @author Triston Scallan
+ * @see app.modus.Modus#readSnapshot(SnapshotReader)
+ */
+@ParametersAreNonnullByDefault
+public class SnapshotReader {
+    private final DataInputStream in;
+    private final List<Card>      dictionary = new ArrayList<>();
+    private final byte[]          name       = new byte[0xFF];
+
+    /**
+     * @param in
+     *         the stream to read the snapshot from
+     */
+    public SnapshotReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    public boolean readBoolean() throws IOException {
+        return in.readBoolean();
+    }
+
+    public int readInt() throws IOException {
+        return in.readInt();
+    }
+
+    public long readLong() throws IOException {
+        return in.readLong();
+    }
+
+    /**
+     * @throws IOException
+     *         if the varint is malformed or the stream ends
+     */
+    public int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) break;
+                return value;
+            }
+        }
+        throw new IOException("snapshot varint is malformed");
+    }
+
+    /**
+     * @throws IOException
+     *         if the card refers to a name that wasn't written
+     */
+    @Nonnull
+    public Card readCard() throws IOException {
+        int token = readVarint();
+        if (token == 0) return Card.EMPTY;
+        if (token == 1) {
+            int length = in.readUnsignedByte();
+            in.readFully(name, 0, length);
+            // written from a card's item, which upper-casing may have made longer than a new card's name may be
+            Card card = Card.ofStored(new String(name, 0, length, StandardCharsets.UTF_8));
+            dictionary.add(card);
+            return card;
+        }
+        if (token - 2 >= dictionary.size()) throw new IOException("snapshot card points outside the dictionary");
+        return dictionary.get(token - 2);
+    }
+
+    /**
+     * Reads the cards written by {@link SnapshotWriter#writeCards(java.util.Collection)}.
+     *
+     * @return the cards, in the order they were written
+     */
+    @Nonnull
+    public List<Card> readCards() throws IOException {
+        int count = readVarint();
+        // a corrupted count runs out of stream long before it runs out of heap
+        List<Card> cards = new ArrayList<>(Math.min(count, 1 << 16));
+        for (int i = 0; i < count; i++) cards.add(readCard());
+        return cards;
+    }
+}
@@ -0,0 +1,92 @@
+package app.model;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a modus' snapshot, the exact layout of its inventory, in a compact binary form for {@link SnapshotReader} to read back.
+ * <br><br>
+ * Besides the primitives a modus needs to describe its layout, the writer encodes cards against a dictionary of the item names written so
+ * far, so that each card is a single varint after its name's first appearance:
+ * <pre>
+ * 0      {@link Card#EMPTY}
+ * 1      a card of a new item name, followed by (unsigned byte length, UTF-8 bytes of the item name)
+ * 2 + i  a card of the item name at entry i of the dictionary
+ * </pre>
+ *
+ * @author Triston Scallan
+ * @see app.modus.Modus#writeSnapshot(SnapshotWriter)
+ */
+@ParametersAreNonnullByDefault
+public class SnapshotWriter {
+    private final DataOutputStream     out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    /**
+     * @param out
+     *         the stream to write the snapshot to
+     */
+    public SnapshotWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        out.writeBoolean(value);
+    }
+
+    public void writeInt(int value) throws IOException {
+        out.writeInt(value);
+    }
+
+    public void writeLong(long value) throws IOException {
+        out.writeLong(value);
+    }
+
+    /**
+     * Writes a non-negative number in as few bytes as it takes, 7 bits to a byte.
+     */
+    public void writeVarint(int value) throws IOException {
+        if (value < 0) throw new IllegalArgumentException("varint must not be negative: " + value);
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public void writeCard(Card card) throws IOException {
+        if (!card.isInUse()) {
+            writeVarint(0);
+            return;
+        }
+        Integer index = dictionary.get(card.getItem());
+        if (index != null) {
+            writeVarint(2 + index);
+            return;
+        }
+        byte[] name = card.getItem().getBytes(StandardCharsets.UTF_8);
+        if (name.length > 0xFF) throw new IOException("item name is too long for a snapshot: " + card.getItem());
+        dictionary.put(card.getItem(), dictionary.size());
+        writeVarint(1);
+        out.writeByte(name.length);
+        out.write(name);
+    }
+
+    /**
+     * Writes the number of cards, then each card in the collection's iteration order.
+     */
+    public void writeCards(Collection<Card> cards) throws IOException {
+        writeVarint(cards.size());
+        for (Card card : cards) writeCard(card);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,95 @@
+package app.model;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Works out which cards of a stack can be seen on the display. A stack is drawn from its bottom card up, each card a fixed step to the
+ * side of the one below it, so every card but the top one is covered by the cards above it except for a strip as wide as the step. Once
+ * the step is squeezed under a pixel, as it is when a deck is squished to fit the display, that strip stops being visible at all: every
+ * card that lands on the same pixel as the card above it is drawn only to be drawn over.
+ * <br><br>
+ * Keeping only the highest card of each pixel, and only cards that start on the display, leaves at most a card per pixel of the stack's
+ * width and height, however many cards the stack holds. Finding them skips straight from one visible card to the next, so it takes time
+ * in the number of cards found rather than in the size of the stack. Positions are in the display's layout pixels.
+ *
+ * @author Triston Scallan
+ */
+public final class StackViewport {
+    private StackViewport() {
+    }
+
+    /**
+     * @param count
+     *         the number of cards in the stack, bottom card first
+     * @param x
+     *         where the bottom card is placed
+     * @param y
+     *         where the bottom card is placed
+     * @param stepX
+     *         how far each card is placed from the one below it
+     * @param stepY
+     *         how far each card is placed from the one below it
+     * @param width
+     *         the width of the display. cards placed at or past it can't be seen. ignored if not positive, as before the display is
+     *         laid out
+     * @param height
+     *         the height of the display, likewise
+     * @return the indices of the cards that can be seen, bottom card first. the top card is always among them if it is on the display
+     */
+    @Nonnull
+    public static int[] visible(int count, double x, double y, double stepX, double stepY, double width, double height) {
+        int[] visible = new int[Math.min(count, 64)];
+        int   size    = 0;
+        int   i       = count - 1;
+        while (i >= 0) {
+            double  cardX = x + i*stepX;
+            double  cardY = y + i*stepY;
+            boolean pastX = width > 0 && cardX >= width;
+            boolean pastY = height > 0 && cardY >= height;
+            if (pastX || pastY) {
+                // skip to the highest card that starts on the display
+                int onX = pastX ? before(width, x, stepX) : i;
+                int onY = pastY ? before(height, y, stepY) : i;
+                i = Math.min(i - 1, Math.min(onX, onY));
+                continue;
+            }
+
+            if (size == visible.length) visible = Arrays.copyOf(visible, size*2);
+            visible[size++] = i;
+            // the cards below that start on the same pixel as this one show less than a pixel past it, so skip to the first that doesn't
+            double px = Math.floor(cardX);
+            double py = Math.floor(cardY);
+            i = Math.min(i - 1, Math.max(leaving(px, x, stepX), leaving(py, y, stepY)));
+        }
+
+        // the cards were found from the top down
+        int[] bottomFirst = new int[size];
+        for (int j = 0; j < size; j++) bottomFirst[j] = visible[size - 1 - j];
+        return bottomFirst;
+    }
+
+    /**
+     * @return the highest index that a card is placed before the bound at, or -1 if cards only move further past it going down
+     */
+    private static int before(double bound, double origin, double step) {
+        if (step <= 0) return -1;
+        return index(Math.ceil((bound - origin)/step) - 1);
+    }
+
+    /**
+     * @return the highest index that a card is placed off the pixel at, going down, or -1 if none is
+     */
+    private static int leaving(double pixel, double origin, double step) {
+        if (step > 0) return index(Math.ceil((pixel - origin)/step) - 1);
+        if (step < 0) return index(Math.floor((pixel + 1 - origin)/step));
+        return -1;
+    }
+
+    /**
+     * Clamps an index worked out in doubles, which a step of nearly nothing can put far out of an int's range.
+     */
+    private static int index(double index) {
+        return (int) Math.max(-1, Math.min(Integer.MAX_VALUE, index));
+    }
+}
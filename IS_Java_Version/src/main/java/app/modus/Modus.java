@@ -3,7 +3,11 @@ package app.modus;
 import app.model.Card;
 import app.model.Metadata;
 import app.model.ModusBuffer;
+import app.model.SnapshotReader;
+import app.model.SnapshotWriter;
 
+import java.io.IOException;
+import java.util.BitSet;
 import java.util.List;
 
 /**
@@ -62,6 +66,59 @@ public interface Modus {
      */
     void load(ModusBuffer modusBuffer);
 
+    /**
+     * Loads the modus from a deck that this modus saved, without asking the user anything. Used to resume the last session at startup,
+     * when the deck is known to be in this modus' own format. <br>
+     * The default does nothing, so a modus that can't resume starts out empty.
+     *
+     * @param modusBuffer
+     *         the modus buffer holding the deck to load
+     */
+    default void resume(ModusBuffer modusBuffer) {
+    }
+
+    ///// Snapshots
+
+    /**
+     * Whether this modus can write a snapshot of its exact layout with {@link #writeSnapshot(SnapshotWriter)}. A deck only keeps the
+     * modus' cards in the universal list format, which loses whatever layout the modus can't express through a list, such as which folder
+     * a card was filed in or what timeline it went off to.
+     *
+     * @return true if the modus takes snapshots. false by default.
+     */
+    default boolean supportsSnapshot() {
+        return false;
+    }
+
+    /**
+     * Writes the exact internal layout of the modus, for {@link #readSnapshot(SnapshotReader)} to restore it.
+     *
+     * @param out
+     *         the writer to write the snapshot to
+     * @throws IOException
+     *         if the snapshot could not be written
+     * @throws UnsupportedOperationException
+     *         if the modus does not {@link #supportsSnapshot() support snapshots}
+     */
+    default void writeSnapshot(SnapshotWriter out) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not take snapshots");
+    }
+
+    /**
+     * Replaces the inventory of the modus with the layout of a snapshot it wrote, in time linear to the snapshot and without asking the
+     * user anything. The deck is not changed.
+     *
+     * @param in
+     *         the reader of the snapshot
+     * @throws IOException
+     *         if the snapshot is corrupted or doesn't describe a layout of this modus, in which case the inventory is left unchanged
+     * @throws UnsupportedOperationException
+     *         if the modus does not {@link #supportsSnapshot() support snapshots}
+     */
+    default void readSnapshot(SnapshotReader in) throws IOException {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not take snapshots");
+    }
+
     ///// Utility
 
     /**
@@ -76,6 +133,21 @@ public interface Modus {
      */
     void drawToDisplay(ModusBuffer modusBuffer);
 
+    /**
+     * Redraws only the slots of the inventory that changed, for a modus whose command changed a few cards but not the layout. A modus
+     * reports the slots its command changes through {@link ModusBuffer#markSlotDirty(int)} instead of drawing them, and the sylladex
+     * passes them here once the command is done.
+     * <br><br>
+     * A modus that can't redraw part of its display draws all of it, which is what this does unless overridden. An override should do the
+     * same whenever its last full draw no longer matches the display, such as after a resize.
+     *
+     * @param slots
+     *         the positions in the modus' {@link #toDeck() deck} of the cards that changed
+     */
+    default void drawSlotsToDisplay(ModusBuffer modusBuffer, BitSet slots) {
+        drawToDisplay(modusBuffer);
+    }
+
     /**
      * Returns a string that provides a description of what the fetch modus is and what its storage quirk is.
      *
@@ -2,16 +2,19 @@ package app.modus;
 
 import app.model.*;
 import app.util.*;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.*;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Paint;
-import javafx.scene.shape.SVGPath;
 import javafx.scene.text.Font;
 import javafx.util.Pair;
 
 import java.awt.*;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.List;
 import java.util.*;
@@ -30,10 +33,39 @@ import java.util.stream.Collectors;
  */
 @ModusMetatagRunStatus(true)
 public class PentaFile implements Modus {
+    /** the version of the layout written by {@link #writeSnapshot(SnapshotWriter)} */
+    private static final int     SNAPSHOT_VERSION = 1;
+    /** the color of each folder's cards, in folder order */
+    private static final Paint[] FOLDER_COLORS    = {
+            Paint.valueOf(String.format("#%06x", Color.RED.getRGB() & 0x00FFFFFF)),
+            Paint.valueOf(String.format("#%06x", Color.ORANGE.getRGB() & 0x00FFFFFF)),
+            Paint.valueOf(String.format("#%06x", Color.GREEN.getRGB() & 0x00FFFFFF)),
+            Paint.valueOf(String.format("#%06x", Color.BLUE.getRGB() & 0x00FFFFFF)),
+            Paint.valueOf(String.format("#%06x", Color.decode("#A030F0").getRGB() & 0x00FFFFFF))
+    };
     /**
      * provides information about this modus
      */
-    private final Metadata METADATA;
+    private final Metadata       METADATA;
+    /**
+     * images of the cards as drawn by {@link #drawToDisplay(ModusBuffer)}, so that a redraw doesn't rebuild every card's node
+     */
+    private final CardImageCache imageCache  = new CardImageCache();
+    /**
+     * how {@link #drawToDisplay(ModusBuffer)} puts the folders on the display, set by the `render` command
+     */
+    private       RenderMode     renderMode  = RenderMode.NODES;
+    /**
+     * the view of each card slot, kept from one redraw to the next, so that {@link #drawSlotsToDisplay(ModusBuffer, BitSet)} can show
+     * another card in a slot without touching the rest of the display
+     */
+    private final CardViewPool   viewPool    = new CardViewPool(imageCache);
+    /** the display size and card scale of the last full draw, and where it put each slot's card */
+    private       double         drawnWidth  = -1;
+    private       double         drawnHeight = -1;
+    private       double         drawnScale  = 0;
+    private final double[]       drawnX      = new double[25];
+    private final double[]       drawnY      = new double[25];
 
     //5 arrays, each with 5 elements
     private Card[] weapons     = new Card[5];
@@ -84,11 +116,10 @@ public class PentaFile implements Modus {
             String itemName = args[0];
             textOutput.appendText("Attempting to capture " + itemName + "...");
             try {
-                capture(args[0]);       //<< may throw IllegalArgumentException, IllegalStateException
+                capture(args[0], modusBuffer);       //<< may throw IllegalArgumentException, IllegalStateException
                 textOutput.appendText("success.\n");
 
                 save(modusBuffer);
-                drawToDisplay(modusBuffer);
             } catch (IllegalArgumentException | IllegalStateException e) {
                 throw new CommandRuntimeException(e.getMessage(), e);
             }
@@ -107,12 +138,12 @@ public class PentaFile implements Modus {
                 Integer index  = Integer.valueOf(indexString);           //<< may throw NumberFormatException
                 Card[]  folder = findFolderByName(folderName);           //<< may throw NoSuchElementException
                 Card    card   = takeOutCard(index - 1, folder);      //<< may throw IndexOutOfBoundsException
+                modusBuffer.markSlotDirty(slotOf(folder, index - 1));
                 // -- card will be not in use if EMPTY, which a client can legally ask for but wont be added to OpenHand
                 if (card.isInUse()) modusBuffer.getOpenHand().add(card.getItem());
                 textOutput.appendText("success.\n");
 
                 save(modusBuffer);
-                drawToDisplay(modusBuffer);
             } catch (NoSuchElementException e) {
                 throw new CommandRuntimeException(e.getMessage(), e);
             } catch (NumberFormatException e) {
@@ -135,7 +166,6 @@ public class PentaFile implements Modus {
                 textOutput.appendText("success.\n");
 
                 save(modusBuffer);
-                drawToDisplay(modusBuffer);
             } catch (NoSuchElementException | IllegalArgumentException e) {
                 throw new CommandRuntimeException(e.getMessage(), e);
             }
@@ -150,13 +180,17 @@ public class PentaFile implements Modus {
             String itemName = args[0].toUpperCase();
             textOutput.appendText("Retrieving " + itemName + "...");
             try {
-                Card card = takeOutCardByName(itemName);        //<< may throw NoSuchElementException
+                // the deck's filter and index only hint at where the card is, the deck can differ from the folders (after the sylladex's
+                // deck is deleted, for one), so the folders are still scanned when the deck doesn't hold the item
+                int  hint = modusBuffer.getItemFilter().mightHold(itemName)
+                            ? modusBuffer.getCaptchaIndex().firstDeckPosition(itemName)
+                            : -1;
+                Card card = takeOutCardByName(itemName, hint, modusBuffer);  //<< may throw NoSuchElementException
                 // -- card will be not in use if EMPTY, which a client can legally ask for but wont be added to OpenHand
                 if (card.isInUse()) modusBuffer.getOpenHand().add(card.getItem());
                 textOutput.appendText("success.\n");
 
                 save(modusBuffer);
-                drawToDisplay(modusBuffer);
             } catch (NoSuchElementException e) {
                 throw new CommandRuntimeException(e.getMessage(), e);
             }
@@ -164,6 +198,19 @@ public class PentaFile implements Modus {
                                                        "syntax: takeOutCardByName <item>\n\u2022 attempts to take out a CARD based on the given " +
                                                        "item name you gave. item can have spaces in its name."));
 
+        commandMap.put("render", new Pair<>((args, modusBuffer) -> {
+            if (args.length != 1) throw IllegalSyntaxException.ofArgLength(args.length);
+            try {
+                renderMode = RenderMode.of(args[0]);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalSyntaxException("'" + args[0] + "' is not a render mode, use `nodes` or `canvas`", e);
+            }
+            modusBuffer.getTextOutput().appendText("Render mode set to `" + args[0].trim() + "`.\n");
+            drawToDisplay(modusBuffer);
+        },
+                                            "syntax: render <mode>\n\u2022 mode `nodes` draws every card as a node of its own." +
+                                            "\n\u2022 mode `canvas` draws the folders onto a single canvas."));
+
         commandMap.put("help", new Pair<>((args, modusBuffer) -> {
             TextArea textOutput = modusBuffer.getTextOutput();
             if (args.length == 0) {
@@ -202,10 +249,7 @@ public class PentaFile implements Modus {
     @Override
     public List<Card> save(ModusBuffer modusBuffer) {
         List<Card> deck = this.toDeck();
-        synchronized (modusBuffer.getDeck()) {
-            modusBuffer.getDeck().clear();
-            modusBuffer.getDeck().addAll(deck);
-        }
+        modusBuffer.syncDeck(deck);
         return deck;
     }
 
@@ -246,13 +290,7 @@ public class PentaFile implements Modus {
         List<Card> deck = modusBuffer.getDeck();
         ///// automatic loading
         if (mode == 1) {
-            Card[][] folderArray = {weapons, survival, misc, info, keyCritical};
-
-            //load from the deck based as the pattern
-            for (int i = 0; i < 25 && i < deck.size(); i++) {
-                Card card = deck.get(i);
-                folderArray[i/5][i%5] = card;
-            }
+            loadByPattern(deck);
             if (deck.size() > 25) {
                 Alert alert = new Alert(Alert.AlertType.WARNING);
                 alert.setTitle("Manual modus deck loading");
@@ -294,7 +332,61 @@ public class PentaFile implements Modus {
             ///// fast loading
         } else if (mode == 3) {
             //Continually fill up the the modus space with valid cards from deck until out of cards or space
-            for (Card card : deck) if (!(card.isValid() && addCard(card))) break;
+            for (Card card : deck) if (!card.isValid() || addCard(card) < 0) break;
+        }
+    }
+
+    @Override
+    public void resume(ModusBuffer modusBuffer) {
+        Card freshCard = Card.EMPTY;    //empty CARD
+        Arrays.fill(weapons, freshCard);
+        Arrays.fill(survival, freshCard);
+        Arrays.fill(misc, freshCard);
+        Arrays.fill(info, freshCard);
+        Arrays.fill(keyCritical, freshCard);
+        loadByPattern(modusBuffer.getDeck());
+    }
+
+    @Override
+    public boolean supportsSnapshot() {
+        return true;
+    }
+
+    /**
+     * Writes the version, then the cards of each folder in order.
+     */
+    @Override
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeVarint(SNAPSHOT_VERSION);
+        for (Card[] folder : new Card[][]{weapons, survival, misc, info, keyCritical}) {
+            for (Card card : folder) out.writeCard(card);
+        }
+    }
+
+    @Override
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        if (in.readVarint() != SNAPSHOT_VERSION) throw new IOException("unknown PentaFile snapshot version");
+        Card[][] folderArray = new Card[5][5];
+        for (Card[] folder : folderArray) {
+            for (int i = 0; i < folder.length; i++) folder[i] = in.readCard();
+        }
+        weapons = folderArray[0];
+        survival = folderArray[1];
+        misc = folderArray[2];
+        info = folderArray[3];
+        keyCritical = folderArray[4];
+    }
+
+    /**
+     * Loads the first 25 cards of the deck into the folders in the order {@link #toDeck()} saves them, 5 cards to a folder.
+     */
+    private void loadByPattern(List<Card> deck) {
+        Card[][] folderArray = {weapons, survival, misc, info, keyCritical};
+
+        //load from the deck based as the pattern
+        for (int i = 0; i < 25 && i < deck.size(); i++) {
+            Card card = deck.get(i);
+            folderArray[i/5][i%5] = card;
         }
     }
 
@@ -305,15 +397,19 @@ public class PentaFile implements Modus {
      *
      * @param item
      *         the item to create a card from
+     * @param modusBuffer
+     *         told of the slot the card was added to
      * @throws IllegalArgumentException
      *         if the item results in an invalid card
      * @throws IllegalStateException
      *         if there is no available index in the folder to add the new card to
-     * @see app.model.Card#Card(String)
+     * @see app.model.Card#of(String)
      */
-    private void capture(String item) throws IllegalArgumentException, IllegalStateException {
-        Card card = new Card(item);
-        if (!addCard(card)) throw new IllegalStateException("cannot capture at this time. no free space for item");
+    private void capture(String item, ModusBuffer modusBuffer) throws IllegalArgumentException, IllegalStateException {
+        Card card = Card.of(item);
+        int  slot = addCard(card);
+        if (slot < 0) throw new IllegalStateException("cannot capture at this time. no free space for item");
+        modusBuffer.markSlotDirty(slot);
     }
 
     /**
@@ -321,18 +417,18 @@ public class PentaFile implements Modus {
      *
      * @param card
      *         the card to add
-     * @return true if the card was added to a folder, false if all folders are full
+     * @return the slot the card was added to, as in {@link #convertToSingleArray()}, or -1 if all folders are full
      */
-    private Boolean addCard(Card card) {
+    private int addCard(Card card) {
         Card[] omniFolder = convertToSingleArray();
         for (int i = 0; i < 25; i++) {
             //add card to the location of the first found empty card
             if (omniFolder[i] == Card.EMPTY) {
                 (new Card[][]{weapons, survival, misc, info, keyCritical})[i/5][i%5] = card;
-                return true;
+                return i;
             }
         }
-        return false;
+        return -1;
     }
 
     /**
@@ -343,12 +439,12 @@ public class PentaFile implements Modus {
      * @param folder
      *         the Card array to be inserted into
      * @param modusBuffer
-     *         the modusBuffer to interface with
+     *         the modusBuffer to interface with, told of the slots that changed
      * @throws IllegalArgumentException
      *         if the item creates and invalid card
      */
     private void captureByFolder(String item, Card[] folder, ModusBuffer modusBuffer) throws IllegalArgumentException {
-        Card card = new Card(item);
+        Card card = Card.of(item);
         if (!card.isValid()) throw new IllegalArgumentException(String.format("item '%s' created invalid card", item));
 
         int index = findFolderSpace(folder);
@@ -356,8 +452,10 @@ public class PentaFile implements Modus {
             List<String> ejectedItems = explodeFolder(folder).stream().map(Card::getItem).collect(Collectors.toList());
             folder[0] = card;
             modusBuffer.getOpenHand().addAll(ejectedItems);
+            modusBuffer.markSlotsDirty(slotOf(folder, 0), slotOf(folder, 0) + 5);
         } else {
             folder[index] = card;
+            modusBuffer.markSlotDirty(slotOf(folder, index));
         }
     }
 
@@ -384,18 +482,31 @@ public class PentaFile implements Modus {
      *
      * @param itemName
      *         the item key
+     * @param hint
+     *         where the card is expected to be, as the sylladex deck's {@link app.model.CaptchaIndex} has it. the deck holds the folders
+     *         in the same order as {@link #convertToSingleArray()}, so this is the card's index there. ignored if it is -1 or the card
+     *         isn't there.
+     * @param modusBuffer
+     *         told of the slot the card was taken from
      * @return a CARD matching the key
      *
      * @throws NoSuchElementException
      *         if no card was found
      */
-    private Card takeOutCardByName(String itemName) throws NoSuchElementException {
+    private Card takeOutCardByName(String itemName, int hint, ModusBuffer modusBuffer) throws NoSuchElementException {
         Card[] omniFolder = convertToSingleArray();
+        if (0 <= hint && hint < 25 && omniFolder[hint].getItem().equals(itemName)) {
+            Card result = omniFolder[hint];
+            (new Card[][]{weapons, survival, misc, info, keyCritical})[hint/5][hint%5] = Card.EMPTY;
+            modusBuffer.markSlotDirty(hint);
+            return result;
+        }
         for (int i = 0; i < 25; i++) {
             if (omniFolder[i].getItem().equals(itemName)) {
                 //retrieve the card and replace it with an empty card.
                 Card result = omniFolder[i];
                 (new Card[][]{weapons, survival, misc, info, keyCritical})[i/5][i%5] = Card.EMPTY;
+                modusBuffer.markSlotDirty(i);
                 return result;
             }
         }
@@ -454,6 +565,21 @@ public class PentaFile implements Modus {
                        .orElseThrow(() -> new NoSuchElementException("'" + givenFolder + "' is not a valid folder"));
     }
 
+    /**
+     * @param folder
+     *         one of the folder arrays
+     * @param index
+     *         an index within the folder
+     * @return the slot of the card at the index, as in {@link #convertToSingleArray()}
+     */
+    private int slotOf(Card[] folder, int index) {
+        Card[][] folderArray = {weapons, survival, misc, info, keyCritical};
+        for (int i = 0; i < folderArray.length; i++) {
+            if (folderArray[i] == folder) return i*5 + index;
+        }
+        throw new NoSuchElementException("not a folder of this modus");
+    }
+
     /**
      * merges the 5 folders into a single array.
      *
@@ -487,13 +613,31 @@ public class PentaFile implements Modus {
         double   Y_OFFSET        = cardExample.CARD_FACE.getMaxHeight();
         double   Y_MARGIN        = (dHeight - ((Y_OFFSET*N_CARDS)*SCALE_FACTOR + Y_TRANSLATE))/(N_CARDS - 1);
         Card[]   omnifolder      = convertToSingleArray();
-        Paint[] folderColors = {
-                Paint.valueOf(String.format("#%06x", Color.RED.getRGB() & 0x00FFFFFF)),
-                Paint.valueOf(String.format("#%06x", Color.ORANGE.getRGB() & 0x00FFFFFF)),
-                Paint.valueOf(String.format("#%06x", Color.GREEN.getRGB() & 0x00FFFFFF)),
-                Paint.valueOf(String.format("#%06x", Color.BLUE.getRGB() & 0x00FFFFFF)),
-                Paint.valueOf(String.format("#%06x", Color.decode("#A030F0").getRGB() & 0x00FFFFFF))
-        };
+        Paint[]  folderColors    = FOLDER_COLORS;
+
+        //every card is drawn below, so none are left to redraw
+        modusBuffer.takeDirtySlots();
+        drawnWidth = dWidth;
+        drawnHeight = dHeight;
+        drawnScale = SCALE_FACTOR;
+
+        if (renderMode == RenderMode.CANVAS) {
+            //the same layout, the folder labels and cards drawn onto one canvas in a single pass
+            GraphicsContext gc          = CardImageCache.canvasOf(display);
+            String[]        folderNames = {"weapons", "survival", "misc", "info", "keyCritical"};
+            gc.setFont(new Font("Courier", 10));
+            gc.setFill(javafx.scene.paint.Color.BLACK);
+            gc.setTextBaseline(VPos.TOP);
+            for (int i = 0; i < 5; i++) {
+                for (int j = 0; j < 5; j++) {
+                    double xCardCoord = (i*X_OFFSET + j*NTH_CARD_OFFSET)*SCALE_FACTOR + (i*X_MARGIN) + X_TRANSLATE;
+                    double yCardCoord = (j*Y_OFFSET)*SCALE_FACTOR + (j*Y_MARGIN) + Y_TRANSLATE;
+                    if (j == 0) gc.fillText(folderNames[i], xCardCoord, 0);
+                    imageCache.drawFace(gc, omnifolder[i*N_FOLDERS + j], folderColors[i], SCALE_FACTOR, xCardCoord, yCardCoord);
+                }
+            }
+            return;
+        }
 
         //clear the display and then start adding nodes
         display.getChildren().clear();
@@ -517,30 +661,45 @@ public class PentaFile implements Modus {
                 //set the coordinates this loop's CARD should be placed at
                 double xCardCoord = (i*X_OFFSET + j*NTH_CARD_OFFSET)*SCALE_FACTOR + (i*X_MARGIN);
                 double yCardCoord = (j*Y_OFFSET)*SCALE_FACTOR + (j*Y_MARGIN);
-                //create the CARD node to draw
-                CardNode node = new CardNode(omnifolder[i*N_FOLDERS + j]);
-
-                //account for the translation difference caused by scaling from the node's center
-                double widthDiff                = cardExample.CARD_FACE.getMaxWidth()/2; //radius from node to x-planar edge
-                double heightDiff               = cardExample.CARD_FACE.getMaxHeight()/2; //radius from node to y-planar edge
-                double apparentWidthDifference  = widthDiff*SCALE_FACTOR - widthDiff;
-                double apparentHeightDifference = heightDiff*SCALE_FACTOR - heightDiff;
-                double adjustedCardCoordX       = xCardCoord + apparentWidthDifference;
-                double adjustedCardCoordY       = yCardCoord + apparentHeightDifference;
-                node.CARD_FACE.setTranslateX(adjustedCardCoordX + X_TRANSLATE);
-                node.CARD_FACE.setTranslateY(adjustedCardCoordY + Y_TRANSLATE);
-                node.setCardScaleFactor(SCALE_FACTOR);
+                //get the CARD's image, colored by its folder and already at scale, so it is placed by its top left corner
+                ImageView node = viewPool.face(i*N_FOLDERS + j, omnifolder[i*N_FOLDERS + j], folderColors[i], SCALE_FACTOR);
+                node.setTranslateX(xCardCoord + X_TRANSLATE);
+                node.setTranslateY(yCardCoord + Y_TRANSLATE);
+                drawnX[i*N_FOLDERS + j] = node.getTranslateX();
+                drawnY[i*N_FOLDERS + j] = node.getTranslateY();
                 //create label for the folder column
                 if (j == 0) {
                     folderNames.get(i).setTranslateX(xCardCoord + X_TRANSLATE);
                     display.getChildren().add(folderNames.get(i));
                 }
 
-                //re-color the node based on folder
-                ((SVGPath) node.CARD_FACE.getChildren().get(1)).setFill(folderColors[i]);
-
                 //draw the node to display
-                display.getChildren().add(node.CARD_FACE);
+                display.getChildren().add(node);
+            }
+        }
+    }
+
+    /**
+     * Shows each changed card in its slot's view, put back where the last full draw put it, leaving the rest of the display as it is.
+     * Draws the whole display instead if it was last drawn at another size, onto a canvas, or by something else.
+     */
+    @Override
+    public void drawSlotsToDisplay(ModusBuffer modusBuffer, BitSet slots) {
+        Pane display = modusBuffer.getDisplay();
+        if (renderMode != RenderMode.NODES || display.getWidth() != drawnWidth || display.getHeight() != drawnHeight) {
+            drawToDisplay(modusBuffer);
+            return;
+        }
+
+        Card[] omnifolder = convertToSingleArray();
+        for (int slot = slots.nextSetBit(0); 0 <= slot && slot < 25; slot = slots.nextSetBit(slot + 1)) {
+            ImageView view = viewPool.face(slot, omnifolder[slot], FOLDER_COLORS[slot/5], drawnScale);
+            view.setTranslateX(drawnX[slot]);
+            view.setTranslateY(drawnY[slot]);
+            if (view.getParent() != display) {
+                //the display no longer shows the last full draw
+                drawToDisplay(modusBuffer);
+                return;
             }
         }
     }
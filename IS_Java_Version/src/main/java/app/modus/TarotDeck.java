@@ -2,13 +2,15 @@ package app.modus;
 
 import app.model.*;
 import app.util.*;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.TextArea;
-import javafx.scene.layout.GridPane;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.Pane;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Stream;
 
@@ -29,17 +31,25 @@ import java.util.stream.Stream;
  */
 @ModusMetatagRunStatus(true)
 public class TarotDeck implements Modus {
-    private static final Logger      LOGGER      = LogManager.getLogger(TarotDeck.class);
+    private static final Logger         LOGGER           = LogManager.getLogger(TarotDeck.class);
+    /** the version of the layout written by {@link #writeSnapshot(SnapshotWriter)} */
+    private static final int            SNAPSHOT_VERSION = 1;
     /**
      * provides information about this app.modus. private so that inherited classes don't clash with this
      */
-    protected final      Metadata    METADATA;
+    protected final      Metadata       METADATA;
     /**
      * Describes how many times {@link #shuffleDeck(ModusBuffer)} will fully shuffle the cards when invoked.
      */
-    protected            int         SHUFFLE_VAL = 9;
+    protected            int            SHUFFLE_VAL      = 9;
     /** A Stack based data structure */
-    @Nonnull protected   Deque<Card> deck        = new ArrayDeque<>();
+    @Nonnull protected   Deque<Card>    deck             = new ArrayDeque<>();
+    /** images of the cards as drawn by {@link #drawToDisplay(ModusBuffer)}, so that a redraw doesn't rebuild every card's node */
+    private final        CardImageCache imageCache       = new CardImageCache();
+    /** the views of the cards drawn by {@link #drawToDisplay(ModusBuffer)}, kept from one redraw to the next */
+    private final        CardViewPool   viewPool         = new CardViewPool(imageCache);
+    /** how {@link #drawToDisplay(ModusBuffer)} puts the deck on the display, set by the `render` command */
+    @Nonnull private     RenderMode     renderMode       = RenderMode.NODES;
 
     /**
      * Constructor for TarotDeck class
@@ -134,6 +144,22 @@ public class TarotDeck implements Modus {
             drawToDisplay(modusBuffer);
             LOGGER.traceExit();
         }, "syntax: shuffle\\n\\u2022 shuffles the deck " + this.SHUFFLE_VAL + " times.");
+
+        commandMap.put("render", (args, modusBuffer) -> {
+            LOGGER.traceEntry("modus lambda: render -> args={}, modusBuffer={}", args, modusBuffer);
+            if (args.length != 1) throw LOGGER.throwing(IllegalSyntaxException.ofArgLength(args.length));
+            try {
+                renderMode = RenderMode.of(args[0]);
+            } catch (IllegalArgumentException e) {
+                throw LOGGER.throwing(new IllegalSyntaxException("'" + args[0] + "' is not a render mode, use `nodes` or `canvas`", e));
+            }
+            modusBuffer.getTextOutput().appendText("Render mode set to `" + args[0].trim() + "`.\n");
+
+            drawToDisplay(modusBuffer);
+            LOGGER.traceExit();
+        }, "syntax: render <mode>" +
+           "\n\u2022 mode `nodes` draws every card as a node of its own." +
+           "\n\u2022 mode `canvas` draws the whole deck onto a single canvas, which keeps large decks quick to redraw.");
         return commandMap;
     }
 
@@ -150,9 +176,7 @@ public class TarotDeck implements Modus {
     @Override
     public List<Card> save(ModusBuffer modusBuffer) {
         List<Card> modusSourceDeck = this.toDeck();
-        List<Card> syllTargetDeck  = modusBuffer.getDeck();
-        syllTargetDeck.clear();
-        syllTargetDeck.addAll(modusSourceDeck);
+        modusBuffer.syncDeck(modusSourceDeck);
         return modusSourceDeck;
     }
 
@@ -187,10 +211,36 @@ public class TarotDeck implements Modus {
         drawToDisplay(modusBuffer);
     }
 
+    @Override
+    public void resume(ModusBuffer modusBuffer) {
+        // unlike loading `as-is`, which pushes the cards and so reverses them, the deck is kept in the order it was saved
+        this.deck = modusBuffer.getDeck().stream().filter(Card::isValid).collect(ArrayDeque::new, ArrayDeque::add, ArrayDeque::addAll);
+    }
+
+    @Override
+    public boolean supportsSnapshot() {
+        return true;
+    }
+
+    /**
+     * Writes the version, then the cards from the top of the deck down.
+     */
+    @Override
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeVarint(SNAPSHOT_VERSION);
+        out.writeCards(deck);
+    }
+
+    @Override
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        if (in.readVarint() != SNAPSHOT_VERSION) throw new IOException("unknown TarotDeck snapshot version");
+        this.deck = new ArrayDeque<>(in.readCards());
+    }
+
     //******************************** IO ***************************************/
 
     private void capture(String itemName) throws IllegalArgumentException {
-        deck.push(new Card(itemName));
+        deck.push(Card.of(itemName));
     }
 
 
@@ -274,35 +324,35 @@ public class TarotDeck implements Modus {
                                     NTH_CARD_OFFSET_Y*(N_CARDS - 1) +
                                     Y_TRANSLATE*2 - dWidth)/N_CARDS;
 
-        GridPane[]     deckAsNodes  = new GridPane[deck.size()];
-        int            index        = 0;
-        Iterator<Card> deckIterator = deck.descendingIterator();
-        while (deckIterator.hasNext()) {
-            Card   card       = deckIterator.next();
-            double xCardCoord = index*(NTH_CARD_OFFSET_X - SQUISH_ADJUST_X);
-            double yCardCoord = index*(NTH_CARD_OFFSET_Y - SQUISH_ADJUST_Y);
-
-            //create the CARD node to draw
-            CardNode node = new CardNode(card);
-
-            //account for the translation difference caused by scaling from the node's center
-            double widthDiff                = cardExample.CARD_BACK.getMaxWidth()/2; //radius from node to x-planar edge
-            double heightDiff               = cardExample.CARD_BACK.getMaxHeight()/2; //radius from node to y-planar edge
-            double apparentWidthDifference  = widthDiff*SCALE_FACTOR - widthDiff;
-            double apparentHeightDifference = heightDiff*SCALE_FACTOR - heightDiff;
-            double adjustedCardCoordX       = xCardCoord + apparentWidthDifference;
-            double adjustedCardCoordY       = yCardCoord + apparentHeightDifference;
-            node.CARD_FACE.setTranslateX(adjustedCardCoordX + X_TRANSLATE);
-            node.CARD_FACE.setTranslateY(adjustedCardCoordY + Y_TRANSLATE);
-            node.CARD_BACK.setTranslateX(adjustedCardCoordX + X_TRANSLATE);
-            node.CARD_BACK.setTranslateY(adjustedCardCoordY + Y_TRANSLATE);
-            node.setCardScaleFactor(SCALE_FACTOR);
-
-            deckAsNodes[index] = (index + 1 < deck.size()) ? node.CARD_BACK : node.CARD_FACE;
-            index++;
+        //once squished, many cards land on the same pixels; only those that show at least a pixel of their own are drawn
+        int[]           visible      = StackViewport.visible(N_CARDS, X_TRANSLATE, Y_TRANSLATE, NTH_CARD_OFFSET_X - SQUISH_ADJUST_X,
+                                                             NTH_CARD_OFFSET_Y - SQUISH_ADJUST_Y, dWidth, dHeight);
+        GraphicsContext gc           = (renderMode == RenderMode.CANVAS) ? CardImageCache.canvasOf(display) : null;
+        int             drawn        = 0;
+        Iterator<Card>  deckIterator = deck.descendingIterator();
+        for (int index = 0; drawn < visible.length; index++) {
+            Card card = deckIterator.next();
+            if (index != visible[drawn]) continue;
+            double  xCardCoord = index*(NTH_CARD_OFFSET_X - SQUISH_ADJUST_X) + X_TRANSLATE;
+            double  yCardCoord = index*(NTH_CARD_OFFSET_Y - SQUISH_ADJUST_Y) + Y_TRANSLATE;
+            boolean topCard    = index + 1 == N_CARDS;
+
+            if (gc != null) {
+                //the same layout, drawn card by card onto one canvas from the farthest card to the closest
+                if (topCard) imageCache.drawFace(gc, card, null, SCALE_FACTOR, xCardCoord, yCardCoord);
+                else imageCache.drawBack(gc, card, SCALE_FACTOR, xCardCoord, yCardCoord);
+            } else {
+                //get the image of the CARD's back, or of its face for the top card, already at scale so it is placed by its top left corner
+                ImageView node = topCard
+                                 ? viewPool.face(drawn, card, null, SCALE_FACTOR)
+                                 : viewPool.back(drawn, card, SCALE_FACTOR);
+                node.setTranslateX(xCardCoord);
+                node.setTranslateY(yCardCoord);
+            }
+            drawn++;
         }
 
-        display.getChildren().setAll(deckAsNodes);
+        if (gc == null) viewPool.showOn(display, visible.length);
     }
 
     @Override
@@ -319,6 +369,7 @@ public class TarotDeck implements Modus {
 
     @Override
     public List<Card> toDeck() {
-        return new ArrayList<>(deck);
+        // a tarot deck can run to millions of cards, which the store holds as handles to their names
+        return CardStore.of(deck);
     }
 }
@@ -1,10 +1,20 @@
 package app.modus;
 
 import app.model.Card;
+import app.model.CardStore;
+import app.model.CardStore.IntAttribute;
+import app.model.CardStore.LongAttribute;
 import app.model.Metadata;
 import app.model.ModusBuffer;
+import app.model.SnapshotReader;
+import app.model.SnapshotWriter;
+import app.util.CommandMap;
+import app.util.CommandRuntimeException;
+import app.util.IllegalSyntaxException;
 import app.util.ModusCommandMap;
+import javafx.scene.control.TextArea;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -65,6 +75,10 @@ import java.util.stream.Collectors;
  *         </dd>
  */
 public class TimeBox implements Modus {
+    /**
+     * the version of the layout written by {@link #writeSnapshot(SnapshotWriter)}. version 1 had no size or placement time per card.
+     */
+    private static final int           SNAPSHOT_VERSION = 2;
     /**
      * provides information about this app.modus
      */
@@ -77,15 +91,16 @@ public class TimeBox implements Modus {
      * The total number of slots within the timeline. This would be is the "length" of the timeline, and therefore is 0
      * to this value where 0 is inclusive and the value is exclusive.
      */
-    private final Integer           TIMELINE_SIZE   = 25;
+    private final int           TIMELINE_SIZE   = 25;
     /**
-     * The safe that holds all cards that exist in the present moment while the safe is open.
+     * The safe that holds all cards that exist in the present moment while the safe is open. Each card carries the largeness of its
+     * item as its {@link IntAttribute#SIZE} and its absolute timestamp as its {@link LongAttribute#PLACED_AT}.
      */
-    private       List<Card>    timeBox;
+    private       CardStore     timeBox         = new CardStore();
     /**
      * tracks whether the timeBox is "opened"(true) or "closed"(false)
      */
-    private       Boolean       boxState        = false;
+    private       boolean       boxState        = false;
     /**
      * Represents the temporal offset the box considers itself in. This value is used in determining when a timeline is
      * in sync with the box in order for that timeline's cards to appear in the box when the box is opened. i.e. if
@@ -94,7 +109,7 @@ public class TimeBox implements Modus {
      * <p>
      * The default value is TIMELINE_SIZE/2 (a.k.a. "present time").
      */
-    private       Integer           boxChronalState = TIMELINE_SIZE/2;
+    private       int           boxChronalState = TIMELINE_SIZE/2;
 
 
     /**
@@ -111,29 +126,36 @@ public class TimeBox implements Modus {
         //the range of temporal slots. starts from 0 up to TIMELINE_SIZE (exclusive).
         private final int        range;
         //the collection of items within this timeline
-        private final List<Card> timelineDeck;
+        private final CardStore  timelineDeck;
         //the absolute temporal slot that the collection exists on.
         private       int        slot = -1;
 
         Timeline() {
-            timelineDeck = new ArrayList<>();
+            timelineDeck = new CardStore();
             range = TIMELINE_SIZE;
             chronoShift();
         }
 
-        Timeline(List<Card> deck) {
+        Timeline(CardStore deck) {
             timelineDeck = deck;
             range = TIMELINE_SIZE;
             chronoShift();
         }
 
-        Timeline(List<Card> deck, int range) {
+        Timeline(CardStore deck, int range) {
             timelineDeck = deck;
             this.range = range;
             chronoShift();
         }
 
-        Optional<List<Card>> chronoCollapse(int chosenSlot) {
+        //restores a timeline to the slot it was observed in, rather than shifting it
+        Timeline(CardStore deck, int range, int slot) {
+            timelineDeck = deck;
+            this.range = range;
+            this.slot = slot;
+        }
+
+        Optional<CardStore> chronoCollapse(int chosenSlot) {
             return Optional.ofNullable((this.slot == chosenSlot) ? timelineDeck : null);
         }
 
@@ -184,7 +206,55 @@ public class TimeBox implements Modus {
     }
 
     private ModusCommandMap createFunctionMap() {
-        return null;
+        ModusCommandMap commandMap = new ModusCommandMap(CommandMap.Case.INSENSITIVE);
+        commandMap.put("open", (args, modusBuffer) -> {
+            TextArea textOutput = modusBuffer.getTextOutput();
+            if (isBoxOpen()) throw new CommandRuntimeException("box is already open.");
+            openBox();
+            textOutput.appendText("Opened the box, " + timeBox.size() + " items are inside.\n");
+        }, "syntax: open\n\u2022 opens the box, showing whichever items exist at the present time.");
+
+        commandMap.put("close", (args, modusBuffer) -> {
+            TextArea textOutput = modusBuffer.getTextOutput();
+            if (!isBoxOpen()) throw new CommandRuntimeException("box is already closed.");
+            int  count     = timeBox.size();
+            long largeness = timeBox.sum(IntAttribute.SIZE);
+            closeBox();
+            textOutput.appendText("Closed the box on " + count + " items of total largeness " + largeness + ".\n");
+        }, "syntax: close\n\u2022 closes the box. the items inside become one entity, placed at the present time.");
+
+        commandMap.put("capture", (args, modusBuffer) -> {
+            if (args.length != 2) throw IllegalSyntaxException.ofArgLength(args.length);
+            TextArea textOutput = modusBuffer.getTextOutput();
+            String   itemName   = args[0];
+            String   sizeString = args[1];
+            textOutput.appendText("Attempting to capture " + itemName + "...");
+            try {
+                int size = Integer.parseInt(sizeString);        //<< may throw NumberFormatException
+                if (!capture(itemName, size)) throw new CommandRuntimeException("box is closed or " + itemName + " is not an item.");
+                textOutput.appendText("success.\n");
+            } catch (NumberFormatException e) {
+                throw new CommandRuntimeException(sizeString + " is not a number", e);
+            } catch (IllegalArgumentException e) {
+                throw new CommandRuntimeException(e.getMessage(), e);
+            }
+        }, "syntax: capture <item>, <size>\n\u2022 places the item in the open box, tagged with its largeness.");
+
+        commandMap.put("takeOutCard", (args, modusBuffer) -> {
+            if (args.length != 1) throw IllegalSyntaxException.ofArgLength(args.length);
+            TextArea textOutput = modusBuffer.getTextOutput();
+            String   itemName   = args[0];
+            textOutput.appendText("Retrieving " + itemName + "...");
+            try {
+                Card card = takeOutCard(itemName);              //<< may throw IllegalStateException
+                if (!card.isInUse()) throw new CommandRuntimeException(itemName + " is not in the box right now.");
+                modusBuffer.getOpenHand().add(card.getItem());
+                textOutput.appendText("success.\n");
+            } catch (IllegalStateException e) {
+                throw new CommandRuntimeException(e.getMessage(), e);
+            }
+        }, "syntax: takeOutCard <item>\n\u2022 takes the item out of the open box, if it exists at the present time.");
+        return commandMap;
     }
 
     //***************************** ACCESS *************************************/
@@ -231,18 +301,90 @@ public class TimeBox implements Modus {
     public void load(ModusBuffer modusBuffer) {
     }
 
+    @Override
+    public boolean supportsSnapshot() {
+        return true;
+    }
+
+    /**
+     * Writes the version, the box's state and chronal state, the cards in the box, then each timeline's range, slot and cards. Each
+     * group of cards is followed by the size and placement time of its cards. Timelines are kept where they were observed, so restoring
+     * a snapshot doesn't count as a time shift.
+     */
+    @Override
+    public void writeSnapshot(SnapshotWriter out) throws IOException {
+        out.writeVarint(SNAPSHOT_VERSION);
+        out.writeBoolean(boxState);
+        out.writeVarint(boxChronalState);
+        out.writeBoolean(true);
+        writeCards(out, timeBox);
+        out.writeVarint(timelines.size());
+        for (Timeline timeline : timelines) {
+            out.writeVarint(timeline.range);
+            out.writeVarint(timeline.slot);
+            writeCards(out, timeline.timelineDeck);
+        }
+    }
+
+    private static void writeCards(SnapshotWriter out, CardStore cards) throws IOException {
+        out.writeCards(cards);
+        for (int i = 0; i < cards.size(); i++) {
+            out.writeVarint(cards.getInt(IntAttribute.SIZE, i));
+            out.writeLong(cards.getLong(LongAttribute.PLACED_AT, i));
+        }
+    }
+
+    /**
+     * Reads a snapshot of either version. Cards of a version 1 snapshot have no size or placement time.
+     */
+    @Override
+    public void readSnapshot(SnapshotReader in) throws IOException {
+        int version = in.readVarint();
+        if (version < 1 || version > SNAPSHOT_VERSION) throw new IOException("unknown TimeBox snapshot version");
+        boolean    state        = in.readBoolean();
+        int        chronalState = in.readVarint();
+        CardStore  box          = in.readBoolean() ? readCards(in, version) : new CardStore();
+        int        count        = in.readVarint();
+        if (chronalState >= TIMELINE_SIZE) throw new IOException("TimeBox snapshot is out of its timeline");
+        Set<Timeline> restored = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            int range = in.readVarint();
+            int slot  = in.readVarint();
+            if (range == 0 || slot >= range) throw new IOException("TimeBox snapshot timeline is out of its range");
+            restored.add(new Timeline(readCards(in, version), range, slot));
+        }
+        boxState = state;
+        boxChronalState = chronalState;
+        timeBox = box;
+        timelines = restored;
+    }
+
+    private static CardStore readCards(SnapshotReader in, int version) throws IOException {
+        CardStore cards = CardStore.of(in.readCards());
+        if (version < 2) return cards;
+        for (int i = 0; i < cards.size(); i++) {
+            cards.setInt(IntAttribute.SIZE, i, in.readVarint());
+            cards.setLong(LongAttribute.PLACED_AT, i, in.readLong());
+        }
+        return cards;
+    }
+
     //********************************** IO ***************************************/
-    private Boolean capture(String item) {
-        Card card = new Card(item);
+    private boolean capture(String item, int size) {
+        if (size < 0) throw new IllegalArgumentException("an item's largeness can't be negative: " + size);
+        Card card = Card.of(item);
         //if invalid CARD
         if (!card.isValid()) return false;
-        return addCard(card);
+        return addCard(card, size);
     }
 
-    private Boolean addCard(Card card) {
-        //if the box door is open, attempt to add CARD
+    private boolean addCard(Card card, int size) {
+        //if the box door is open, attempt to add CARD, tagged with its largeness and when it was placed
         if (!isBoxOpen()) return false;
-        return timeBox.add(card);
+        timeBox.add(card);
+        timeBox.setInt(IntAttribute.SIZE, timeBox.size() - 1, size);
+        timeBox.setLong(LongAttribute.PLACED_AT, timeBox.size() - 1, System.currentTimeMillis());
+        return true;
     }
 
     /**
@@ -253,19 +395,16 @@ public class TimeBox implements Modus {
         //if the box door is open and arg is a String, attempt to retrieve CARD
         if (!isBoxOpen()) throw new IllegalStateException("box is closed; cannot take out card at this time.");
         //TODO: consider updating design with more inherent polymorphic design.
-        for (Card card : timeBox) {
+        for (int i = 0; i < timeBox.size(); i++) {
             //if the itemName matches, remove CARD from the box and return it
-            if (card.getItem().equals(itemName)) {
-                timeBox.remove(card);
-                return card;
-            }
+            if (timeBox.get(i).getItem().equalsIgnoreCase(itemName)) return timeBox.remove(i);
         }
         return new Card();
     }
 
     //****************************** UTILITY ************************************/
 
-    private Boolean isBoxOpen() {
+    private boolean isBoxOpen() {
         return boxState;
     }
 
@@ -273,7 +412,7 @@ public class TimeBox implements Modus {
         //filter out all timelines that collapsed upon opening the box
         boxState = true;
         timelines = timelines.stream().filter(timeline -> {
-            Optional<List<Card>> result = timeline.chronoCollapse(boxChronalState);
+            Optional<CardStore> result = timeline.chronoCollapse(boxChronalState);
             if (result.isPresent()) {
                 //timeline was collapsed, add its cards to the timeBox container
                 timeBox.addAll(result.get());
@@ -285,11 +424,13 @@ public class TimeBox implements Modus {
 
     private void closeBox() {
         boxState = false;
+        //closing the box brings the absolute time of everything inside to the present, making them one entity
+        timeBox.fill(LongAttribute.PLACED_AT, System.currentTimeMillis());
         timelines.add(new Timeline(timeBox)); //pass our timeBox list to a new timeline
-        timeBox = new ArrayList<>(); //set our timeBox variable to a new object reference.
+        timeBox = new CardStore(); //set our timeBox variable to a new object reference.
     }
 
-    public Boolean isEmpty() {
+    public boolean isEmpty() {
         return timelines.isEmpty() && timeBox.isEmpty();
     }
 
@@ -0,0 +1,102 @@
+package app.util;
+
+import java.util.*;
+
+/**
+ * A list that reads through to a read-only source list until it is first modified, at which point it detaches from the source by copying
+ * it into a list of its own. Clearing the list detaches without copying anything.
+ * <br><br>
+ * Used to hand a lazily loaded, read-only deck to code that expects to be able to rewrite the deck in place, without paying for the copy
+ * unless a write actually happens.
+ *
+ * @param <E>
+ *         the type of elements in this list
+ */
+public class DetachableList<E> extends AbstractList<E> implements RandomAccess {
+    private List<E>      source;
+    private ArrayList<E> detached = null;
+
+    /**
+     * @param source
+     *         the list to read through to. it is never modified by this list.
+     */
+    public DetachableList(List<E> source) {
+        this.source = Objects.requireNonNull(source);
+    }
+
+    /**
+     * @return true if this list has been modified and no longer reads from its source
+     */
+    public boolean isDetached() {
+        return detached != null;
+    }
+
+    @Override
+    public E get(int index) {
+        return (detached != null) ? detached.get(index) : source.get(index);
+    }
+
+    @Override
+    public int size() {
+        return (detached != null) ? detached.size() : source.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return detach().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        detach().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        modCount++;
+        return detach().addAll(c);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends E> c) {
+        modCount++;
+        return detach().addAll(index, c);
+    }
+
+    @Override
+    public E remove(int index) {
+        modCount++;
+        return detach().remove(index);
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        modCount++;
+        detach().subList(fromIndex, toIndex).clear();
+    }
+
+    @Override
+    public void clear() {
+        modCount++;
+        if (detached == null) {
+            source = Collections.emptyList();
+            detached = new ArrayList<>();
+        } else {
+            detached.clear();
+        }
+    }
+
+    /**
+     * Copies the source into a list of its own, if this list hasn't already, so that it no longer holds on to the source.
+     *
+     * @return the list this list now reads from and writes to
+     */
+    public List<E> detach() {
+        if (detached == null) {
+            detached = new ArrayList<>(source);
+            source = Collections.emptyList();
+        }
+        return detached;
+    }
+}
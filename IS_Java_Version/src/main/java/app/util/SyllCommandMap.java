@@ -3,34 +3,58 @@ package app.util;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
+
+public class SyllCommandMap extends CommandMap<Consumer<String[]>> {
+    private static final String[] NO_ARGS = new String[0];
 
-public class SyllCommandMap extends CommandMap<Runnable> {
     public SyllCommandMap(Case caseType) {
         super(caseType);
     }
 
     /**
-     * executes the <code>Runnable</code> associated with the given command
+     * executes the command associated with the given command key, with no arguments
      * @param command the command to be used as a key
      * @throws NoSuchCommandException if the given command is associated with null
      */
     public void command(String command) throws NoSuchCommandException {
+        command(command, NO_ARGS);
+    }
+
+    /**
+     * executes the command associated with the given command key
+     * @param command the command to be used as a key
+     * @param args the arguments that followed the command in the input, split on whitespace
+     * @throws NoSuchCommandException if the given command is associated with null
+     */
+    public void command(String command, String[] args) throws NoSuchCommandException {
         Optional.ofNullable(get(command))
                 .orElseThrow(() -> NoSuchCommandException.forCommand(command))
-                .run();
+                .accept(args);
     }
 
     @Override
-    public Runnable put(String key, Runnable value) {
+    public Consumer<String[]> put(String key, Consumer<String[]> value) {
         Objects.requireNonNull(value, "ERROR: SyllCommandMap#put requires a non-null value");
         return super.put(key, value);
     }
 
+    /**
+     * Convenience method for commands that take no arguments. Any arguments given to the command are ignored.
+     * @param key the key to associate with the command
+     * @param value the command to be run
+     * @return the old command associated with the key, if it exists. null otherwise.
+     */
+    public Consumer<String[]> put(String key, Runnable value) {
+        Objects.requireNonNull(value, "ERROR: SyllCommandMap#put requires a non-null value");
+        return put(key, args -> value.run());
+    }
+
     public static boolean isValid(SyllCommandMap map) {
         if (map == null) return false;
-        for(Map.Entry<String, Runnable> entry : map.entrySet()) {
+        for(Map.Entry<String, Consumer<String[]>> entry : map.entrySet()) {
             String commandName = entry.getKey();
-            Runnable commandValue = entry.getValue();
+            Consumer<String[]> commandValue = entry.getValue();
 
             //Name is empty or command is null -> return false
             if (commandName != null && commandName.isEmpty() ||
@@ -0,0 +1,97 @@
+package app.core;
+
+import app.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckArchiveTest {
+    private Path tempDir;
+    private File archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("sylladex-deck-archive-test");
+        archive = tempDir.resolve("decks.archive").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        List<Path> paths = Files.walk(tempDir).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    private static List<String> names(List<DeckArchive.Entry> index) {
+        return index.stream().map(entry -> entry.name).collect(Collectors.toList());
+    }
+
+    @Test
+    void storedDecksAreListedAndLoadedByName() throws Exception {
+        assertTrue(DeckArchive.readIndex(archive).isEmpty());
+        assertNull(DeckArchive.loadDeck(archive, "weapons"));
+
+        DeckArchive.putDeck(archive, "weapons", Arrays.asList(new Card("sword"), Card.EMPTY, new Card("axe")));
+        DeckArchive.putDeck(archive, "tools", Arrays.asList(new Card("hammer"), null, new Card("rope")));
+
+        List<DeckArchive.Entry> index = DeckArchive.readIndex(archive);
+        assertEquals(Arrays.asList("weapons", "tools"), names(index));
+        assertEquals(2, index.get(1).numCards, "null cards are not stored");
+        assertEquals(Arrays.asList("SWORD", null, "AXE"), items(DeckArchive.loadDeck(archive, "weapons")));
+        assertEquals(Arrays.asList("HAMMER", "ROPE"), items(DeckArchive.loadDeck(archive, "tools")));
+        assertNull(DeckArchive.loadDeck(archive, "armor"));
+    }
+
+    @Test
+    void replacedDeckKeepsItsPlaceAndTheOthersAreCopied() throws Exception {
+        DeckArchive.putDeck(archive, "a", Collections.singletonList(new Card("apple")));
+        DeckArchive.putDeck(archive, "b", Collections.singletonList(new Card("bread")));
+        DeckArchive.putDeck(archive, "c", Collections.singletonList(new Card("cheese")));
+        DeckArchive.putDeck(archive, "b", Arrays.asList(new Card("bagel"), new Card("bun")));
+
+        assertEquals(Arrays.asList("a", "b", "c"), names(DeckArchive.readIndex(archive)));
+        assertEquals(Collections.singletonList("APPLE"), items(DeckArchive.loadDeck(archive, "a")));
+        assertEquals(Arrays.asList("BAGEL", "BUN"), items(DeckArchive.loadDeck(archive, "b")));
+        assertEquals(Collections.singletonList("CHEESE"), items(DeckArchive.loadDeck(archive, "c")));
+    }
+
+    @Test
+    void deckLoadsWithoutReadingTheOthers() throws Exception {
+        DeckArchive.putDeck(archive, "first", Collections.singletonList(new Card("sword")));
+        DeckArchive.putDeck(archive, "second", Collections.singletonList(new Card("shield")));
+
+        // corrupting the first deck's bytes leaves the second deck loadable, since only its own bytes are read
+        DeckArchive.Entry first = DeckArchive.find(DeckArchive.readIndex(archive), "first");
+        assertNotNull(first);
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            file.seek(first.offset);
+            file.write(new byte[(int) first.length]);
+        }
+        assertEquals(Collections.singletonList("SHIELD"), items(DeckArchive.loadDeck(archive, "second")));
+        assertThrows(IOException.class, () -> DeckArchive.loadDeck(archive, "first"));
+    }
+
+    @Test
+    void corruptedIndexIsRejected() throws Exception {
+        DeckArchive.putDeck(archive, "weapons", Collections.singletonList(new Card("sword")));
+        try (RandomAccessFile file = new RandomAccessFile(archive, "rw")) {
+            // the last byte of the index, just before the footer
+            file.seek(file.length() - DeckArchive.FOOTER_SIZE - 1);
+            file.write(0x7F);
+        }
+        assertThrows(IOException.class, () -> DeckArchive.readIndex(archive));
+    }
+}
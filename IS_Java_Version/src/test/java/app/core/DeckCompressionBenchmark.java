@@ -0,0 +1,133 @@
+package app.core;
+
+import app.model.Card;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the trade-off between compression ratio and throughput of each {@link FileController.Compression} on synthetic decks. Reports
+ * the bytes per card, the ratio against the uncompressed block format, and the encode and decode throughput in millions of cards per
+ * second. Files are written to memory so that the codecs are measured rather than the disk.
+ * <br><br>
+ * Two deck shapes are generated: a "penta" deck shaped like a PentaFile save, 25 slots per file with few of them filled, and a "mixed"
+ * deck of item names drawn from a skewed distribution with scattered empty slots and occasional runs of the same item.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional list
+ * of deck sizes as arguments. The largest default deck needs a heap of about 1 GB.
+ */
+class DeckCompressionBenchmark {
+    private static final int WARMUP_ROUNDS  = 2;
+    private static final int MEASURE_ROUNDS = 3;
+
+    private interface Encoder {
+        void write(List<Card> deck, ByteArrayOutputStream out) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] deckSizes = {10_000, 100_000, 1_000_000, 10_000_000};
+        if (args.length > 0) {
+            deckSizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) deckSizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-6s %-19s %10s %11s %8s %13s %13s%n", "shape", "compression", "cards", "bytes/card", "ratio", "write Mc/s",
+                          "read Mc/s");
+        for (int deckSize : deckSizes) {
+            for (String shape : new String[]{"penta", "mixed"}) {
+                List<Card> deck      = shape.equals("penta") ? pentaDeck(deckSize, new Random(42)) : mixedDeck(deckSize, new Random(42));
+                long       baseBytes = -1;
+                for (FileController.Compression compression : FileController.Compression.values()) {
+                    Encoder encoder = (compression == FileController.Compression.NONE)
+                                      ? DeckFormat::write
+                                      : (d, out) -> DeckStreamFormat.write(d, d.size(), out,
+                                                                           compression == FileController.Compression.DICTIONARY_DEFLATE);
+                    long bytes = run(shape, compression, deck, encoder, baseBytes);
+                    if (baseBytes < 0) baseBytes = bytes;
+                }
+            }
+        }
+    }
+
+    private static long run(String shape, FileController.Compression compression, List<Card> deck, Encoder encoder, long baseBytes)
+            throws IOException {
+        byte[] file = null;
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            file = encode(deck, encoder);
+            DeckFormat.read(new ByteArrayInputStream(file));
+        }
+        long writeNanos = 0;
+        long readNanos  = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            file = encode(deck, encoder);
+            writeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Card> loaded = DeckFormat.read(new ByteArrayInputStream(file));
+            readNanos += System.nanoTime() - start;
+            if (loaded.size() != deck.size()) throw new IllegalStateException(compression + " lost cards during the round trip");
+        }
+
+        double cards = (double) deck.size()*MEASURE_ROUNDS;
+        System.out.printf("%-6s %-19s %10d %11.3f %8.2f %13.2f %13.2f%n",
+                          shape,
+                          compression.name().toLowerCase(),
+                          deck.size(),
+                          (double) file.length/deck.size(),
+                          (baseBytes < 0) ? 1.0 : (double) baseBytes/file.length,
+                          cards/writeNanos*1e3,
+                          cards/readNanos*1e3);
+        return file.length;
+    }
+
+    private static byte[] encode(List<Card> deck, Encoder encoder) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(deck.size()*2 + 1024);
+        encoder.write(deck, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds a deck laid out like PentaFile saves it: files of 25 slots in which only the first few slots of each folder are filled.
+     */
+    static List<Card> pentaDeck(int size, Random rng) {
+        Card[]     pool = cardPool(500);
+        List<Card> deck = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int slot = i%5;
+            deck.add((slot < 2 && rng.nextInt(3) > 0) ? pool[rng.nextInt(pool.length)] : Card.EMPTY);
+        }
+        return deck;
+    }
+
+    /**
+     * Builds a deck of item names drawn from a skewed distribution, a fifth of the slots empty and one in twenty items captured again
+     * several times in a row.
+     */
+    static List<Card> mixedDeck(int size, Random rng) {
+        Card[]     pool = cardPool(5_000);
+        List<Card> deck = new ArrayList<>(size);
+        while (deck.size() < size) {
+            if (rng.nextInt(5) == 0) {
+                deck.add(Card.EMPTY);
+                continue;
+            }
+            // squaring a uniform draw skews it towards the front of the pool, so a few items are far more common than the rest
+            double draw = rng.nextDouble();
+            Card   card = pool[(int) (draw*draw*pool.length)];
+            int    runs = (rng.nextInt(20) == 0) ? 2 + rng.nextInt(10) : 1;
+            for (int i = 0; i < runs && deck.size() < size; i++) deck.add(card);
+        }
+        return deck;
+    }
+
+    private static Card[] cardPool(int distinctItems) {
+        Card[] pool = new Card[distinctItems];
+        for (int i = 0; i < distinctItems; i++) pool[i] = new Card("item-" + Integer.toString(i, 36));
+        return pool;
+    }
+}
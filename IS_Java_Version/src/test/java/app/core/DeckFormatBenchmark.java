@@ -0,0 +1,82 @@
+package app.core;
+
+import app.model.Card;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the legacy serialized deck files against {@link DeckFormat} files. Reports the file bytes per card and the write and read
+ * throughput in MB/s (of the file produced) for decks of increasing size.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional list
+ * of deck sizes as arguments.
+ */
+class DeckFormatBenchmark {
+    private static final int WARMUP_ROUNDS  = 3;
+    private static final int MEASURE_ROUNDS = 5;
+
+    private interface DeckWriter {
+        void write(List<Card> deck, File file) throws IOException;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int[] deckSizes = {1_000, 100_000, 1_000_000};
+        if (args.length > 0) {
+            deckSizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) deckSizes[i] = Integer.parseInt(args[i]);
+        }
+
+        File file = File.createTempFile("sylladex-benchmark", ".deck");
+        file.deleteOnExit();
+        System.out.printf("%-8s %10s %12s %12s %12s%n", "format", "cards", "bytes/card", "write MB/s", "read MB/s");
+        for (int deckSize : deckSizes) {
+            List<Card> deck = syntheticDeck(deckSize, 2_000, 0.2, new Random(42));
+            run("legacy", deck, file, FileController::writeLegacyDeckToFile);
+            run("binary", deck, file, FileController::writeDeckToFile);
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static void run(String name, List<Card> deck, File file, DeckWriter writer) throws Exception {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            writer.write(deck, file);
+            FileController.loadDeckFromFile(file);
+        }
+        long writeNanos = 0;
+        long readNanos  = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            writer.write(deck, file);
+            writeNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<Card> loaded = FileController.loadDeckFromFile(file);
+            readNanos += System.nanoTime() - start;
+            if (loaded.size() != deck.size()) throw new IllegalStateException(name + " lost cards during the round trip");
+        }
+        double megabytes = file.length()/(1024.0*1024.0)*MEASURE_ROUNDS;
+        System.out.printf("%-8s %10d %12.2f %12.1f %12.1f%n",
+                          name,
+                          deck.size(),
+                          file.length()/(double) deck.size(),
+                          megabytes/(writeNanos/1e9),
+                          megabytes/(readNanos/1e9));
+    }
+
+    /**
+     * Builds a deck drawing item names from a dictionary of {@code distinctItems} names, with roughly {@code emptyRatio} of the slots
+     * left empty. Every slot gets its own card, as it would after capturing each item.
+     */
+    static List<Card> syntheticDeck(int size, int distinctItems, double emptyRatio, Random rng) {
+        List<Card> deck = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            deck.add(rng.nextDouble() < emptyRatio ? Card.EMPTY : new Card("item-" + Integer.toString(rng.nextInt(distinctItems), 36)));
+        }
+        return deck;
+    }
+}
@@ -0,0 +1,147 @@
+package app.core;
+
+import app.model.Card;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckJournalTest {
+    private Path tempDir;
+    private File deckFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("sylladex-deck-journal-test");
+        deckFile = tempDir.resolve("journaled.deck").toFile();
+        FileController.writeDeckToFile(Arrays.asList(new Card("sword"), Card.EMPTY, new Card("hammer")), deckFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        List<Path> paths = Files.walk(tempDir).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    /** loads the deck file as the sylladex does, with the journal attached to the loaded deck */
+    private ObservableList<Card> load(List<DeckJournal> opened) throws Exception {
+        List<Card>  deck    = FileController.loadDeckFromFile(deckFile);
+        DeckJournal journal = DeckJournal.replay(deckFile, deck);
+        opened.add(journal);
+        ObservableList<Card> observed = FXCollections.observableList(deck);
+        observed.addListener(journal);
+        return observed;
+    }
+
+    private static void mutate(List<Card> deck) {
+        deck.add(new Card("axe"));
+        deck.set(1, new Card("shield"));
+        deck.remove(0);
+        deck.addAll(1, Arrays.asList(Card.EMPTY, new Card("bow")));
+    }
+
+    @Test
+    void flushedChangesReplayOntoDeckFile() throws Exception {
+        List<DeckJournal>    opened = new ArrayList<>();
+        ObservableList<Card> deck   = load(opened);
+        mutate(deck);
+        FXCollections.sort(deck, Comparator.comparing(card -> card.isInUse() ? card.getItem() : ""));
+        opened.get(0).flush();
+        opened.get(0).close();
+
+        assertEquals(items(deck), items(load(opened)));
+        assertTrue(opened.get(1).getReplayedRecords() > 0);
+        opened.get(1).close();
+    }
+
+    @Test
+    void replayedJournalKeepsAppending() throws Exception {
+        List<DeckJournal>    opened = new ArrayList<>();
+        ObservableList<Card> first  = load(opened);
+        first.add(new Card("axe"));
+        opened.get(0).flush();
+        opened.get(0).close();
+
+        ObservableList<Card> second = load(opened);
+        second.remove(0);
+        opened.get(1).flush();
+        opened.get(1).close();
+
+        assertEquals(Arrays.asList(null, "HAMMER", "AXE"), items(load(opened)));
+        opened.get(2).close();
+    }
+
+    @Test
+    void namesThatGrowWhenUpperCasedReplay() throws Exception {
+        List<DeckJournal>    opened = new ArrayList<>();
+        ObservableList<Card> deck   = load(opened);
+        deck.add(Card.of("Großer Schlüssel"));
+        deck.set(0, Card.of("ßword ßtand"));
+        opened.get(0).flush();
+        opened.get(0).close();
+
+        assertEquals(deck, load(opened));
+        opened.get(1).close();
+    }
+
+    @Test
+    void tornRecordIsDiscarded() throws Exception {
+        List<DeckJournal>    opened = new ArrayList<>();
+        ObservableList<Card> deck   = load(opened);
+        deck.add(new Card("axe"));
+        List<String> expected = items(deck);
+        deck.add(new Card("bow"));
+        opened.get(0).close();
+        try (RandomAccessFile raf = new RandomAccessFile(DeckJournal.journalFileOf(deckFile), "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+
+        assertEquals(expected, items(load(opened)));
+        opened.get(1).close();
+        assertEquals(expected, items(load(opened)), "the torn record should have been cut off the journal");
+        opened.get(2).close();
+    }
+
+    @Test
+    void journalOfRewrittenDeckFileIsIgnored() throws Exception {
+        List<DeckJournal>    opened = new ArrayList<>();
+        ObservableList<Card> deck   = load(opened);
+        deck.add(new Card("axe"));
+        opened.get(0).flush();
+        opened.get(0).close();
+        FileController.writeDeckToFile(Collections.singletonList(new Card("bow")), deckFile);
+
+        assertFalse(opened.get(0).isJournalOf(deckFile));
+        assertEquals(Collections.singletonList("BOW"), items(load(opened)));
+        opened.get(1).close();
+    }
+
+    @Test
+    void journalAsksForCompactionOnceItOutgrowsDeckFile() throws Exception {
+        List<DeckJournal>    opened  = new ArrayList<>();
+        ObservableList<Card> deck    = load(opened);
+        DeckJournal          journal = opened.get(0);
+        assertTrue(journal.isJournalOf(deckFile));
+        assertFalse(journal.shouldCompact());
+        while (!journal.shouldCompact()) {
+            deck.add(new Card("axe"));
+            deck.remove(deck.size() - 1);
+        }
+        journal.close();
+    }
+}
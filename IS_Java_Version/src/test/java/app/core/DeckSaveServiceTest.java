@@ -0,0 +1,130 @@
+package app.core;
+
+import app.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckSaveServiceTest {
+    private Path            tempDir;
+    private File            deckFile;
+    /** tasks queued for the io thread, run by the test when it chooses */
+    private Queue<Runnable> ioTasks;
+    private List<String>    results;
+    private DeckSaveService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("sylladex-deck-save-service-test");
+        deckFile = tempDir.resolve("saved.deck").toFile();
+        ioTasks = new ArrayDeque<>();
+        results = new ArrayList<>();
+        service = new DeckSaveService(ioTasks::add, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        List<Path> paths = Files.walk(tempDir).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+
+    private void runIoTasks() {
+        while (!ioTasks.isEmpty()) ioTasks.poll().run();
+    }
+
+    private DeckSaveService.SaveListener listener(String name) {
+        return new DeckSaveService.SaveListener() {
+            @Override
+            public void progress(String message) {
+            }
+
+            @Override
+            public void saved(String message) {
+                results.add(name + " saved");
+            }
+
+            @Override
+            public void failed(Exception e) {
+                results.add(name + " failed");
+            }
+        };
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    @Test
+    void nothingIsWrittenUntilTheIoThreadRuns() {
+        service.saveDeck(Collections.singletonList(new Card("sword")), deckFile, null, new DeckJournal(deckFile), listener("first"));
+        assertFalse(deckFile.exists());
+        assertTrue(results.isEmpty());
+
+        runIoTasks();
+        assertTrue(deckFile.isFile());
+        assertEquals(Collections.singletonList("first saved"), results);
+    }
+
+    @Test
+    void queuedSnapshotsAreCombinedIntoTheNewestOne() throws Exception {
+        DeckJournal first  = new DeckJournal(deckFile);
+        DeckJournal second = new DeckJournal(deckFile);
+        service.saveDeck(Collections.singletonList(new Card("sword")), deckFile, null, first, listener("first"));
+        service.saveDeck(Arrays.asList(new Card("sword"), new Card("axe")), deckFile, first, second, listener("second"));
+        runIoTasks();
+
+        assertEquals(Arrays.asList("first saved", "second saved"), results);
+        assertEquals(Arrays.asList("SWORD", "AXE"), items(FileController.loadDeckFromFile(deckFile)));
+        assertTrue(second.isJournalOf(deckFile));
+        assertFalse(first.isJournalOf(deckFile), "the replaced journal should have been closed");
+        second.close();
+    }
+
+    @Test
+    void journalFlushJoinsTheQueuedSaveOfItsJournal() throws Exception {
+        DeckJournal journal = new DeckJournal(deckFile);
+        service.saveDeck(Collections.singletonList(new Card("sword")), deckFile, null, journal, listener("write"));
+        service.saveJournal(journal, listener("flush"));
+        assertEquals(1, ioTasks.size());
+        runIoTasks();
+        assertEquals(Arrays.asList("write saved", "flush saved"), results);
+
+        // a flush of a started journal with nothing queued is its own save
+        service.saveJournal(journal, listener("later flush"));
+        runIoTasks();
+        assertEquals("later flush saved", results.get(2));
+        journal.close();
+    }
+
+    @Test
+    void failedWriteIsReportedAndClosesItsJournal() throws Exception {
+        File        blocked = Files.createDirectory(tempDir.resolve("blocked.deck")).toFile();
+        DeckJournal journal = new DeckJournal(blocked);
+        service.saveDeck(Collections.singletonList(new Card("sword")), blocked, null, journal, listener("write"));
+        runIoTasks();
+
+        assertEquals(Collections.singletonList("write failed"), results);
+        assertFalse(journal.isJournalOf(blocked), "the next save should write the deck in full");
+    }
+
+    @Test
+    void closedJournalCallsBackAfterQueuedSaves() throws Exception {
+        DeckJournal journal = new DeckJournal(deckFile);
+        service.saveDeck(Collections.singletonList(new Card("sword")), deckFile, null, journal, listener("write"));
+        service.closeJournal(journal, () -> results.add("closed"));
+        assertTrue(results.isEmpty(), "closing should not wait for the io thread");
+
+        runIoTasks();
+        assertEquals(Arrays.asList("write saved", "closed"), results);
+        assertFalse(journal.isJournalOf(deckFile));
+    }
+}
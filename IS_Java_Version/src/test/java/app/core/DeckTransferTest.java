@@ -0,0 +1,97 @@
+package app.core;
+
+import app.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckTransferTest {
+    private Path            tempDir;
+    private ExecutorService workers;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("sylladex-deck-transfer-test");
+        workers = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        workers.shutdownNow();
+        List<Path> paths = Files.walk(tempDir).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    private File export(String name, List<Card> deck) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            DeckTransfer.exportDeck(deck, DeckTransfer.Format.of(file), out);
+        }
+        return file;
+    }
+
+    private File write(String name, String contents) throws IOException {
+        return Files.write(tempDir.resolve(name), contents.getBytes(StandardCharsets.UTF_8)).toFile();
+    }
+
+    @Test
+    void exportedDecksImportBackTheSame() throws Exception {
+        List<Card> deck = Arrays.asList(new Card("sword"), Card.EMPTY, new Card("bow, arrows"), new Card("\"big\" axe"), Card.EMPTY);
+        for (String name : new String[]{"deck.csv", "deck.ndjson"}) {
+            File file = export(name, deck);
+            assertEquals(items(deck), items(DeckTransfer.importDeck(file, DeckTransfer.Format.of(file), 16, workers)), name);
+        }
+    }
+
+    @Test
+    void chunksAreParsedInParallelAndKeptInOrder() throws Exception {
+        List<Card> deck = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) deck.add((i%7 == 0) ? Card.EMPTY : new Card("item-" + i));
+        File file = export("large.csv", deck);
+
+        assertEquals(items(deck), items(DeckTransfer.importDeck(file, DeckTransfer.Format.CSV, 64, workers)));
+    }
+
+    @Test
+    void handWrittenFilesAreRead() throws Exception {
+        File csv = write("inventory.csv", "item,count\r\nhammer,1\r\n,0\r\n\"rope, 20ft\",2\r\nlamp");
+        assertEquals(Arrays.asList("HAMMER", null, "ROPE, 20FT", "LAMP"), items(DeckTransfer.importDeck(csv)));
+
+        File json = write("inventory.jsonl", "{\"count\": [1, {\"x\": \"}\"}], \"item\": \"hammer\"}\n\n{\"item\": null}\n" +
+                                             "{}\n{\"item\":\"l\\u0061mp\"}\n");
+        assertEquals(Arrays.asList("HAMMER", null, null, "LAMP"), items(DeckTransfer.importDeck(json)));
+    }
+
+    @Test
+    void invalidLineFailsTheImportNamingIt() throws Exception {
+        StringBuilder contents = new StringBuilder("item\n");
+        for (int i = 0; i < 100; i++) contents.append("item-").append(i).append('\n');
+        contents.append("an item name far too long to fit on a card\n");
+        File file = write("too-long.csv", contents.toString());
+
+        IOException e = assertThrows(IOException.class, () -> DeckTransfer.importDeck(file, DeckTransfer.Format.CSV, 32, workers));
+        assertTrue(e.getMessage().contains("line 102"), e.getMessage());
+
+        File json = write("broken.ndjson", "{\"item\": \"sword\"}\n{\"item\": 3}\n");
+        e = assertThrows(IOException.class, () -> DeckTransfer.importDeck(json));
+        assertTrue(e.getMessage().contains("line 2"), e.getMessage());
+    }
+}
@@ -1,34 +1,302 @@
 package app.core;
 
+import app.model.Card;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class FileControllerTest {
+    private Path tempDir;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("sylladex-file-controller-test");
     }
 
     @AfterEach
-    void tearDown() {
-    }
-
-    // todo: -- tests for write deck to file
-    // check for nullity failure (parameters must not be null)
-    // check for file acceptance - only normal files (of any path) should be permitted, reject anything else
-    // check that file extension is enforced correctly (none, different, same, multiple, only)
-    // check that file written is correctly named, contents are as expected, and was written to the expected directory
-    // check for list acceptance - fail if list is not all Cards, contains a null, or the list is null
-
-    // todo: -- tests for load deck from file
-    // check for file acceptance correctness
-    // - exception if file is not found or file is not a normal file
-    // check for content integrity
-    // - exception if deck is not all Cards or contains a null object, no exception thrown if deck is truly all cards
-    // - exception if num of cards expected mismatches cards read, no exception if num of cards expected matches cards read
-    // - (potentially?) check if cards are valid
-    // - check that returned deck is deeply equal to the deck saved (and correctly fails cases when it is not, if possible?)
-}
\ No newline at end of file
+    void tearDown() throws IOException {
+        List<Path> paths = Files.walk(tempDir).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+
+    private static List<Card> sampleDeck() {
+        return Arrays.asList(new Card("sword"), Card.EMPTY, new Card("hammer"), new Card("sword"), Card.EMPTY, new Card(""));
+    }
+
+    /**
+     * a deck of names that are within the length limit as typed, but longer once upper-cased, so the cards are made though not valid
+     */
+    private static List<Card> grownNameDeck() {
+        List<Card> deck = new ArrayList<>();
+        for (int i = 0; i < 11; i++) deck.add((i%4 == 3) ? Card.EMPTY : Card.of((i%2 == 0) ? "Großer Schlüssel" : "ßword " + i));
+        return deck;
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    // -- tests for write deck to file
+
+    @Test
+    void binaryDeckRoundTrips() throws Exception {
+        File file = tempDir.resolve("round_trip.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+
+        List<Card> loaded = FileController.loadDeckFromFile(file);
+        assertEquals(items(sampleDeck()), items(loaded));
+        assertSame(Card.EMPTY, loaded.get(1), "empty slots should load as the EMPTY constant");
+        assertSame(loaded.get(0), loaded.get(3), "cards of the same item should share one instance");
+    }
+
+    @Test
+    void binaryDeckStartsWithMagicHeader() throws Exception {
+        File file = tempDir.resolve("magic.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            assertEquals(DeckFormat.MAGIC, raf.readInt());
+            assertEquals(DeckFormat.VERSION_2, raf.readShort());
+        }
+    }
+
+    @Test
+    void fileExtensionIsEnforced() throws Exception {
+        FileController.writeDeckToFile(sampleDeck(), tempDir.resolve("no_extension").toFile());
+        FileController.writeDeckToFile(sampleDeck(), tempDir.resolve("other_extension.txt").toFile());
+
+        assertTrue(Files.isRegularFile(tempDir.resolve("no_extension.deck")));
+        assertTrue(Files.isRegularFile(tempDir.resolve("other_extension.deck")));
+    }
+
+    @Test
+    void nullCardsAreSkipped() throws Exception {
+        File       file = tempDir.resolve("nulls.deck").toFile();
+        List<Card> deck = new ArrayList<>(sampleDeck());
+        deck.add(2, null);
+        FileController.writeDeckToFile(deck, file);
+
+        assertEquals(items(sampleDeck()), items(FileController.loadDeckFromFile(file)));
+    }
+
+    @Test
+    void compressedDecksRoundTrip() throws Exception {
+        List<Card> deck = new ArrayList<>(sampleDeck());
+        for (int i = 0; i < 1000; i++) deck.add((i%7 == 0) ? new Card("item" + i%13) : Card.EMPTY);
+        deck.addAll(Collections.nCopies(300, new Card("arrow")));
+
+        for (FileController.Compression compression : FileController.Compression.values()) {
+            File file = tempDir.resolve(compression.name() + ".deck").toFile();
+            FileController.writeDeckToFile(deck, file, compression);
+            List<Card> loaded = FileController.loadDeckFromFile(file);
+            assertEquals(items(deck), items(loaded), compression.name());
+            assertSame(Card.EMPTY, loaded.get(1), compression.name());
+        }
+    }
+
+    @Test
+    void compressedDeckIsSmaller() throws Exception {
+        List<Card> deck = new ArrayList<>();
+        for (int i = 0; i < 25*400; i++) deck.add((i%25 < 3) ? new Card("item" + i%50) : Card.EMPTY);
+        File plain      = tempDir.resolve("plain.deck").toFile();
+        File dictionary = tempDir.resolve("dictionary.deck").toFile();
+        FileController.writeDeckToFile(deck, plain, FileController.Compression.NONE);
+        FileController.writeDeckToFile(deck, dictionary, FileController.Compression.DICTIONARY);
+
+        assertTrue(dictionary.length() < plain.length()/2, dictionary.length() + " bytes compressed, " + plain.length() + " plain");
+        assertFalse(FileController.shouldMapDeck(dictionary), "streamed decks can't be mapped");
+    }
+
+    @Test
+    void corruptedCompressedDeckFailsToLoad() throws Exception {
+        List<Card> deck = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) deck.add(new Card("item" + i));
+        File file = tempDir.resolve("corrupt_compressed.deck").toFile();
+        FileController.writeDeckToFile(deck, file, FileController.Compression.DICTIONARY);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length()/2);
+            int value = raf.read();
+            raf.seek(raf.length()/2);
+            raf.write(value ^ 0x20);
+        }
+        assertThrows(IOException.class, () -> FileController.loadDeckFromFile(file));
+    }
+
+    @Test
+    void compressedDeckRunPastItsCardCountFailsToLoad() throws Exception {
+        File file = tempDir.resolve("long_run.deck").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(DeckFormat.MAGIC);
+            out.writeShort(DeckFormat.VERSION_3);
+            out.writeByte(0);
+            out.writeByte(0);
+            out.writeInt(10);
+            out.writeInt(0);
+            // an empty run of 2^29 cards, as a varint
+            int token = (1 << 29) << 2;
+            for (; (token & ~0x7F) != 0; token >>>= 7) out.writeByte((token & 0x7F) | 0x80);
+            out.writeByte(token);
+        }
+        assertThrows(IOException.class, () -> FileController.loadDeckFromFile(file));
+    }
+
+    // -- tests for load deck from file
+
+    @Test
+    void legacyDeckStillLoads() throws Exception {
+        File file = tempDir.resolve("legacy.deck").toFile();
+        FileController.writeLegacyDeckToFile(sampleDeck(), file);
+
+        List<Card> loaded = FileController.loadDeckFromFile(file);
+        assertEquals(items(sampleDeck()), items(loaded));
+        assertSame(Card.EMPTY, loaded.get(1), "empty legacy cards should be swapped for the EMPTY constant");
+    }
+
+    @Test
+    void emptyFileLoadsAsEmptyDeck() throws Exception {
+        File file = Files.createFile(tempDir.resolve("empty.deck")).toFile();
+        assertTrue(FileController.loadDeckFromFile(file).isEmpty());
+    }
+
+    @Test
+    void truncatedBinaryDeckFailsToLoad() throws Exception {
+        File file = tempDir.resolve("truncated.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        assertThrows(IOException.class, () -> FileController.loadDeckFromFile(file));
+    }
+
+    @Test
+    void corruptBlockOnlyDropsItsOwnCards() throws Exception {
+        File       file = tempDir.resolve("corrupt_block.deck").toFile();
+        List<Card> deck = new ArrayList<>();
+        for (int i = 0; i < 3*4096 + 10; i++) deck.add((i%3 == 0) ? Card.EMPTY : new Card("item" + i%1000));
+        FileController.writeDeckToFile(deck, file);
+        // flip a byte in the records of the second block, near the end of the file's second quarter
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length()/2 - 100);
+            int value = raf.read();
+            raf.seek(raf.length()/2 - 100);
+            raf.write(value ^ 0xFF);
+        }
+
+        List<String> expected = new ArrayList<>(items(deck));
+        expected.subList(4096, 2*4096).clear();
+        assertEquals(expected, items(FileController.loadDeckFromFile(file)));
+        assertEquals(expected, items(FileController.mapDeckFromFile(file)));
+    }
+
+    @Test
+    void blocksTooLargeForShortIndexesFailToLoad() throws Exception {
+        File file = tempDir.resolve("large_blocks.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(6);
+            raf.write(16);
+        }
+        assertThrows(IOException.class, () -> FileController.loadDeckFromFile(file));
+        assertThrows(IOException.class, () -> FileController.mapDeckFromFile(file));
+    }
+
+    @Test
+    void loadedCardsAreAlreadyValid() throws Exception {
+        File file = tempDir.resolve("verified.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+        for (Card card : FileController.loadDeckFromFile(file)) assertTrue(card.isValid());
+    }
+
+    @Test
+    void namesThatGrowWhenUpperCasedRoundTrip() throws Exception {
+        File file = tempDir.resolve("grown.deck").toFile();
+        FileController.writeDeckToFile(grownNameDeck(), file);
+
+        List<Card> loaded = FileController.loadDeckFromFile(file);
+        assertEquals(items(grownNameDeck()), items(loaded));
+        assertEquals(grownNameDeck(), loaded);
+        assertEquals(grownNameDeck(), FileController.mapDeckFromFile(file));
+    }
+
+    @Test
+    void namesThatGrowWhenUpperCasedLoadFromVersion1Deck() throws Exception {
+        List<Card> deck  = grownNameDeck();
+        List<Card> names = deck.stream().filter(Card::isInUse).distinct().collect(Collectors.toList());
+        File       file  = tempDir.resolve("version_1.deck").toFile();
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.writeInt(DeckFormat.MAGIC);
+            out.writeShort(DeckFormat.VERSION_1);
+            out.writeByte(2);
+            out.writeByte(0);
+            out.writeInt(deck.size());
+            out.writeInt(names.size());
+            for (Card name : names) {
+                byte[] bytes = name.getItem().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(bytes.length);
+                out.write(bytes);
+            }
+            for (Card card : deck) out.writeShort(card.isInUse() ? names.indexOf(card) : 0xFFFF);
+        }
+
+        assertEquals(deck, FileController.loadDeckFromFile(file));
+    }
+
+    @Test
+    void namesThatGrowWhenUpperCasedLoadFromCompressedDeck() throws Exception {
+        File file = tempDir.resolve("grown_compressed.deck").toFile();
+        FileController.writeDeckToFile(grownNameDeck(), file, FileController.Compression.DICTIONARY);
+
+        assertEquals(grownNameDeck(), FileController.loadDeckFromFile(file));
+    }
+
+    @Test
+    void missingFileFailsToLoad() {
+        assertThrows(IOException.class, () -> FileController.loadDeckFromFile(tempDir.resolve("missing.deck").toFile()));
+    }
+
+    // -- tests for mapping deck from file
+
+    @Test
+    void mappedDeckMatchesLoadedDeck() throws Exception {
+        File file = tempDir.resolve("mapped.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+
+        List<Card> mapped = FileController.mapDeckFromFile(file);
+        assertEquals(items(FileController.loadDeckFromFile(file)), items(mapped));
+        assertSame(Card.EMPTY, mapped.get(4));
+        assertThrows(UnsupportedOperationException.class, () -> mapped.add(new Card("axe")));
+    }
+
+    @Test
+    void mappedDeckOutlivesOverwritingItsFile() throws Exception {
+        File file = tempDir.resolve("overwritten.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+        List<Card> mapped = FileController.mapDeckFromFile(file);
+
+        FileController.writeDeckToFile(Collections.singletonList(new Card("axe")), file);
+        assertEquals(items(sampleDeck()), items(mapped));
+    }
+
+    @Test
+    void truncatedBinaryDeckFailsToMap() throws Exception {
+        File file = tempDir.resolve("truncated_mapped.deck").toFile();
+        FileController.writeDeckToFile(sampleDeck(), file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        assertThrows(IOException.class, () -> FileController.mapDeckFromFile(file));
+    }
+}
@@ -0,0 +1,77 @@
+package app.core;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RedrawSchedulerTest {
+    private static final long PULSE_NS = TimeUnit.MILLISECONDS.toNanos(16);
+
+    private int             redraws;
+    private boolean         pulsing;
+    private RedrawScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        redraws = 0;
+        pulsing = false;
+        scheduler = new RedrawScheduler(() -> redraws++, () -> pulsing = true, () -> pulsing = false);
+    }
+
+    @Test
+    void coalescesRequestsIntoOneRedrawPerPulse() {
+        for (int i = 0; i < 100; i++) scheduler.requestRedraw();
+        assertTrue(pulsing);
+        assertEquals(0, redraws, "nothing is drawn before the pulse");
+
+        scheduler.pulse(0);
+        assertEquals(1, redraws);
+        assertFalse(pulsing, "stops listening to pulses once drawn");
+        assertEquals(100, scheduler.getRequestCount());
+        assertEquals(99, scheduler.getSkippedCount());
+
+        scheduler.pulse(PULSE_NS);
+        assertEquals(1, redraws, "nothing to draw");
+    }
+
+    @Test
+    void waitsForTheDisplayToStopResizing() {
+        long now = 0;
+        scheduler.requestResizeRedraw(now);
+        scheduler.pulse(now += PULSE_NS);
+        scheduler.requestResizeRedraw(now);
+        scheduler.pulse(now += PULSE_NS);
+        assertEquals(0, redraws, "still resizing");
+
+        now += TimeUnit.MILLISECONDS.toNanos(RedrawScheduler.RESIZE_QUIET_MS);
+        scheduler.pulse(now);
+        assertEquals(1, redraws);
+        assertEquals(1, scheduler.getSkippedCount());
+    }
+
+    @Test
+    void redrawsDuringALongResize() {
+        long start = 0;
+        long now   = start;
+        // a resize on every pulse never leaves the display quiet, so only the longest wait lets a redraw through
+        while (now - start < TimeUnit.MILLISECONDS.toNanos(RedrawScheduler.RESIZE_MAX_WAIT_MS)) {
+            scheduler.requestResizeRedraw(now);
+            scheduler.pulse(now += PULSE_NS);
+        }
+        assertEquals(1, redraws);
+        assertEquals(scheduler.getRequestCount() - 1, scheduler.getSkippedCount());
+    }
+
+    @Test
+    void aDirectRedrawDropsThePendingOne() {
+        scheduler.requestResizeRedraw(0);
+        scheduler.markDrawn();
+        assertFalse(pulsing);
+        scheduler.pulse(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(0, redraws);
+        assertEquals(1, scheduler.getSkippedCount());
+    }
+}
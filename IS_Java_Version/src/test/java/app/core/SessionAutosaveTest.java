@@ -0,0 +1,99 @@
+package app.core;
+
+import app.model.Card;
+import app.model.OpenHand;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionAutosaveTest {
+    private Path            tempDir;
+    private File            sessionDir;
+    /** tasks queued for the io thread, run by the test when it chooses */
+    private Queue<Runnable> ioTasks;
+    private DeckSaveService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("sylladex-session-autosave-test");
+        sessionDir = tempDir.resolve("session").toFile();
+        ioTasks = new ArrayDeque<>();
+        service = new DeckSaveService(ioTasks::add, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        List<Path> paths = Files.walk(tempDir).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        for (Path path : paths) Files.deleteIfExists(path);
+    }
+
+    private void runIoTasks() {
+        while (!ioTasks.isEmpty()) ioTasks.poll().run();
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    @Test
+    void unchangedSessionIsNotCheckpointed() throws Exception {
+        SessionAutosave autosave = new SessionAutosave(sessionDir, service);
+        assertFalse(autosave.checkpoint(Collections.emptyList(), new OpenHand(), null, null));
+        assertTrue(ioTasks.isEmpty());
+        assertNull(autosave.restore(), "there is no session before the first checkpoint");
+    }
+
+    @Test
+    void checkpointedSessionIsRestored() throws Exception {
+        SessionAutosave      autosave = new SessionAutosave(sessionDir, service);
+        ObservableList<Card> deck     = FXCollections.observableArrayList();
+        deck.addListener(autosave);
+        deck.addAll(Arrays.asList(new Card("sword"), Card.EMPTY, new Card("axe")));
+        OpenHand hand = new OpenHand();
+        hand.addAll(Arrays.asList("hammer", "bow", "hammer"));
+        assertTrue(autosave.checkpoint(deck, hand, "PentaFile", null));
+        runIoTasks();
+
+        SessionAutosave.Session restored = new SessionAutosave(sessionDir, service).restore();
+        assertNotNull(restored);
+        assertEquals(Arrays.asList("SWORD", null, "AXE"), items(restored.deck));
+        assertEquals(Arrays.asList("hammer", "hammer", "bow"), restored.openHand.toList());
+        assertEquals(2, restored.openHand.countOf("hammer"));
+        assertEquals("PentaFile", restored.modusClass);
+    }
+
+    @Test
+    void laterCheckpointsOnlyFlushTheJournal() throws Exception {
+        SessionAutosave      autosave = new SessionAutosave(sessionDir, service);
+        ObservableList<Card> deck     = FXCollections.observableArrayList();
+        deck.addListener(autosave);
+        deck.addAll(Arrays.asList(new Card("sword"), Card.EMPTY));
+        autosave.checkpoint(deck, new OpenHand(), null, null);
+        runIoTasks();
+        File deckFile   = new File(sessionDir, "session.deck");
+        long deckLength = deckFile.length();
+
+        deck.set(1, new Card("shield"));
+        deck.add(new Card("axe"));
+        assertTrue(autosave.checkpoint(deck, new OpenHand(), null, null));
+        runIoTasks();
+        assertEquals(deckLength, deckFile.length(), "the deck file should not have been rewritten");
+        assertTrue(DeckJournal.journalFileOf(deckFile).length() > 0);
+
+        SessionAutosave.Session restored = new SessionAutosave(sessionDir, service).restore();
+        assertNotNull(restored);
+        assertEquals(Arrays.asList("SWORD", "SHIELD", "AXE"), items(restored.deck));
+        assertNull(restored.modusClass);
+    }
+}
@@ -0,0 +1,153 @@
+package app.model;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Measures {@link Card#captchaValue(CharSequence)} and {@link Card#captchaHash(String)}, and reports how the captcha codes of large item
+ * dictionaries collide and spread.
+ * <br><br>
+ * For each dictionary it reports the hashing throughput, the bytes allocated per hash, the number of colliding codes next to the number a
+ * perfectly random hash would be expected to give, and two chi-square statistics: one over the code values split into 4096 buckets, and
+ * the worst of the seven character positions over the 62 characters a position can hold. For a uniform hash each statistic is close to
+ * its degrees of freedom, 4095 and 61.
+ * <br><br>
+ * Two dictionaries are generated: "serial" names that count up and differ only in their last few characters, the worst case for a weak
+ * hash, and "random" names of random length and characters, with no name repeated.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional list
+ * of dictionary sizes as arguments. The largest default dictionary needs a heap of about 2 GB.
+ */
+class CaptchaHashBenchmark {
+    private static final int BUCKETS        = 4096;
+    private static final int MEASURE_ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int[] sizes = {100_000, 1_000_000, 10_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%-7s %10s %12s %12s %11s %11s %12s %13s %13s%n", "names", "size", "value ns/op", "code ns/op", "alloc B/op",
+                          "collisions", "expected", "chi2 buckets", "chi2 chars");
+        for (int size : sizes) {
+            for (String shape : new String[]{"serial", "random"}) {
+                String[] names = shape.equals("serial") ? serialNames(size) : randomNames(size, new Random(42));
+                run(shape, names);
+            }
+        }
+    }
+
+    private static void run(String shape, String[] names) {
+        Card   card   = Card.EMPTY;
+        long[] values = new long[names.length];
+        // warm up both paths before measuring either
+        for (int i = 0; i < 3; i++) {
+            hashValues(names, values);
+            hashCodes(card, names);
+        }
+
+        long valueNanos = Long.MAX_VALUE;
+        long codeNanos  = Long.MAX_VALUE;
+        long allocated  = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            hashValues(names, values);
+            valueNanos = Math.min(valueNanos, System.nanoTime() - start);
+            allocated = Math.min(allocated, allocatedBytes() - bytes);
+
+            start = System.nanoTime();
+            hashCodes(card, names);
+            codeNanos = Math.min(codeNanos, System.nanoTime() - start);
+        }
+
+        double n        = names.length;
+        double expected = n*(n - 1)/(2.0*Card.CAPTCHA_CODES);
+        System.out.printf("%-7s %10d %12.2f %12.2f %11.3f %11d %12.2f %13.1f %13.1f%n",
+                          shape,
+                          names.length,
+                          valueNanos/n,
+                          codeNanos/n,
+                          allocated/n,
+                          collisions(values),
+                          expected,
+                          bucketChiSquare(values),
+                          worstCharacterChiSquare(values));
+    }
+
+    private static void hashValues(String[] names, long[] values) {
+        for (int i = 0; i < names.length; i++) values[i] = Card.captchaValue(names[i]);
+    }
+
+    private static int hashCodes(Card card, String[] names) {
+        int sink = 0;
+        for (String name : names) sink += card.captchaHash(name).charAt(0);
+        return sink;
+    }
+
+    /**
+     * @return the number of names whose code was already taken by an earlier name
+     */
+    private static long collisions(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        long collisions = 0;
+        for (int i = 1; i < sorted.length; i++) if (sorted[i] == sorted[i - 1]) collisions++;
+        return collisions;
+    }
+
+    private static double bucketChiSquare(long[] values) {
+        long[] counts = new long[BUCKETS];
+        for (long value : values) counts[(int) (value*BUCKETS/Card.CAPTCHA_CODES)]++;
+        return chiSquare(counts, values.length);
+    }
+
+    private static double worstCharacterChiSquare(long[] values) {
+        double worst = 0;
+        long   place = 1;
+        for (int position = 0; position < Card.CAPTCHA_LENGTH; position++) {
+            long[] counts = new long[62];
+            for (long value : values) counts[(int) (value/place%62)]++;
+            worst = Math.max(worst, chiSquare(counts, values.length));
+            place *= 62;
+        }
+        return worst;
+    }
+
+    private static double chiSquare(long[] counts, long total) {
+        double expected = (double) total/counts.length;
+        double sum      = 0;
+        for (long count : counts) sum += (count - expected)*(count - expected)/expected;
+        return sum;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String[] serialNames(int size) {
+        String[] names = new String[size];
+        for (int i = 0; i < size; i++) names[i] = "ITEM-" + Integer.toString(i, 36).toUpperCase(Locale.ROOT);
+        return names;
+    }
+
+    /**
+     * @return distinct names of random characters, at least four long so that there are enough of them to draw from
+     */
+    private static String[] randomNames(int size, Random rng) {
+        char[]      alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 -'".toCharArray();
+        Set<String> names    = new HashSet<>(size*2);
+        while (names.size() < size) {
+            char[] name = new char[4 + rng.nextInt(Card.MAX_ITEM_LENGTH - 3)];
+            for (int c = 0; c < name.length; c++) name[c] = alphabet[rng.nextInt(alphabet.length)];
+            // a card's item name never starts or ends with a space
+            if (name[0] == ' ') name[0] = 'A';
+            if (name[name.length - 1] == ' ') name[name.length - 1] = 'Z';
+            names.add(new String(name));
+        }
+        return names.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,108 @@
+package app.model;
+
+import javafx.beans.property.ListProperty;
+import javafx.beans.property.SimpleListProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaptchaIndexTest {
+    private static final String[] ITEMS = {"SWORD", "BOW", "AXE", "SHIELD", "POTION", "MAP", "KEY"};
+
+    @Test
+    void findsItemsInTheDeckAndTheHand() {
+        ListProperty<Card>   deck  = new SimpleListProperty<>(FXCollections.observableArrayList(
+                Card.of("sword"), Card.EMPTY, Card.of("bow"), Card.of("sword")));
+        OpenHand             hand  = new OpenHand();
+        hand.add("axe");
+        CaptchaIndex         index = new CaptchaIndex(deck, hand);
+
+        assertArrayEquals(new int[]{0, 3}, index.deckPositionsOf("Sword"));
+        assertEquals(2, index.firstDeckPosition(" bow "));
+        assertEquals(-1, index.firstDeckPosition("axe"));
+        assertEquals(1, index.handCountOf("AXE"));
+        assertEquals(2, index.deckCountOf("sword"));
+        assertFalse(index.contains("EMPTY"));
+        assertEquals("SWORD", index.itemOfCaptcha(Card.of("sword").getCaptchaCode()));
+        assertNull(index.itemOfCaptcha(Card.of("potion").getCaptchaCode()));
+        assertNull(index.itemOfCaptcha("not a code"));
+
+        deck.remove(0);
+        hand.addAll(Arrays.asList("sword", "axe"));
+        assertArrayEquals(new int[]{2}, index.deckPositionsOf("sword"));
+        assertEquals(1, index.firstDeckPosition("bow"));
+        assertEquals(2, index.handCountOf("axe"));
+        assertEquals(1, index.handCountOf("sword"));
+        assertFalse(hand.remove("AXE"), "the hand keeps items as they were given");
+        assertTrue(hand.remove("axe"));
+        assertTrue(hand.remove("axe"));
+        assertEquals(0, index.handCountOf("axe"));
+        assertFalse(index.contains("axe"));
+
+        deck.set(FXCollections.observableArrayList(Card.of("map")));
+        assertFalse(index.contains("bow"));
+        assertTrue(index.contains("sword"), "the open hand still holds it");
+        assertEquals(0, index.firstDeckPosition("map"));
+    }
+
+    @Test
+    void followsRandomChangesToTheDeck() {
+        Random               rng   = new Random(42);
+        ListProperty<Card>   deck  = new SimpleListProperty<>(FXCollections.observableList(new CardStore()));
+        CaptchaIndex         index = new CaptchaIndex(deck, new OpenHand());
+
+        for (int step = 0; step < 2_000; step++) {
+            switch (rng.nextInt(7)) {
+                case 0:
+                case 1:
+                    deck.add(rng.nextInt(deck.size() + 1), randomCard(rng));
+                    break;
+                case 2:
+                    deck.addAll(rng.nextInt(deck.size() + 1), Arrays.asList(randomCard(rng), randomCard(rng), randomCard(rng)));
+                    break;
+                case 3:
+                    if (!deck.isEmpty()) deck.remove(rng.nextInt(deck.size()));
+                    break;
+                case 4:
+                    if (!deck.isEmpty()) deck.set(rng.nextInt(deck.size()), randomCard(rng));
+                    break;
+                case 5:
+                    int from = rng.nextInt(deck.size() + 1);
+                    deck.remove(from, Math.min(deck.size(), from + rng.nextInt(4)));
+                    break;
+                default:
+                    List<Card> source = new ArrayList<>(deck);
+                    if (!source.isEmpty()) source.set(rng.nextInt(source.size()), randomCard(rng));
+                    source.add(rng.nextInt(source.size() + 1), randomCard(rng));
+                    ObservableList<Card> synced = deck.get();
+                    synced.setAll(source);
+                    break;
+            }
+            assertMatchesScan(index, deck);
+        }
+        deck.sort((a, b) -> a.getItem().compareTo(b.getItem()));
+        assertMatchesScan(index, deck);
+    }
+
+    private static Card randomCard(Random rng) {
+        return (rng.nextInt(8) == 0) ? Card.EMPTY : Card.of(ITEMS[rng.nextInt(ITEMS.length)]);
+    }
+
+    private static void assertMatchesScan(CaptchaIndex index, List<Card> deck) {
+        for (String item : ITEMS) {
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < deck.size(); i++) if (deck.get(i).isInUse() && deck.get(i).getItem().equals(item)) expected.add(i);
+            int[] positions = index.deckPositionsOf(item);
+            assertEquals(expected.size(), positions.length, item);
+            for (int i = 0; i < positions.length; i++) assertEquals((int) expected.get(i), positions[i], item);
+            assertEquals(!expected.isEmpty(), index.contains(item), item);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package app.model;
+
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.CycleMethod;
+import javafx.scene.paint.Paint;
+import javafx.scene.paint.RadialGradient;
+import javafx.scene.paint.Stop;
+
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+/**
+ * Measures what the backs of a large TarotDeck display cost, with a random gradient drawn for every card's back, as a {@link CardNode}
+ * used to do, against picking each card's back from the {@link CardBacks} bank.
+ * <br><br>
+ * The first part times coming up with the back of every card of the deck and counts how many different backs that makes, which is the
+ * number of back images the {@link CardImageCache} has to draw. It needs no display. The second part, run only where the JavaFX toolkit
+ * can start, times drawing every card's back through a fresh image cache, as a TarotDeck's first redraw of the deck does.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional list
+ * of deck sizes as arguments.
+ */
+class CardBackBenchmark {
+    private static final int    ROUNDS = 5;
+    private static final double SCALE  = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {5_000, 100_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%8s %-18s %12s %12s%n", "cards", "back", "ms", "backs");
+        for (int size : sizes) {
+            List<Card> deck = deckOf(size);
+            run("per-card gradient", deck, card -> perCardGradient());
+            run("bank", deck, CardBacks::designOf);
+        }
+
+        if (GraphicsEnvironment.isHeadless()) {
+            System.out.println("no display, skipping the image cache.");
+            return;
+        }
+        new JFXPanel(); // starts the toolkit
+        System.out.printf("%n%8s %-18s %12s %12s%n", "cards", "draw", "ms", "images");
+        for (int size : sizes) {
+            List<Card> deck = deckOf(size);
+            onFxThread(() -> {
+                CardImageCache cache = new CardImageCache();
+                long           start = System.nanoTime();
+                for (Card card : deck) cache.backOf(card, SCALE);
+                System.out.printf("%8d %-18s %12.2f %12d%n", size, "image cache", (System.nanoTime() - start)/1e6, cache.size());
+            });
+        }
+        Platform.exit();
+    }
+
+    private static List<Card> deckOf(int size) {
+        List<Card> deck = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) deck.add(Card.of("item-" + i));
+        return deck;
+    }
+
+    private static void run(String name, List<Card> deck, Function<Card, Paint> backOf) {
+        Set<Paint> backs = new HashSet<>();
+        for (Card card : deck) backs.add(backOf.apply(card));
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (Card card : deck) backOf.apply(card);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%8d %-18s %12.2f %12d%n", deck.size(), name, best/1e6, backs.size());
+    }
+
+    /**
+     * The back a card node used to draw for itself.
+     */
+    private static Paint perCardGradient() {
+        List<Stop> stops = new ArrayList<>();
+        stops.add(new Stop(0.0, Color.rgb(70, 39, 39)));
+        stops.add(new Stop(0.43959418632119457, Color.rgb(235, 47, 47)));
+        stops.add(new Stop(0.7525456602553742, Color.rgb(255, 64, 185)));
+        stops.add(new Stop(1.0, Color.rgb(252, 197, 197)));
+        Random rng = new Random();
+        double r;
+        double n;
+        RadialGradient graphic = new RadialGradient(-120 + rng.nextInt(61),
+                                                    n = rng.nextDouble()*2 - 1,
+                                                    rng.nextInt(2),
+                                                    rng.nextInt(2),
+                                                    (n < 0.4)
+                                                    ? (((r = Math.abs(rng.nextGaussian())*-1 + 1) < 0.4) ? r : 0.4)
+                                                    : (((r = Math.abs(rng.nextGaussian()) - 0.05) > 1) ? r : 1),
+                                                    true, CycleMethod.REPEAT, stops);
+        return Paint.valueOf(graphic.toString());
+    }
+
+    private static void onFxThread(Runnable runnable) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                runnable.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
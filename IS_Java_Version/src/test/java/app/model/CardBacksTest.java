@@ -0,0 +1,29 @@
+package app.model;
+
+import javafx.scene.paint.Paint;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardBacksTest {
+    @Test
+    void cardsOfAnItemShareTheirBack() {
+        assertSame(CardBacks.designOf(Card.of("sword")), CardBacks.designOf(Card.of("Sword ")));
+        assertEquals(CardBacks.variantOf(Card.of("sword")), CardBacks.variantOf(Card.of("SWORD")));
+    }
+
+    @Test
+    void aDeckUsesEveryDesignAndNoMore() {
+        Set<Paint> designs = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            Card card    = Card.of("item-" + i);
+            int  variant = CardBacks.variantOf(card);
+            assertTrue(0 <= variant && variant < CardBacks.VARIANTS, "variant " + variant);
+            designs.add(CardBacks.designOf(card));
+        }
+        assertEquals(CardBacks.VARIANTS, designs.size());
+    }
+}
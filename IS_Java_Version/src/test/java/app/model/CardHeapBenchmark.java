@@ -0,0 +1,66 @@
+package app.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Measures the heap a deck of cards holds on to when each card is made with {@link Card#Card(String)}, when it is made with
+ * {@link Card#of(String)}, and when the cards are kept in a {@link CardStore}. The item names are built fresh for every card, as they would
+ * be when read from the user or a file, and drawn from a skewed distribution over a dictionary of distinct items.
+ * <br><br>
+ * Heap is measured as the used heap after repeated garbage collections, with the deck still reachable, less the used heap before the deck
+ * was built. The figures are approximate but stable enough to compare one with another.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional deck
+ * size and dictionary size as arguments.
+ */
+class CardHeapBenchmark {
+    public static void main(String[] args) throws Exception {
+        int deckSize   = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+        int dictionary = (args.length > 1) ? Integer.parseInt(args[1]) : 5_000;
+
+        System.out.printf("%-10s %10s %10s %12s %14s%n", "factory", "cards", "items", "heap MB", "bytes/card");
+        for (int round = 0; round < 2; round++) {
+            // the first round warms up the code and the heap, only the second is reported
+            boolean report = round == 1;
+            run("new Card", Card::new, ArrayList::new, deckSize, dictionary, report);
+            run("Card.of", Card::of, ArrayList::new, deckSize, dictionary, report);
+            run("CardStore", Card::of, CardStore::new, deckSize, dictionary, report);
+        }
+    }
+
+    private static void run(String name, Function<String, Card> factory, IntFunction<List<Card>> deckFactory, int deckSize, int dictionary,
+                            boolean report) throws InterruptedException {
+        long       before = usedHeap();
+        List<Card> deck   = buildDeck(factory, deckFactory.apply(deckSize), deckSize, dictionary, new Random(42));
+        long       after  = usedHeap();
+        if (deck.size() != deckSize) throw new IllegalStateException("deck was built short");
+        if (report) {
+            System.out.printf("%-10s %10d %10d %12.1f %14.1f%n", name, deckSize, dictionary, (after - before)/1e6,
+                              (double) (after - before)/deckSize);
+        }
+    }
+
+    private static List<Card> buildDeck(Function<String, Card> factory, List<Card> deck, int size, int dictionary, Random rng) {
+        for (int i = 0; i < size; i++) {
+            // squaring a uniform draw skews it towards the front of the dictionary, so a few items are far more common than the rest
+            double draw = rng.nextDouble();
+            deck.add(factory.apply(" item-" + Integer.toString((int) (draw*draw*dictionary), 36) + " "));
+        }
+        return deck;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long    used    = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,120 @@
+package app.model;
+
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+import javafx.geometry.Bounds;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.Test;
+
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * A cached view must put the card where the modi used to put its {@link CardNode}: translated to the card's corner, less what scaling
+ * about the pane's center moves it by.
+ */
+class CardImageCacheTest {
+    private static final double[] SCALES = {0.3, 0.37, 0.5, 1};
+    private static final double   WIDTH  = 160;
+    private static final double   HEIGHT = 200;
+    /** the card's left edge with its shadow, translated by -4 and stroked a quarter wide */
+    private static final double   LEFT   = -4.125;
+    /** the card's top edge, the shadow being translated downward */
+    private static final double   TOP    = 0;
+
+    /**
+     * Where a card node placed the way the modi did puts a point of its pane, along one axis.
+     */
+    private static double nodePlaces(double point, double corner, double size, double scale) {
+        double pivot     = size/2;
+        double translate = corner + pivot*scale - pivot;
+        return translate + pivot + (point - pivot)*scale;
+    }
+
+    /**
+     * Where a view translated to the card's corner puts a point of the pane, which a snapshot draws into its image at the point's scaled
+     * distance from the image's first pixel.
+     */
+    private static double viewPlaces(double point, double corner, double localMin, double scale) {
+        double origin = CardImageCache.imageOrigin(localMin, scale);
+        return corner + origin + (point*scale - Math.floor(localMin*scale));
+    }
+
+    @Test
+    void imageLandsWhereTheCardNodeDid() {
+        double corner = 37.25;
+        for (double scale : SCALES) {
+            for (double point : new double[]{LEFT, 0, 4, WIDTH}) {
+                assertEquals(nodePlaces(point, corner, WIDTH, scale), viewPlaces(point, corner, LEFT, scale), 1e-9,
+                             "x of " + point + " at scale " + scale);
+            }
+            for (double point : new double[]{TOP, 2, HEIGHT}) {
+                assertEquals(nodePlaces(point, corner, HEIGHT, scale), viewPlaces(point, corner, TOP, scale), 1e-9,
+                             "y of " + point + " at scale " + scale);
+            }
+        }
+    }
+
+    @Test
+    void imageStartsOnAWholePixel() {
+        for (double scale : SCALES) {
+            double origin = CardImageCache.imageOrigin(LEFT, scale);
+            assertEquals(Math.rint(origin), origin);
+            assertTrue(origin <= LEFT*scale && LEFT*scale < origin + 1, "the image should start in the pixel the card starts in");
+        }
+    }
+
+    @Test
+    void viewBoundsMatchTheCardNode() throws Throwable {
+        assumeFalse(GraphicsEnvironment.isHeadless(), "the JavaFX toolkit needs a display");
+        new JFXPanel();
+        onFxThread(() -> {
+            CardImageCache cache = new CardImageCache();
+            for (double scale : SCALES) {
+                Card     card   = Card.of("sword");
+                CardNode node   = new CardNode(card);
+                GridPane face   = node.CARD_FACE;
+                double   corner = 40;
+                face.setTranslateX(corner + WIDTH/2*scale - WIDTH/2);
+                face.setTranslateY(corner + HEIGHT/2*scale - HEIGHT/2);
+                node.setCardScaleFactor(scale);
+                ImageView view = cache.faceOf(card, null, scale);
+                view.setTranslateX(corner);
+                view.setTranslateY(corner);
+                new Pane(face, view);
+
+                Bounds expected = face.getBoundsInParent();
+                Bounds actual   = view.getBoundsInParent();
+                // the image is widened out to whole pixels, so its edges are within a pixel of the node's
+                assertEquals(expected.getMinX(), actual.getMinX(), 1, "left at scale " + scale);
+                assertEquals(expected.getMinY(), actual.getMinY(), 1, "top at scale " + scale);
+                assertEquals(expected.getMaxX(), actual.getMaxX(), 1, "right at scale " + scale);
+                assertEquals(expected.getMaxY(), actual.getMaxY(), 1, "bottom at scale " + scale);
+                assertTrue(actual.getMinX() <= expected.getMinX() && actual.getMinY() <= expected.getMinY(),
+                           "the image should not cut off the card at scale " + scale);
+            }
+        });
+    }
+
+    private static void onFxThread(Runnable runnable) throws Throwable {
+        CountDownLatch             done   = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Platform.runLater(() -> {
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                thrown.set(e);
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        if (thrown.get() != null) throw thrown.get();
+    }
+}
@@ -0,0 +1,118 @@
+package app.model;
+
+import javafx.application.Platform;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+
+/**
+ * Measures how long a modus takes to redraw a display of cards when it builds a {@link CardNode} per card, as the moduses used to, against
+ * drawing each card through a {@link CardImageCache}, either as an image view per card or onto a single canvas as in
+ * {@link RenderMode#CANVAS}. A redraw places every card on the display, as {@code TarotDeck} does with its backs, then lays the display
+ * out and renders it, the latter by snapshotting the display so that the work isn't left to a later pulse. The number of nodes the
+ * display is left with is reported alongside.
+ * <br><br>
+ * For each deck size it reports the first redraw, which fills the cache, and the average of the redraws after it.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional list
+ * of deck sizes as arguments. It starts the JavaFX toolkit, so it needs a display.
+ */
+class CardRenderBenchmark {
+    private static final int    REDRAWS = 20;
+    private static final double SCALE   = 0.5;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {25, 5_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        new JFXPanel(); // starts the toolkit
+        System.out.printf("%8s %-12s %14s %16s %8s%n", "cards", "draw", "first ms", "redraw ms", "nodes");
+        for (int size : sizes) {
+            List<Card> deck = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) deck.add(Card.of("item-" + i));
+            onFxThread(() -> {
+                run("card nodes", deck, card -> {
+                    CardNode node = new CardNode(card);
+                    node.setCardScaleFactor(SCALE);
+                    return node.CARD_BACK;
+                });
+                CardImageCache cache = new CardImageCache();
+                run("image cache", deck, card -> cache.backOf(card, SCALE));
+                runOnCanvas(deck, new CardImageCache());
+            });
+        }
+        Platform.exit();
+    }
+
+    private static void run(String name, List<Card> deck, Function<Card, Node> draw) {
+        Pane display = new Pane();
+        new Scene(display, 800, 600); // css is only applied to a node in a scene
+        long first = redraw(display, deck, draw);
+        long total = 0;
+        for (int i = 0; i < REDRAWS; i++) total += redraw(display, deck, draw);
+        report(name, deck, display, first, total);
+    }
+
+    private static void runOnCanvas(List<Card> deck, CardImageCache cache) {
+        Pane display = new Pane();
+        new Scene(display, 800, 600);
+        display.resize(800, 600);
+        long first = redrawOnCanvas(display, deck, cache);
+        long total = 0;
+        for (int i = 0; i < REDRAWS; i++) total += redrawOnCanvas(display, deck, cache);
+        report("canvas", deck, display, first, total);
+    }
+
+    private static void report(String name, List<Card> deck, Pane display, long first, long total) {
+        System.out.printf("%8d %-12s %14.2f %16.2f %8d%n", deck.size(), name, first/1e6, total/1e6/REDRAWS, display.getChildren().size());
+    }
+
+    private static long redraw(Pane display, List<Card> deck, Function<Card, Node> draw) {
+        long       start = System.nanoTime();
+        List<Node> nodes = new ArrayList<>(deck.size());
+        for (int i = 0; i < deck.size(); i++) {
+            Node node = draw.apply(deck.get(i));
+            node.setTranslateX(4 + (i%40)*16);
+            node.setTranslateY(4 + (i/40%20)*20);
+            nodes.add(node);
+        }
+        display.getChildren().setAll(nodes);
+        display.applyCss();
+        display.layout();
+        display.snapshot(new SnapshotParameters(), null);
+        return System.nanoTime() - start;
+    }
+
+    private static long redrawOnCanvas(Pane display, List<Card> deck, CardImageCache cache) {
+        long            start = System.nanoTime();
+        GraphicsContext gc    = CardImageCache.canvasOf(display);
+        for (int i = 0; i < deck.size(); i++) cache.drawBack(gc, deck.get(i), SCALE, 4 + (i%40)*16, 4 + (i/40%20)*20);
+        display.applyCss();
+        display.layout();
+        display.snapshot(new SnapshotParameters(), null);
+        return System.nanoTime() - start;
+    }
+
+    private static void onFxThread(Runnable runnable) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                runnable.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
@@ -0,0 +1,134 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardStoreTest {
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card == null ? "null" : card.isInUse() ? card.getItem() : "-").collect(Collectors.toList());
+    }
+
+    @Test
+    void storeReadsBackLikeTheListItWasMadeFrom() {
+        List<Card> source = Arrays.asList(Card.of("sword"), Card.EMPTY, new Card(), Card.of("straße"), null, Card.of("sword"));
+        CardStore  store  = CardStore.of(source);
+
+        assertEquals(Arrays.asList("SWORD", "-", "-", "STRASSE", "null", "SWORD"), items(store));
+        assertSame(Card.EMPTY, store.get(2), "cards that aren't in use read back as the empty card");
+        assertEquals(2, store.itemCount(), "each item name is stored once");
+        assertEquals(store.handleAt(0), store.handleAt(5));
+        assertEquals(CardStore.EMPTY_HANDLE, store.handleAt(1));
+        assertEquals(CardStore.NULL_HANDLE, store.handleAt(4));
+        assertEquals("STRASSE", store.itemOf(store.handleAt(3)));
+        assertSame(store.get(0), store.get(5), "ascii cards read back as the same shared card");
+    }
+
+    @Test
+    void namesThatGrowWhenUpperCasedAreStored() {
+        // each of these upper-cases to more characters than it had, past what a card's name may be before upper-casing
+        Card       sharp   = Card.of("ßßßßßßßßßßßßßßßß");
+        Card       greek   = Card.of("ΐΐΐΐΐΐΐΐΐΐΐΐΐΐΐΐ");
+        CardStore  store   = new CardStore();
+        store.add(sharp);
+        store.add(greek);
+        store.set(0, greek);
+
+        assertEquals(Arrays.asList(greek.getItem(), greek.getItem()), items(store));
+        assertSame(greek, store.get(0));
+        assertEquals(96, greek.getItem().getBytes(java.nio.charset.StandardCharsets.UTF_8).length);
+        store.clear();
+        store.add(sharp);
+        assertEquals(sharp, store.get(0));
+    }
+
+    @Test
+    void storeChangesLikeAnArrayList() {
+        CardStore  store    = new CardStore(0);
+        List<Card> expected = new ArrayList<>();
+        Random     rng      = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            Card card = (rng.nextInt(5) == 0) ? Card.EMPTY : Card.of("item-" + rng.nextInt(300));
+            switch (rng.nextInt(6)) {
+                case 0:
+                    if (!expected.isEmpty()) {
+                        int index = rng.nextInt(expected.size());
+                        assertEquals(items(Collections.singletonList(expected.set(index, card))),
+                                     items(Collections.singletonList(store.set(index, card))));
+                    }
+                    break;
+                case 1:
+                    if (!expected.isEmpty()) {
+                        int index = rng.nextInt(expected.size());
+                        expected.remove(index);
+                        store.remove(index);
+                    }
+                    break;
+                case 2:
+                    if (expected.size() > 10) {
+                        int from = rng.nextInt(expected.size() - 10);
+                        expected.subList(from, from + 10).clear();
+                        store.subList(from, from + 10).clear();
+                    }
+                    break;
+                case 3:
+                    int index = rng.nextInt(expected.size() + 1);
+                    List<Card> run = Arrays.asList(card, Card.of("run"), card);
+                    expected.addAll(index, run);
+                    store.addAll(index, run);
+                    break;
+                default:
+                    int at = rng.nextInt(expected.size() + 1);
+                    expected.add(at, card);
+                    store.add(at, card);
+            }
+        }
+        assertEquals(items(expected), items(store));
+        assertTrue(store.itemCount() <= 301);
+
+        store.clear();
+        assertTrue(store.isEmpty());
+        assertEquals(0, store.itemCount());
+        store.add(Card.of("axe"));
+        assertEquals(Collections.singletonList("AXE"), items(store));
+    }
+
+    @Test
+    void attributesMoveWithTheirCards() {
+        CardStore store = CardStore.of(Arrays.asList(Card.of("sword"), Card.of("bow"), Card.of("axe")));
+        assertEquals(3, store.sum(CardStore.IntAttribute.QUANTITY), "every card stands for one item until told otherwise");
+        assertEquals(0, store.sum(CardStore.IntAttribute.SIZE));
+
+        store.setInt(CardStore.IntAttribute.SIZE, 0, 5);
+        store.setInt(CardStore.IntAttribute.SIZE, 2, 7);
+        store.setInt(CardStore.IntAttribute.QUANTITY, 1, 20);
+        store.setLong(CardStore.LongAttribute.PLACED_AT, 2, 1_000L);
+        store.add(0, Card.of("map"));
+        store.remove(2);
+        // map, sword, axe
+        assertEquals(Arrays.asList("MAP", "SWORD", "AXE"), items(store));
+        assertEquals(12, store.sum(CardStore.IntAttribute.SIZE));
+        assertEquals(7, store.sum(CardStore.IntAttribute.SIZE, 2, 3));
+        assertEquals(3, store.sum(CardStore.IntAttribute.QUANTITY), "the stack of bows was removed with its card");
+        assertEquals(1_000L, store.getLong(CardStore.LongAttribute.PLACED_AT, 2));
+        assertEquals(1, store.countBetween(CardStore.LongAttribute.PLACED_AT, 500L, 1_500L));
+
+        store.set(1, Card.of("sword"));
+        assertEquals(5, store.getInt(CardStore.IntAttribute.SIZE, 1), "setting the same item keeps its attributes");
+        store.set(1, Card.of("shield"));
+        assertEquals(0, store.getInt(CardStore.IntAttribute.SIZE, 1), "another item starts from the defaults");
+
+        CardStore copy = new CardStore();
+        copy.add(Card.of("key"));
+        copy.addAll(store);
+        assertEquals(Arrays.asList(0, 0, 0, 7), Arrays.asList(copy.getInt(CardStore.IntAttribute.SIZE, 0),
+                                                              copy.getInt(CardStore.IntAttribute.SIZE, 1),
+                                                              copy.getInt(CardStore.IntAttribute.SIZE, 2),
+                                                              copy.getInt(CardStore.IntAttribute.SIZE, 3)));
+        copy.fill(CardStore.LongAttribute.PLACED_AT, 42L);
+        assertEquals(4, copy.countBetween(CardStore.LongAttribute.PLACED_AT, 42L, 43L));
+    }
+}
@@ -0,0 +1,85 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardTest {
+    @Test
+    void equalItemsShareOneCard() {
+        Card card = Card.of("sword");
+        assertSame(card, Card.of("  SWORD "));
+        assertSame(card, Card.of("Sword"));
+        assertNotSame(card, Card.of("swords"));
+    }
+
+    @Test
+    void internedCardMatchesConstructedCard() {
+        for (String item : new String[]{"  sword ", "bow, arrows", "", "\"big\" axe", "straße", "item-zz"}) {
+            Card interned    = Card.of(item);
+            Card constructed = new Card(item);
+            assertEquals(constructed.getItem(), interned.getItem(), item);
+            assertEquals(constructed.getCaptchaCode(), interned.getCaptchaCode(), item);
+            assertTrue(interned.isInUse());
+        }
+    }
+
+    @Test
+    void invalidItemsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Card.of(null));
+        assertThrows(IllegalArgumentException.class, () -> Card.of("an item name far too long"));
+        assertEquals("SIXTEEN CHARS OK", Card.of("  sixteen chars ok  ").getItem());
+    }
+
+    @Test
+    void captchaCodesAreAlphanumericAndFollowTheItem() {
+        Card sword = new Card("sword");
+        assertTrue(sword.getCaptchaCode().matches("[0-9A-Za-z]{7}"), sword.getCaptchaCode());
+        assertTrue(sword.isValid());
+        assertEquals(sword.getCaptchaCode(), new Card("  SWORD ").getCaptchaCode());
+        assertNotEquals(sword.getCaptchaCode(), new Card("swore").getCaptchaCode());
+        assertEquals("0000000", Card.EMPTY.getCaptchaCode());
+
+        long value = Card.captchaValue("SWORD");
+        assertTrue(value >= 0 && value < Card.CAPTCHA_CODES);
+    }
+
+    @Test
+    void cardsAreEqualByTheirItem() {
+        Card sword = new Card("sword");
+        assertEquals(sword, new Card(" SWORD"));
+        assertEquals(sword.hashCode(), new Card(" SWORD").hashCode());
+        assertNotEquals(sword, new Card("swords"));
+        assertEquals(Card.EMPTY, new Card());
+        assertNotEquals(Card.EMPTY, sword);
+        assertNotEquals(Card.EMPTY, new Card("empty"), "an empty card is not a card of the item EMPTY");
+
+        Set<Card> cards = new HashSet<>(Arrays.asList(sword, Card.of("sword"), Card.EMPTY, new Card(), new Card("axe")));
+        assertEquals(3, cards.size());
+        assertTrue(cards.contains(new Card("Axe")));
+    }
+
+    @Test
+    void serializedCardsResolveToSharedCards() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new Card("sword"));
+            out.writeObject(new Card());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Card sword = (Card) in.readObject();
+            assertEquals(new Card("sword"), sword);
+            assertTrue(sword.isValid());
+            assertEquals(new Card("sword").getCaptchaCode(), sword.getCaptchaCode());
+            assertSame(Card.EMPTY, in.readObject());
+        }
+    }
+}
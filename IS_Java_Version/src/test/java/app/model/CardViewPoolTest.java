@@ -0,0 +1,137 @@
+package app.model;
+
+import javafx.application.Platform;
+import javafx.collections.ListChangeListener;
+import javafx.embed.swing.JFXPanel;
+import javafx.scene.Node;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.Test;
+
+import java.awt.GraphicsEnvironment;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Card images are snapshots, which need the JavaFX toolkit, so the tests that draw cards only run where it can start.
+ */
+class CardViewPoolTest {
+    private static final int    SLOTS   = 100;
+    private static final int    REDRAWS = 1_000;
+    private static final double SCALE   = 0.5;
+
+    private static void startToolkit() {
+        assumeFalse(GraphicsEnvironment.isHeadless(), "the JavaFX toolkit needs a display");
+        new JFXPanel();
+    }
+
+    @Test
+    void viewOfASlotIsClearedOfItsLastPlacement() {
+        CardViewPool pool = new CardViewPool(new CardImageCache());
+        ImageView    view = pool.viewAt(3);
+        view.setTranslateX(12);
+        view.setTranslateY(34);
+        view.setScaleX(2);
+        view.setScaleY(2);
+
+        assertSame(view, pool.viewAt(3));
+        assertEquals(0, view.getTranslateX());
+        assertEquals(0, view.getTranslateY());
+        assertEquals(1, view.getScaleX());
+        assertEquals(1, view.getScaleY());
+        assertEquals(4, pool.size());
+    }
+
+    @Test
+    void displayKeepsItsOwnListOfViews() {
+        CardViewPool pool    = new CardViewPool(new CardImageCache());
+        Pane         display = new Pane();
+        ImageView    first   = pool.viewAt(0);
+        ImageView    second  = pool.viewAt(1);
+        pool.showOn(display, 2);
+
+        // growing the pool must not reach into what the display shows
+        pool.viewAt(4);
+        assertEquals(2, display.getChildren().size());
+        assertSame(first, display.getChildren().get(0));
+        assertSame(second, display.getChildren().get(1));
+        pool.showOn(display, 5);
+        assertEquals(5, display.getChildren().size());
+    }
+
+    @Test
+    void reusesTheViewOfASlot() throws Throwable {
+        startToolkit();
+        onFxThread(() -> {
+            CardViewPool pool    = new CardViewPool(new CardImageCache());
+            Pane         display = new Pane();
+            ImageView    sword   = pool.face(0, Card.of("sword"), null, SCALE);
+            pool.back(1, Card.of("bow"), SCALE);
+            pool.showOn(display, 2);
+
+            int[] changes = {0};
+            display.getChildren().addListener((ListChangeListener<Node>) change -> changes[0]++);
+            assertSame(sword, pool.face(0, Card.of("axe"), null, SCALE));
+            assertNotSame(sword.getImage(), pool.face(0, Card.of("sword"), null, SCALE).getImage(), "rebound to the axe and back");
+            pool.showOn(display, 2);
+            assertEquals(0, changes[0], "the display already shows the pool's views");
+
+            pool.showOn(display, 1);
+            assertEquals(1, display.getChildren().size());
+            assertEquals(2, pool.size());
+        });
+    }
+
+    @Test
+    void steadyStateRedrawsAllocateNextToNothing() throws Throwable {
+        List<Card> deck = new ArrayList<>(SLOTS);
+        for (int i = 0; i < SLOTS; i++) deck.add(Card.of("item-" + i));
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        startToolkit();
+
+        onFxThread(() -> {
+            CardViewPool pool    = new CardViewPool(new CardImageCache());
+            Pane         display = new Pane();
+            // the first redraws fill the cache and the pool, and warm up the code
+            for (int i = 0; i < 50; i++) redraw(pool, display, deck);
+
+            long thread = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < REDRAWS; i++) redraw(pool, display, deck);
+            long perRedraw = (threads.getThreadAllocatedBytes(thread) - before)/REDRAWS;
+            // a view alone is several hundred bytes, so even one new view per redraw would fail this
+            assertTrue(perRedraw < 256, perRedraw + " bytes allocated per redraw of " + SLOTS + " cards");
+        });
+    }
+
+    private static void redraw(CardViewPool pool, Pane display, List<Card> deck) {
+        for (int i = 0; i < deck.size(); i++) {
+            ImageView view = (i + 1 < deck.size()) ? pool.back(i, deck.get(i), SCALE) : pool.face(i, deck.get(i), null, SCALE);
+            view.setTranslateX(4 + i*2);
+            view.setTranslateY(4 + i*3);
+        }
+        pool.showOn(display, deck.size());
+    }
+
+    private static void onFxThread(Runnable runnable) throws Throwable {
+        CountDownLatch             done   = new CountDownLatch(1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Platform.runLater(() -> {
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                thrown.set(e);
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        if (thrown.get() != null) throw thrown.get();
+    }
+}
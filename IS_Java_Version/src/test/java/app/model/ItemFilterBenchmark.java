@@ -0,0 +1,83 @@
+package app.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures how long it takes to look for an item in a large deck with a scan of its cards, as a modus does over the cards it holds,
+ * against asking an {@link ItemFilter} first and only scanning if it can't rule the item out. Most lookups are for items the deck doesn't hold, which is
+ * where a scan costs the most and the filter saves the most.
+ * <br><br>
+ * For each deck size it reports the time per lookup of both, the speedup, and the share of missing items the filter failed to rule out.
+ * <br><br>
+ * This is a plain main class rather than a test so it does not slow down the build, run it from the test classpath with an optional list
+ * of deck sizes as arguments.
+ */
+class ItemFilterBenchmark {
+    private static final int    LOOKUPS   = 1_000;
+    /** the share of lookups that are for an item the deck holds */
+    private static final double HIT_SHARE = 0.1;
+
+    public static void main(String[] args) {
+        int[] sizes = {100_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        }
+
+        System.out.printf("%10s %14s %14s %10s %12s%n", "cards", "scan us/op", "filter us/op", "speedup", "false pos");
+        for (int size : sizes) {
+            Random     rng     = new Random(42);
+            List<Card> deck    = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) deck.add(Card.of("ITEM-" + Integer.toString(i, 36).toUpperCase(Locale.ROOT)));
+            ItemFilter filter  = new ItemFilter(deck);
+            String[]   lookups = new String[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                lookups[i] = (rng.nextDouble() < HIT_SHARE)
+                             ? deck.get(rng.nextInt(size)).getItem()
+                             : "MISS-" + Integer.toString(rng.nextInt(Integer.MAX_VALUE), 36).toUpperCase(Locale.ROOT);
+            }
+
+            // warm up both before measuring either, a tenth of the lookups is enough to get the scan compiled
+            scan(deck, Arrays.copyOf(lookups, LOOKUPS/10), null);
+            scan(deck, lookups, filter);
+            long start       = System.nanoTime();
+            int  scanFound   = scan(deck, lookups, null);
+            long scanNanos   = System.nanoTime() - start;
+            start = System.nanoTime();
+            int  filterFound = scan(deck, lookups, filter);
+            long filterNanos = System.nanoTime() - start;
+            if (scanFound != filterFound) throw new IllegalStateException("the filter ruled out a held item");
+
+            int falsePositives = 0;
+            int misses         = 0;
+            for (String lookup : lookups) {
+                if (!lookup.startsWith("MISS-")) continue;
+                misses++;
+                if (filter.mightHold(lookup)) falsePositives++;
+            }
+            System.out.printf("%10d %14.1f %14.1f %9.0fx %11.2f%%%n", size, scanNanos/1e3/LOOKUPS, filterNanos/1e3/LOOKUPS,
+                              (double) scanNanos/filterNanos, 100.0*falsePositives/misses);
+        }
+    }
+
+    /**
+     * @return the number of lookups that found their item
+     */
+    private static int scan(List<Card> deck, String[] lookups, ItemFilter filter) {
+        int found = 0;
+        for (String lookup : lookups) {
+            if (filter != null && !filter.mightHold(lookup)) continue;
+            for (Card card : deck) {
+                if (card.getItem().equals(lookup)) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+}
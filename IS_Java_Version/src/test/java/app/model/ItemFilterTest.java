@@ -0,0 +1,53 @@
+package app.model;
+
+import javafx.beans.property.ListProperty;
+import javafx.beans.property.SimpleListProperty;
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ItemFilterTest {
+    private static ListProperty<Card> filteredDeck(ItemFilter[] filter, List<Card> cards) {
+        ListProperty<Card> deck = new SimpleListProperty<>(FXCollections.observableList(new CardStore()));
+        deck.addAll(cards);
+        filter[0] = new ItemFilter(deck);
+        deck.addListener(filter[0]);
+        return deck;
+    }
+
+    @Test
+    void heldItemsAreNeverRuledOut() {
+        ItemFilter[]       filter = new ItemFilter[1];
+        ListProperty<Card> deck   = filteredDeck(filter, Arrays.asList(Card.of("sword"), Card.EMPTY, Card.of("bow")));
+        assertTrue(filter[0].mightHold("sword"));
+        assertTrue(filter[0].mightHold(" Bow "));
+        assertFalse(filter[0].mightHold("shield"));
+
+        // grow the deck well past the filter's first size, and take some of it back out
+        Random rng = new Random(11);
+        for (int i = 0; i < 5_000; i++) deck.add(rng.nextInt(deck.size() + 1), Card.of("item-" + i));
+        for (int i = 0; i < 1_000; i++) deck.remove(rng.nextInt(deck.size()));
+        deck.remove(Card.of("bow"));
+
+        for (Card card : deck) if (card.isInUse()) assertTrue(filter[0].mightHold(card.getItem()), card.getItem());
+        assertEquals(deck.size(), filter[0].size());
+    }
+
+    @Test
+    void missingItemsAreMostlyRuledOut() {
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) cards.add(Card.of("held-" + i));
+        ItemFilter[] filter = new ItemFilter[1];
+        filteredDeck(filter, cards).set(FXCollections.observableArrayList(cards));
+
+        int falsePositives = 0;
+        for (int i = 0; i < 20_000; i++) if (filter[0].mightHold("missing-" + i)) falsePositives++;
+        assertTrue(falsePositives < 20_000/50, "false positives: " + falsePositives);
+    }
+}
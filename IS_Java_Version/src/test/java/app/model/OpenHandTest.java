@@ -0,0 +1,57 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenHandTest {
+    @Test
+    void countsEachItem() {
+        OpenHand hand = new OpenHand();
+        hand.addAll(Arrays.asList("SWORD", "BOW", "SWORD"));
+        hand.add("AXE");
+        assertEquals(4, hand.size());
+        assertEquals(3, hand.distinctSize());
+        assertEquals(2, hand.countOf("SWORD"));
+        assertEquals(0, hand.countOf("MAP"));
+
+        assertTrue(hand.remove("SWORD"));
+        assertTrue(hand.remove("BOW"));
+        assertFalse(hand.remove("BOW"));
+        assertFalse(hand.contains("BOW"));
+        assertEquals(Arrays.asList("SWORD", "AXE"), hand.toList());
+        assertEquals(Arrays.asList("SWORD", "AXE"), new ArrayList<>(hand.distinctItems()));
+    }
+
+    @Test
+    void bulkChangesFireOnce() {
+        OpenHand                   hand    = new OpenHand();
+        List<Map<String, Integer>> changes = new ArrayList<>();
+        hand.addListener(changes::add);
+
+        hand.addAll(Arrays.asList("SWORD", "BOW", "SWORD"));
+        assertEquals(1, changes.size());
+        assertEquals(2, (int) changes.get(0).get("SWORD"));
+        assertEquals(1, (int) changes.get(0).get("BOW"));
+
+        OpenHand other = new OpenHand();
+        other.add("SWORD", 2);
+        other.add("MAP");
+        hand.setAll(other);
+        assertEquals(2, changes.size());
+        assertEquals(2, changes.get(1).size(), "the swords didn't change");
+        assertEquals(-1, (int) changes.get(1).get("BOW"));
+        assertEquals(1, (int) changes.get(1).get("MAP"));
+
+        hand.clear();
+        assertTrue(hand.isEmpty());
+        assertEquals(-2, (int) changes.get(2).get("SWORD"));
+        hand.addAll(new ArrayList<>());
+        assertEquals(3, changes.size(), "an empty bulk add is no change");
+    }
+}
@@ -0,0 +1,70 @@
+package app.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StackViewportTest {
+    @Test
+    void keepsEveryCardWhenTheyArePixelsApart() {
+        assertArrayEquals(new int[]{0, 1, 2, 3}, StackViewport.visible(4, 4, 4, 20, 30, 800, 600));
+        assertArrayEquals(new int[0], StackViewport.visible(0, 4, 4, 20, 30, 800, 600));
+    }
+
+    @Test
+    void keepsACardPerPixelOfASquishedDeck() {
+        int   count   = 1_000_000;
+        // a million cards over 700 pixels across and 500 down
+        int[] visible = StackViewport.visible(count, 4, 4, 700.0/count, 500.0/count, 800, 600);
+        assertTrue(visible.length <= 1_202, "found " + visible.length);
+        assertTrue(visible[0] <= count/700, "the bottom pixel shows its highest card, " + visible[0]);
+        assertEquals(count - 1, visible[visible.length - 1], "the top card shows");
+        for (int i = 1; i < visible.length; i++) assertTrue(visible[i - 1] < visible[i], "bottom card first");
+    }
+
+    @Test
+    void dropsCardsPastTheDisplay() {
+        assertArrayEquals(new int[]{0, 1, 2}, StackViewport.visible(10, 0, 0, 30, 10, 90, 600));
+        assertArrayEquals(new int[]{0, 1, 2}, StackViewport.visible(10, 0, 0, 10, 30, 800, 90));
+        assertArrayEquals(new int[]{0, 1, 2, 3}, StackViewport.visible(4, 0, 0, 30, 30, 0, 0), "the display isn't laid out yet");
+    }
+
+    @Test
+    void matchesACardByCardScan() {
+        Random rng = new Random(7);
+        for (int run = 0; run < 500; run++) {
+            int    count  = rng.nextInt(3_000);
+            // steps and origins of whole sixty-fourths, so both ways of placing a card land on exactly the same spot
+            double x      = rng.nextInt(64)/4.0;
+            double y      = rng.nextInt(64)/4.0;
+            double stepX  = (rng.nextInt(256) - 32)/64.0;
+            double stepY  = (rng.nextInt(256) - 32)/64.0;
+            double width  = rng.nextInt(4) == 0 ? 0 : 50 + rng.nextInt(400);
+            double height = rng.nextInt(4) == 0 ? 0 : 50 + rng.nextInt(400);
+
+            String params = String.format("count=%d x=%s y=%s step=(%s, %s) size=(%s, %s)", count, x, y, stepX, stepY, width, height);
+            assertArrayEquals(scan(count, x, y, stepX, stepY, width, height),
+                              StackViewport.visible(count, x, y, stepX, stepY, width, height), params);
+        }
+    }
+
+    private static int[] scan(int count, double x, double y, double stepX, double stepY, double width, double height) {
+        List<Integer> visible = new ArrayList<>();
+        double        abovePx = Double.NaN;
+        double        abovePy = Double.NaN;
+        for (int i = count - 1; i >= 0; i--) {
+            double cardX = x + i*stepX;
+            double cardY = y + i*stepY;
+            if ((width > 0 && cardX >= width) || (height > 0 && cardY >= height)) continue;
+            if (Math.floor(cardX) == abovePx && Math.floor(cardY) == abovePy) continue;
+            abovePx = Math.floor(cardX);
+            abovePy = Math.floor(cardY);
+            visible.add(0, i);
+        }
+        return visible.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,142 @@
+package app.modus;
+
+import app.model.Card;
+import app.model.ModusBuffer;
+import app.model.OpenHand;
+import app.model.SnapshotReader;
+import app.model.SnapshotWriter;
+import javafx.beans.property.SimpleListProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModusSnapshotTest {
+
+    private static ModusBuffer bufferOf(List<Card> deck) {
+        return new ModusBuffer(new SimpleStringProperty(""),
+                               new SimpleObjectProperty<>(),
+                               new SimpleObjectProperty<>(),
+                               new SimpleListProperty<>(FXCollections.observableArrayList(deck)),
+                               new OpenHand());
+    }
+
+    private static List<String> items(List<Card> deck) {
+        return deck.stream().map(card -> card.isInUse() ? card.getItem() : null).collect(Collectors.toList());
+    }
+
+    private static byte[] snapshotOf(Modus modus) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotWriter        out   = new SnapshotWriter(bytes);
+        modus.writeSnapshot(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void restore(Modus modus, byte[] snapshot) throws IOException {
+        modus.readSnapshot(new SnapshotReader(new ByteArrayInputStream(snapshot)));
+    }
+
+    @Test
+    void pentaFileFoldersAreRestoredExactly() throws Exception {
+        List<Card> deck = new ArrayList<>();
+        for (int i = 0; i < 25; i++) deck.add((i%3 == 0) ? new Card("item " + i%6) : Card.EMPTY);
+        PentaFile saved = new PentaFile();
+        saved.resume(bufferOf(deck));
+
+        PentaFile restored = new PentaFile();
+        restore(restored, snapshotOf(saved));
+        assertEquals(items(saved.toDeck()), items(restored.toDeck()));
+        assertSame(Card.EMPTY, restored.toDeck().get(1), "empty slots should stay free for the modus to fill");
+    }
+
+    @Test
+    void tarotDeckOrderIsRestoredExactly() throws Exception {
+        List<Card> deck  = Arrays.asList(new Card("the fool"), new Card("the tower"), new Card("the fool"), new Card("the sun"));
+        TarotDeck  saved = new TarotDeck();
+        saved.resume(bufferOf(deck));
+
+        TarotDeck restored = new TarotDeck();
+        restore(restored, snapshotOf(saved));
+        assertEquals(items(saved.toDeck()), items(restored.toDeck()));
+    }
+
+    @Test
+    void namesThatGrowWhenUpperCasedAreRestored() throws Exception {
+        // a captured card keeps its name however long upper-casing made it, so the snapshot is written as a tarot deck holding one would
+        List<Card>            deck  = Arrays.asList(Card.of("Großer Schlüssel"), Card.of("ßword ßtand"), Card.of("Großer Schlüssel"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotWriter        out   = new SnapshotWriter(bytes);
+        out.writeVarint(1);
+        out.writeCards(deck);
+        out.flush();
+
+        TarotDeck restored = new TarotDeck();
+        restore(restored, bytes.toByteArray());
+        assertEquals(deck, restored.toDeck());
+    }
+
+    @Test
+    void corruptedSnapshotLeavesTheModusAsItWas() throws Exception {
+        TarotDeck modus = new TarotDeck();
+        modus.resume(bufferOf(Arrays.asList(new Card("the moon"), new Card("the star"))));
+        byte[] snapshot = snapshotOf(modus);
+
+        TarotDeck other = new TarotDeck();
+        other.resume(bufferOf(Arrays.asList(new Card("the hermit"))));
+        List<Card> before = other.toDeck();
+        assertThrows(IOException.class, () -> restore(other, Arrays.copyOf(snapshot, snapshot.length - 3)));
+        assertEquals(before, other.toDeck());
+    }
+
+    @Test
+    void timeBoxKeepsTheSizeAndPlacementOfItsCards() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotWriter        out   = new SnapshotWriter(bytes);
+        out.writeVarint(2);
+        out.writeBoolean(true);
+        out.writeVarint(12);
+        out.writeBoolean(true);
+        out.writeCards(Arrays.asList(new Card("sword"), new Card("shield")));
+        out.writeVarint(7);
+        out.writeLong(1234L);
+        out.writeVarint(40);
+        out.writeLong(5678L);
+        out.writeVarint(0);
+        out.flush();
+        byte[] snapshot = bytes.toByteArray();
+
+        TimeBox modus = new TimeBox();
+        restore(modus, snapshot);
+        assertArrayEquals(snapshot, snapshotOf(modus), "the size and placement columns should survive a round trip");
+    }
+
+    @Test
+    void timeBoxReadsSnapshotsWithoutColumns() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SnapshotWriter        out   = new SnapshotWriter(bytes);
+        out.writeVarint(1);
+        out.writeBoolean(false);
+        out.writeVarint(12);
+        out.writeBoolean(false);
+        out.writeVarint(1);
+        out.writeVarint(25);
+        out.writeVarint(3);
+        out.writeCards(Arrays.asList(new Card("hourglass")));
+        out.flush();
+
+        TimeBox modus = new TimeBox();
+        restore(modus, bytes.toByteArray());
+        assertFalse(modus.isEmpty());
+    }
+}